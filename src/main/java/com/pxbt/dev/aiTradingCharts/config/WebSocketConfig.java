@@ -3,20 +3,41 @@ package com.pxbt.dev.aiTradingCharts.config;
 import com.pxbt.dev.aiTradingCharts.handler.CryptoWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.TomcatRequestUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private static final List<WebSocketExtension> EXTENSIONS = List.of(new WebSocketExtension("permessage-deflate"));
+
     @Autowired
     private CryptoWebSocketHandler cryptoWebSocketHandler;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(cryptoWebSocketHandler, "/ws")
+                .setHandshakeHandler(new DefaultHandshakeHandler(new DeflateUpgradeStrategy()))
                 .setAllowedOrigins("*");
     }
+
+    /**
+     * Selects per-message deflate (RFC 7692) for every client that offers it. Tomcat implements the extension but
+     * reports no installed extensions to Spring, so the handshake would otherwise only get it through Tomcat's
+     * own fallback.
+     */
+    private static class DeflateUpgradeStrategy extends TomcatRequestUpgradeStrategy {
+        @Override
+        public List<WebSocketExtension> getSupportedExtensions(ServerHttpRequest request) {
+            return EXTENSIONS;
+        }
+    }
 }
@@ -1,15 +1,32 @@
 package com.pxbt.dev.aiTradingCharts.controller;
 
-import com.pxbt.dev.aiTradingCharts.model.AccuracyRecord;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
 import com.pxbt.dev.aiTradingCharts.model.BacktestSummary;
+import com.pxbt.dev.aiTradingCharts.model.BootstrapResult;
+import com.pxbt.dev.aiTradingCharts.model.SimulationResult;
+import com.pxbt.dev.aiTradingCharts.model.WalkForwardResult;
+import com.pxbt.dev.aiTradingCharts.service.AccuracyBootstrapService;
 import com.pxbt.dev.aiTradingCharts.service.AccuracyPersistenceService;
 import com.pxbt.dev.aiTradingCharts.service.BacktestService;
+import com.pxbt.dev.aiTradingCharts.service.StrategySimulationService;
+import com.pxbt.dev.aiTradingCharts.service.WalkForwardService;
+import com.pxbt.dev.aiTradingCharts.util.StrategySimulator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 @RestController
@@ -18,30 +35,193 @@ import java.util.List;
 public class AccuracyController {
     private final AccuracyPersistenceService accuracyPersistenceService;
     private final BacktestService backtestService;
+    private final WalkForwardService walkForwardService;
+    private final StrategySimulationService simulationService;
+    private final AccuracyBootstrapService bootstrapService;
+    private final SymbolConfig symbolConfig;
+    private final ObjectMapper objectMapper;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int MAX_PAGE_SIZE = 10_000;
+    private static final int MAX_RESAMPLES = 200_000;
 
     @GetMapping("/run")
     public String triggerBacktest(
             @RequestParam String symbol,
-            @RequestParam(defaultValue = "1d") String timeframe) {
-        int count = backtestService.runBacktest(symbol, timeframe);
+            @RequestParam(defaultValue = "1d") String timeframe,
+            @RequestParam(defaultValue = "false") boolean full) {
+        int count = backtestService.runBacktest(symbol, timeframe, full);
         return String.format("✅ Backtest complete for %s. Generated %d historical records.", symbol, count);
     }
 
+    /**
+     * Walk-forward retraining backtest. Fold predictions are stored under timeframe "{timeframe}:wf".
+     */
+    @GetMapping("/walkforward")
+    public ResponseEntity<WalkForwardResult> runWalkForward(
+            @RequestParam String symbol,
+            @RequestParam(defaultValue = "1d") String timeframe,
+            @RequestParam(required = false) Integer retrainEvery) {
+
+        int every = retrainEvery != null ? retrainEvery : walkForwardService.defaultRetrainEvery(timeframe);
+        if (every < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(walkForwardService.run(symbol, timeframe, every));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * PnL of trading the stored backtest predictions with the live signal thresholds (or overrides)
+     */
+    @GetMapping("/simulate")
+    public SimulationResult simulate(
+            @RequestParam String symbol,
+            @RequestParam(defaultValue = "1d") String timeframe,
+            @RequestParam(required = false) Double changePercent,
+            @RequestParam(required = false) Double strongChangePercent,
+            @RequestParam(required = false) Double confidence,
+            @RequestParam(required = false) Double strongConfidence,
+            @RequestParam(defaultValue = "10") double feeBps,
+            @RequestParam(defaultValue = "5") double slippageBps,
+            @RequestParam(defaultValue = "0.5") double positionSize,
+            @RequestParam(defaultValue = "1.0") double strongPositionSize,
+            @RequestParam(defaultValue = "false") boolean allowShort) {
+
+        StrategySimulator.Params d = StrategySimulationService.defaultParams(
+                feeBps, slippageBps, positionSize, strongPositionSize, allowShort);
+        StrategySimulator.Params params = new StrategySimulator.Params(
+                changePercent != null ? changePercent : d.changePercent(),
+                strongChangePercent != null ? strongChangePercent : d.strongChangePercent(),
+                confidence != null ? confidence : d.confidence(),
+                strongConfidence != null ? strongConfidence : d.strongConfidence(),
+                feeBps, slippageBps, positionSize, strongPositionSize, allowShort);
+
+        return simulationService.simulate(resolveSymbol(symbol, timeframe), timeframe, params);
+    }
+
+    /**
+     * Block-bootstrap confidence intervals for the stored backtest win rate and error
+     */
+    @GetMapping("/bootstrap")
+    public BootstrapResult bootstrap(
+            @RequestParam String symbol,
+            @RequestParam(defaultValue = "1d") String timeframe,
+            @RequestParam(defaultValue = "20000") int resamples,
+            @RequestParam(defaultValue = "0.95") double confidenceLevel,
+            @RequestParam(defaultValue = "0") int blockLength) {
+
+        int boundedResamples = Math.max(1, Math.min(resamples, MAX_RESAMPLES));
+        double boundedLevel = Math.max(0.5, Math.min(confidenceLevel, 0.999));
+        return bootstrapService.bootstrap(resolveSymbol(symbol, timeframe), timeframe,
+                boundedResamples, boundedLevel, blockLength);
+    }
+
+    /**
+     * Best signal thresholds by mean Sharpe across symbols
+     */
+    @GetMapping("/sweep")
+    public List<SimulationResult> sweep(
+            @RequestParam(required = false) List<String> symbols,
+            @RequestParam(defaultValue = "1d") String timeframe,
+            @RequestParam(defaultValue = "10") double feeBps,
+            @RequestParam(defaultValue = "5") double slippageBps,
+            @RequestParam(defaultValue = "0.5") double positionSize,
+            @RequestParam(defaultValue = "1.0") double strongPositionSize,
+            @RequestParam(defaultValue = "false") boolean allowShort,
+            @RequestParam(defaultValue = "20") int top) {
+
+        List<String> universe = symbols != null && !symbols.isEmpty() ? symbols : symbolConfig.getSymbols();
+        return simulationService.sweep(universe, timeframe, feeBps, slippageBps,
+                positionSize, strongPositionSize, allowShort, top);
+    }
+
+    /**
+     * Audit records streamed from the store in prediction-time order.
+     * Without limit/cursor the response is the plain JSON array it has always been. With them it is a page:
+     * {"records": [...], "nextCursor": "..."} for json, or one record per line followed by a
+     * {"nextCursor": ...} line for ndjson. nextCursor is null once the scan is exhausted.
+     */
     @GetMapping("/audit")
-    public List<AccuracyRecord> getAuditLogs(
+    public ResponseEntity<StreamingResponseBody> getAuditLogs(
             @RequestParam(required = false) String symbol,
-            @RequestParam(required = false) String timeframe) {
-
-        if (symbol != null && timeframe != null) {
-            // Normalize: frontend sends 'BTC', backend stores 'BTCUSDT'
-            // Try both forms so either works
-            List<AccuracyRecord> result = accuracyPersistenceService.getRecords(symbol, timeframe);
-            if (result.isEmpty() && !symbol.toUpperCase().endsWith("USDT")) {
-                result = accuracyPersistenceService.getRecords(symbol + "USDT", timeframe);
+            @RequestParam(required = false) String timeframe,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(defaultValue = "false") boolean evaluatedOnly,
+            @RequestParam(defaultValue = "json") String format) {
+
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        boolean paged = limit != null || cursor != null;
+        if ((limit != null && limit < 1) || !("asc".equalsIgnoreCase(order) || "desc".equalsIgnoreCase(order))
+                || !(ndjson || "json".equalsIgnoreCase(format))) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            accuracyPersistenceService.validateCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String scanSymbol = resolveSymbol(symbol, timeframe);
+        int pageSize = paged ? Math.min(limit != null ? limit : MAX_PAGE_SIZE, MAX_PAGE_SIZE) : Integer.MAX_VALUE;
+        long fromTs = from != null ? from : Long.MIN_VALUE;
+        long toTs = to != null ? to : Long.MAX_VALUE;
+        boolean descending = "desc".equalsIgnoreCase(order);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = raw -> {
+            OutputStream out = new BufferedOutputStream(raw, 16 * 1024);
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.setRootValueSeparator(null);
+                if (!ndjson) {
+                    if (paged) {
+                        gen.writeStartObject();
+                        gen.writeFieldName("records");
+                    }
+                    gen.writeStartArray();
+                }
+
+                String next = accuracyPersistenceService.scanRecords(scanSymbol, timeframe, fromTs, toTs,
+                        descending, evaluatedOnly, cursor, pageSize, record -> {
+                            writer.writeValue(gen, record);
+                            if (ndjson) gen.writeRaw('\n');
+                        });
+
+                if (!ndjson) {
+                    gen.writeEndArray();
+                    if (paged) {
+                        gen.writeStringField("nextCursor", next);
+                        gen.writeEndObject();
+                    }
+                } else if (paged) {
+                    gen.writeStartObject();
+                    gen.writeStringField("nextCursor", next);
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                }
             }
-            return result;
+        };
+
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    // Normalize: frontend sends 'BTC', backend stores 'BTCUSDT'
+    // Try both forms so either works
+    private String resolveSymbol(String symbol, String timeframe) {
+        if (symbol != null && !symbol.toUpperCase().endsWith("USDT")
+                && !accuracyPersistenceService.hasRecords(symbol, timeframe)) {
+            return symbol + "USDT";
         }
-        return accuracyPersistenceService.getAllRecords();
+        return symbol;
     }
 
     @GetMapping("/summary")
@@ -4,7 +4,9 @@ import com.pxbt.dev.aiTradingCharts.dto.ChartDataResponseDto;
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
 import com.pxbt.dev.aiTradingCharts.model.AIAnalysisResult;
 import com.pxbt.dev.aiTradingCharts.service.BinanceHistoricalService;
+import com.pxbt.dev.aiTradingCharts.service.DownsamplingService;
 import com.pxbt.dev.aiTradingCharts.service.TradingAnalysisService;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -23,19 +25,34 @@ public class ApiDataController {
     @Autowired
     private TradingAnalysisService tradingAnalysisService;
 
+    @Autowired
+    private DownsamplingService downsamplingService;
+
     @GetMapping("/data")
     public ResponseEntity<ChartDataResponseDto> getChartData(
             @RequestParam String symbol,
-            @RequestParam String timeframe) {
+            @RequestParam String timeframe,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(defaultValue = DownsamplingService.MODE_CANDLES) String mode) {
 
         log.info("📈 Chart data requested - Symbol: {}, Timeframe: {}", symbol, timeframe);
+        if (!binanceHistoricalService.isSupportedTimeframe(timeframe)) {
+            return ResponseEntity.badRequest().build();
+        }
 
         try {
-            List<CryptoPrice> historicalData = binanceHistoricalService.getHistoricalDataReactive(symbol, timeframe, 100)
+            List<CryptoPrice> historicalData = binanceHistoricalService.getHistoricalDataReactive(symbol, timeframe, limit)
                     .block(); // Using block() since this is a synchronous endpoint
 
             AIAnalysisResult analysis = tradingAnalysisService.analyzePriceData(historicalData, timeframe);
 
+            // Analysis runs on full resolution; only the payload is downsampled
+            if (maxPoints != null && maxPoints >= 3 && historicalData != null && historicalData.size() > maxPoints) {
+                historicalData = downsamplingService.downsample(symbol, timeframe, "last:" + limit,
+                        CandleColumns.fromPrices(historicalData), maxPoints, mode).toPrices(symbol);
+            }
+
             ChartDataResponseDto response = new ChartDataResponseDto(historicalData, analysis, timeframe);
             return ResponseEntity.ok(response);
 
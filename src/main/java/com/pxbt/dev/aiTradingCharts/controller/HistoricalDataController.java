@@ -1,14 +1,27 @@
 package com.pxbt.dev.aiTradingCharts.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.pxbt.dev.aiTradingCharts.dto.OHLCData;
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
 import com.pxbt.dev.aiTradingCharts.service.BinanceHistoricalService;
+import com.pxbt.dev.aiTradingCharts.service.CandleAggregationService;
+import com.pxbt.dev.aiTradingCharts.service.CompressedBodyCache;
+import com.pxbt.dev.aiTradingCharts.service.DownsamplingService;
+import com.pxbt.dev.aiTradingCharts.service.IntradayCandleStore;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -16,17 +29,42 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/historical")
 public class HistoricalDataController {
 
+    // Hard cap on a single range read before downsampling; larger ranges are rejected rather than cut
+    private static final int MAX_RANGE_POINTS = 100_000;
+
     private final BinanceHistoricalService binanceHistoricalService;
+    private final DownsamplingService downsamplingService;
+    private final CompressedBodyCache compressedBodyCache;
+    private final JsonFactory jsonFactory = new JsonFactory();
 
-    public HistoricalDataController(BinanceHistoricalService binanceHistoricalService) {
+    public HistoricalDataController(BinanceHistoricalService binanceHistoricalService,
+                                    DownsamplingService downsamplingService,
+                                    CompressedBodyCache compressedBodyCache) {
         this.binanceHistoricalService = binanceHistoricalService;
+        this.downsamplingService = downsamplingService;
+        this.compressedBodyCache = compressedBodyCache;
     }
 
     @GetMapping("/{symbol}")
-    public ResponseEntity<List<OHLCData>> getHistoricalData(
+    public ResponseEntity<?> getHistoricalData(
             @PathVariable String symbol,
             @RequestParam(defaultValue = "1d") String timeframe,
-            @RequestParam(defaultValue = "100") int limit) {
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(defaultValue = DownsamplingService.MODE_CANDLES) String mode,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if ((maxPoints != null && maxPoints < 3) || !binanceHistoricalService.isSupportedTimeframe(timeframe)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (from != null || to != null) {
+            return getHistoricalRange(symbol, timeframe, from != null ? from : 0L,
+                    to != null ? to : Long.MAX_VALUE, maxPoints, mode, acceptEncoding, ifNoneMatch);
+        }
 
         log.info("📈 Historical data requested - Symbol: {}, Timeframe: {}, Limit: {}", symbol, timeframe, limit);
 
@@ -40,6 +78,11 @@ public class HistoricalDataController {
                 return ResponseEntity.notFound().build();
             }
 
+            if (maxPoints != null && cryptoPrices.size() > maxPoints) {
+                cryptoPrices = downsamplingService.downsample(symbol, timeframe, "last:" + limit,
+                        CandleColumns.fromPrices(cryptoPrices), maxPoints, mode).toPrices(symbol);
+            }
+
             // ✅ Convert CryptoPrice to OHLCData for frontend
             List<OHLCData> ohlcData = cryptoPrices.stream()
                     .map(price -> new OHLCData (
@@ -60,4 +103,71 @@ public class HistoricalDataController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Time-range slice (epoch ms, inclusive) streamed straight from the candle columns,
+     * same JSON shape as the OHLCData list. With maxPoints the slice is downsampled
+     * (OHLC buckets for candles, LTTB for mode=line). A range that ends before the forming
+     * candle only holds closed candles, so it is served from the precompressed body cache.
+     * A range holding more than MAX_RANGE_POINTS candles is a 400: serving only its newest part would
+     * silently ignore {@code from}.
+     */
+    private ResponseEntity<?> getHistoricalRange(String symbol, String timeframe, long from, long to,
+                                                 Integer maxPoints, String mode,
+                                                 String acceptEncoding, String ifNoneMatch) {
+
+        log.info("📈 Historical range requested - Symbol: {}, Timeframe: {}, {} → {}", symbol, timeframe, from, to);
+
+        if (to < from) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // One extra candle tells a range that fits apart from one the read had to cut
+        CandleColumns range = binanceHistoricalService.getHistoricalDataRange(symbol, timeframe, from, to, MAX_RANGE_POINTS + 1);
+        if (range.size() > MAX_RANGE_POINTS) {
+            log.warn("⚠️ Range {} {} {} → {} exceeds {} candles, rejected", symbol, timeframe, from, to, MAX_RANGE_POINTS);
+            return ResponseEntity.badRequest().body(Map.of("message", "Range exceeds " + MAX_RANGE_POINTS
+                    + " candles; narrow from/to or use a coarser timeframe"));
+        }
+        CandleColumns candles = maxPoints == null || range.isEmpty() ? range
+                : downsamplingService.downsample(symbol, timeframe, from + "-" + to, range, maxPoints, mode);
+
+        if (!candles.isEmpty() && to < formingCandleOpen(timeframe)) {
+            // Size and last timestamp in the key, so a range completed by a later backfill is not served stale
+            String key = String.join("|", symbol.toUpperCase(), timeframe, from + "-" + to,
+                    String.valueOf(maxPoints), mode, String.valueOf(range.size()), String.valueOf(range.lastTimestamp()));
+            return compressedBodyCache.respond(compressedBodyCache.get(key, out -> writeCandles(candles, out)),
+                    acceptEncoding, ifNoneMatch);
+        }
+
+        StreamingResponseBody body = out -> writeCandles(candles, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private void writeCandles(CandleColumns candles, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            gen.writeStartArray();
+            for (int i = 0; i < candles.size(); i++) {
+                gen.writeStartObject();
+                gen.writeNumberField("timestamp", candles.timestamp(i));
+                gen.writeNumberField("open", candles.open(i));
+                gen.writeNumberField("high", candles.high(i));
+                gen.writeNumberField("low", candles.low(i));
+                gen.writeNumberField("close", candles.close(i));
+                gen.writeNumberField("volume", candles.volume(i));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    private static long formingCandleOpen(String timeframe) {
+        long now = System.currentTimeMillis();
+        return IntradayCandleStore.tierOf(timeframe)
+                .map(tier -> tier.bucketOpen(now))
+                .orElseGet(() -> CandleAggregationService.bucketOpen(timeframe, now));
+    }
+}
@@ -1,10 +1,13 @@
 package com.pxbt.dev.aiTradingCharts.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
 import com.pxbt.dev.aiTradingCharts.model.AIAnalysisResult;
+import com.pxbt.dev.aiTradingCharts.model.AnalysisSnapshot;
 import com.pxbt.dev.aiTradingCharts.model.PriceUpdate;
+import com.pxbt.dev.aiTradingCharts.service.AnalysisSnapshotService;
 import com.pxbt.dev.aiTradingCharts.service.MarketDataService;
-import com.pxbt.dev.aiTradingCharts.service.TradingAnalysisService;
+import com.pxbt.dev.aiTradingCharts.util.PriceFrameCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -13,21 +16,65 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import java.io.EOFException;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
 @Slf4j
 @Component
-public class CryptoWebSocketHandler implements WebSocketHandler {
+public class CryptoWebSocketHandler implements WebSocketHandler, SubProtocolCapable {
 
     // Keyed by the original session ID so removal in afterConnectionClosed works correctly,
     // since the decorated session (ConcurrentWebSocketSessionDecorator) is what we add but
     // afterConnectionClosed / handleTransportError receive the original session.
-    private final ConcurrentHashMap<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SessionOutbox> sessions = new ConcurrentHashMap<>();
+
+    // Channels a client can subscribe to: "subscribe:BTC,SOL;prices,analysis" ("*" = every symbol, no channel
+    // list = every channel). Logs and events are not per symbol. Until its first subscribe a client gets everything.
+    // "deltas" carries the analysis as a versioned keyframe/delta stream (acknowledged with "ack:BTC,12").
+    public static final String PRICES = "prices";
+    public static final String ANALYSIS = "analysis";
+    public static final String DELTAS = "deltas";
+    public static final String LOGS = "logs";
+    public static final String EVENTS = "events";
+    private static final List<String> CHANNELS = List.of(PRICES, ANALYSIS, DELTAS, LOGS, EVENTS);
+    private static final Set<String> GLOBAL_CHANNELS = Set.of(LOGS, EVENTS);
+    private static final String ALL_SYMBOLS = "*";
+
+    // Topic ("prices:BTC", "prices:*", "logs") -> subscribed sessions, so a publish only touches interested ones
+    private final ConcurrentHashMap<String, Set<SessionOutbox>> topicSessions = new ConcurrentHashMap<>();
+    private final Set<SessionOutbox> unfiltered = ConcurrentHashMap.newKeySet();
+
+    // Per-session queue bound: a client this far behind only gets the newest frames
+    private static final int OUTBOX_CAPACITY = 256;
+    private static final int FANOUT_BACKLOG = 1024;
+
+    // publish() only hands the frame to this thread, so its cost on the caller does not grow with clients.
+    // Past the backlog the caller fans out itself: offers never block and the per-session outboxes do the dropping,
+    // so a whole event/log/analysis frame is never discarded for everyone
+    private final AtomicLong fanoutOverflows = new AtomicLong();
+    private final ThreadPoolExecutor fanout = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(FANOUT_BACKLOG), daemon("WS-Fanout"), this::fanOutOnCaller);
+
+    // Sends: one drain task per session at a time, each on its own virtual thread, so a client stalled in a
+    // blocking send parks only its own drain and never holds up delivery to the others
+    private final ExecutorService drainPool = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("WS-Send-", 0).factory());
 
     public int getActiveSessionCount() {
         return sessions.size();
@@ -35,40 +82,63 @@ public class CryptoWebSocketHandler implements WebSocketHandler {
 
     @Autowired
     @Lazy
-    private TradingAnalysisService analysisService;
+    private AnalysisSnapshotService analysisService;
     
     @Autowired
     @Lazy
     private MarketDataService marketDataService;
 
+    @Autowired
+    private SymbolConfig symbolConfig;
+
     private final ObjectMapper mapper = new ObjectMapper();
 
+    // Symbol dictionary of the binary price frames (id = index), announced in the welcome message
+    private volatile Map<String, Integer> symbolIds;
+
+    @jakarta.annotation.PostConstruct
+    public void init() {
+        List<String> symbols = symbolConfig.getSymbols();
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < symbols.size() && i <= PriceFrameCodec.MAX_SYMBOL_ID; i++) {
+            ids.put(symbols.get(i), i);
+        }
+        symbolIds = Map.copyOf(ids);
+    }
+
+    /**
+     * Clients that offer "pxbt-bin-v1" in Sec-WebSocket-Protocol get price ticks as fixed binary frames
+     */
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(PriceFrameCodec.PROTOCOL);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         // Enforce send timeout (5s) and outbound buffer limit (512KB) per session
         // This prevents native memory leaks when clients are slow or suspended
         ConcurrentWebSocketSessionDecorator safeSession = new ConcurrentWebSocketSessionDecorator(
                 session, 5000, 512 * 1024);
-        sessions.put(session.getId(), safeSession);
-        log.info("🔌 NEW CLIENT CONNECTED - Session: {}, Remote: {}, Total: {}",
-                session.getId(), session.getRemoteAddress(), sessions.size());
+        String sessionId = session.getId();
+        boolean binary = PriceFrameCodec.PROTOCOL.equals(session.getAcceptedProtocol());
+        SessionOutbox outbox = new SessionOutbox(safeSession, OUTBOX_CAPACITY, drainPool,
+                () -> removeSession(sessionId), binary);
+        sessions.put(sessionId, outbox);
+        unfiltered.add(outbox);
+        log.info("🔌 NEW CLIENT CONNECTED - Session: {}, Remote: {}, Binary: {}, Extensions: {}, Total: {}",
+                sessionId, session.getRemoteAddress(), binary, session.getExtensions(), sessions.size());
 
         // Send welcome message to confirm connection
-        try {
-            String welcomeMsg = "{\"type\": \"welcome\", \"message\": \"Connected to AI Trading Data\", \"timestamp\": "
-                    + System.currentTimeMillis() + "}";
-            synchronized (session) {
-                session.sendMessage(new TextMessage(welcomeMsg));
-            }
-            log.debug("✅ Welcome message sent to client: {}", session.getId());
-        } catch (Exception e) {
-            log.error("❌ Failed to send welcome message to client {}: {}", session.getId(), e.getMessage());
-        }
+        String welcomeMsg = "{\"type\": \"welcome\", \"message\": \"Connected to AI Trading Data\", \"timestamp\": "
+                + System.currentTimeMillis() + (binary ? ", \"symbols\": " + symbolDictionaryJson() : "") + "}";
+        send(session, welcomeMsg);
+        log.debug("✅ Welcome message queued for client: {}", sessionId);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session.getId());
+        removeSession(session.getId());
         log.info("🔌 CLIENT DISCONNECTED - Session: {}, Reason: {}, Code: {}, Remaining: {}",
                 session.getId(), status.getReason(), status.getCode(), sessions.size());
     }
@@ -80,6 +150,12 @@ public class CryptoWebSocketHandler implements WebSocketHandler {
         // Handle analysis requests
         if (payload.startsWith("analyze:")) {
             handleAnalysisRequest(session, payload);
+        } else if (payload.startsWith("subscribe:")) {
+            handleSubscription(session, payload.substring(10), true);
+        } else if (payload.startsWith("unsubscribe:")) {
+            handleSubscription(session, payload.substring(12), false);
+        } else if (payload.startsWith("ack:")) {
+            handleAck(session, payload.substring(4));
         }
         // Store real market data for analysis
         else {
@@ -97,6 +173,87 @@ public class CryptoWebSocketHandler implements WebSocketHandler {
         }
     }
 
+    /**
+     * "BTC,SOL;prices,analysis" or "*;logs". The first subscribe switches the client from everything to its topics;
+     * an unsubscribe first turns "everything" into explicit every-symbol topics, then removes from those.
+     */
+    private void handleSubscription(WebSocketSession session, String spec, boolean subscribe) {
+        SessionOutbox outbox = sessions.get(session.getId());
+        if (outbox == null) return;
+
+        String[] parts = spec.split(";", 2);
+        List<String> channels = parts.length > 1 && !parts[1].isBlank()
+                ? List.of(parts[1].toLowerCase().split(","))
+                : CHANNELS;
+
+        synchronized (outbox) {
+            if (unfiltered.remove(outbox) && !subscribe) {
+                // What an unfiltered client received: every non-versioned channel for every symbol
+                for (String channel : CHANNELS) {
+                    if (channel.equals(DELTAS)) continue;
+                    String topic = topic(channel, ALL_SYMBOLS);
+                    topicSessions.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet()).add(outbox);
+                    outbox.getTopics().add(topic);
+                }
+            }
+            for (String channel : channels) {
+                channel = channel.trim();
+                if (!CHANNELS.contains(channel)) {
+                    log.debug("⚠️ Unknown channel '{}' from session {}", channel, session.getId());
+                    continue;
+                }
+                for (String symbol : parts[0].split(",")) {
+                    if (symbol.isBlank() && !GLOBAL_CHANNELS.contains(channel)) continue;
+                    String topic = topic(channel, symbol.trim());
+                    if (subscribe) {
+                        topicSessions.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet()).add(outbox);
+                        outbox.getTopics().add(topic);
+                    } else {
+                        Set<SessionOutbox> subscribers = topicSessions.get(topic);
+                        if (subscribers != null) subscribers.remove(outbox);
+                        outbox.getTopics().remove(topic);
+                    }
+                }
+            }
+        }
+        send(session, "{\"type\": \"subscriptions\", \"topics\": [" + outbox.getTopics().stream()
+                .sorted().map(t -> "\"" + t + "\"").collect(Collectors.joining(",")) + "]}");
+        log.debug("📬 Session {} topics: {}", session.getId(), outbox.getTopics());
+    }
+
+    // "BTC,12": the client now holds version 12 of BTC's delta stream
+    private void handleAck(WebSocketSession session, String spec) {
+        SessionOutbox outbox = sessions.get(session.getId());
+        String[] parts = spec.split(",");
+        if (outbox == null || parts.length != 2) return;
+        try {
+            outbox.ack(parts[0].trim().toUpperCase(), Long.parseLong(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            log.debug("⚠️ Bad ack '{}' from session {}", spec, session.getId());
+        }
+    }
+
+    private String symbolDictionaryJson() {
+        String[] names = new String[symbolIds.size()];
+        symbolIds.forEach((symbol, id) -> names[id] = "\"" + symbol + "\"");
+        return "[" + String.join(",", names) + "]";
+    }
+
+    private static String topic(String channel, String symbol) {
+        if (GLOBAL_CHANNELS.contains(channel)) return channel;
+        return channel + ":" + (symbol == null || symbol.isEmpty() ? ALL_SYMBOLS : symbol.toUpperCase());
+    }
+
+    private void removeSession(String sessionId) {
+        SessionOutbox outbox = sessions.remove(sessionId);
+        if (outbox == null) return;
+        unfiltered.remove(outbox);
+        for (String topic : outbox.getTopics()) {
+            Set<SessionOutbox> subscribers = topicSessions.get(topic);
+            if (subscribers != null) subscribers.remove(outbox);
+        }
+    }
+
     private void handleAnalysisRequest(WebSocketSession session, String payload) {
         try {
             // Parse: "analyze:BTC,50000"
@@ -106,27 +263,20 @@ public class CryptoWebSocketHandler implements WebSocketHandler {
 
             log.info("🔍 ANALYSIS REQUESTED - Symbol: {}, Price: ${}", symbol, price);
 
-            // CALL THE ANALYSIS SERVICE
-            AIAnalysisResult result = analysisService.analyzeMarketData(symbol, price);
+            // Shared snapshot: only recomputed when data, models or signals changed
+            AnalysisSnapshot snapshot = analysisService.getSnapshot(symbol, price);
+            AIAnalysisResult result = snapshot.getResult();
 
-            // Convert to JSON and send back to client
-            String analysisJson = mapper.writeValueAsString(result);
-            synchronized (session) {
-                session.sendMessage(new TextMessage("analysis:" + analysisJson));
-            }
+            // Snapshot JSON is serialised once and shared with broadcasts of the same snapshot
+            String analysisJson = snapshot.toJson(mapper);
+            send(session, "analysis:" + analysisJson);
 
             log.info("✅ ANALYSIS COMPLETE - Symbol: {}, Confidence: {}%, Signal: {}",
                     symbol, result.getConfidence(), result.getTradingSignal());
 
         } catch (Exception e) {
             log.error("❌ ANALYSIS FAILED: {}", e.getMessage());
-            try {
-                synchronized (session) {
-                    session.sendMessage(new TextMessage("error:Analysis failed - " + e.getMessage()));
-                }
-            } catch (IOException ioException) {
-                log.error("❌ Failed to send error message");
-            }
+            send(session, "error:Analysis failed - " + e.getMessage());
         }
     }
 
@@ -140,7 +290,7 @@ public class CryptoWebSocketHandler implements WebSocketHandler {
             log.error("💥 TRANSPORT ERROR - Session: {}, Error: {}",
                     session.getId(), exception.getMessage(), exception);
         }
-        sessions.remove(session.getId());
+        removeSession(session.getId());
     }
 
     @Override
@@ -148,62 +298,142 @@ public class CryptoWebSocketHandler implements WebSocketHandler {
         return false;
     }
 
-    /**
-     * Broadcast message to all connected WebSocket clients
-     */
-    /**
-     * Broadcast message to all connected WebSocket clients
-     */
     /**
      * Broadcast a system event/log to all clients
      */
     public void broadcastEvent(String category, String message) {
         String eventJson = String.format("{\"type\": \"event\", \"category\": \"%s\", \"message\": \"%s\", \"timestamp\": %d}",
                 category, message, System.currentTimeMillis());
-        broadcast(eventJson);
+        publish(EVENTS, null, eventJson, null);
     }
 
-    public void broadcast(String message) {
+    /**
+     * Sends to the clients subscribed to {@code channel} for {@code symbol} (ignored for logs and events), to the
+     * ones subscribed to it for every symbol, and to clients that never subscribed. Encoded once, fanned out off
+     * the caller's thread.
+     */
+    public void publish(String channel, String symbol, String message, String conflationKey) {
         if (sessions.isEmpty()) {
-            log.debug("📢 No clients connected to broadcast message");
             return;
         }
+        TextMessage frame = new TextMessage(message);
+        String topic = topic(channel, symbol);
+        fanout.execute(() -> forEachSubscriber(channel, topic, outbox -> outbox.offer(frame, conflationKey)));
+    }
 
-        log.debug("📢 BROADCASTING to {} clients - Message size: {} bytes",
-                sessions.size(), message.length());
+    /**
+     * Price tick on the prices channel: binary clients get the 28-byte frame, the others the JSON text. Both are
+     * encoded on the fan-out thread, at most once per tick and only if some subscriber needs them.
+     */
+    public void publishPrice(String symbol, double price, double volume, long timestamp) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        String topic = topic(PRICES, symbol);
+        String conflationKey = "price:" + symbol;
+        fanout.execute(() -> {
+            Integer symbolId = symbolIds.get(symbol.toUpperCase());
+            WebSocketMessage<?>[] frames = new WebSocketMessage<?>[2];
+            forEachSubscriber(PRICES, topic, outbox -> {
+                int kind = outbox.isBinary() && symbolId != null ? 1 : 0;
+                if (frames[kind] == null) {
+                    frames[kind] = kind == 1
+                            ? new BinaryMessage(PriceFrameCodec.encode(symbolId, price, volume, timestamp))
+                            : new TextMessage(PriceFrameCodec.toJson(symbol, price, volume, timestamp));
+                }
+                outbox.offer(frames[kind], conflationKey);
+            });
+        });
+    }
 
-        int successCount = 0;
-        int errorCount = 0;
-        List<String> closedSessionIds = new ArrayList<>();
+    // Clients that never subscribed, then the topic's subscribers, then the channel's every-symbol subscribers
+    private void forEachSubscriber(String channel, String topic, Consumer<SessionOutbox> action) {
+        for (SessionOutbox outbox : unfiltered) {
+            action.accept(outbox);
+        }
+        Set<SessionOutbox> subscribers = topicSessions.getOrDefault(topic, Set.of());
+        for (SessionOutbox outbox : subscribers) {
+            action.accept(outbox);
+        }
+        String wildcard = topic(channel, ALL_SYMBOLS);
+        if (!wildcard.equals(topic)) {
+            for (SessionOutbox outbox : topicSessions.getOrDefault(wildcard, Set.of())) {
+                if (!subscribers.contains(outbox)) action.accept(outbox);
+            }
+        }
+    }
 
-        // 1. First iteration to send messages and identify closed sessions
-        for (WebSocketSession session : sessions.values()) {
-            try {
-                if (session.isOpen()) {
-                    synchronized (session) {
-                        session.sendMessage(new TextMessage(message));
-                    }
-                    successCount++;
-                } else {
-                    closedSessionIds.add(session.getId());
-                }
-            } catch (IOException e) {
-                log.warn("❌ Failed to send message to session {}: {}", session.getId(), e.getMessage());
-                closedSessionIds.add(session.getId());
-            } catch (Exception e) {
-                log.error("❌ Unexpected error broadcasting to session {}: {}", session.getId(), e.getMessage());
-                closedSessionIds.add(session.getId());
+    /**
+     * Per-client variant of {@link #publish} for a versioned stream: each subscriber gets
+     * {@code frameForBase.apply(v)}, where v is the version of {@code symbol}'s stream it last acknowledged (-1 if
+     * none). Frames are encoded once per distinct acknowledged version. Clients that never subscribed are skipped.
+     */
+    public void publishVersioned(String channel, String symbol, String conflationKey, LongFunction<String> frameForBase) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        String stream = symbol.toUpperCase();
+        String topic = topic(channel, symbol);
+        String wildcard = topic(channel, ALL_SYMBOLS);
+        fanout.execute(() -> {
+            Map<Long, TextMessage> frames = new HashMap<>();
+            Set<SessionOutbox> subscribers = topicSessions.getOrDefault(topic, Set.of());
+            for (SessionOutbox outbox : subscribers) {
+                long base = outbox.getAckedVersion(stream);
+                outbox.offer(frames.computeIfAbsent(base, b -> new TextMessage(frameForBase.apply(b))), conflationKey);
+            }
+            for (SessionOutbox outbox : topicSessions.getOrDefault(wildcard, Set.of())) {
+                if (subscribers.contains(outbox)) continue;
+                long base = outbox.getAckedVersion(stream);
+                outbox.offer(frames.computeIfAbsent(base, b -> new TextMessage(frameForBase.apply(b))), conflationKey);
             }
+        });
+    }
+
+    /**
+     * Frames dropped so far by the outboxes of the connected clients
+     */
+    public long getDroppedFrameCount() {
+        return sessions.values().stream().mapToLong(SessionOutbox::getDroppedCount).sum();
+    }
+
+    /**
+     * Fan-outs that found the backlog full and ran on the publishing thread instead
+     */
+    public long getFanoutOverflowCount() {
+        return fanoutOverflows.get();
+    }
+
+    private void fanOutOnCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) return;
+        long overflows = fanoutOverflows.incrementAndGet();
+        if (overflows == 1 || overflows % 1000 == 0) {
+            log.warn("⚠️ WebSocket fan-out backlog full ({} overflows so far), fanning out on {}",
+                    overflows, Thread.currentThread().getName());
         }
+        task.run();
+    }
 
-        // 2. Perform safe cleanup of closed sessions outside the broadcast loop
-        if (!closedSessionIds.isEmpty()) {
-            closedSessionIds.forEach(sessions::remove);
-            log.info("🧹 Cleaned up {} closed or failed sessions (Remaining: {})",
-                    closedSessionIds.size(), sessions.size());
+    // Direct reply to one client, ordered with its broadcasts
+    private void send(WebSocketSession session, String message) {
+        SessionOutbox outbox = sessions.get(session.getId());
+        if (outbox != null) {
+            outbox.offer(new TextMessage(message), null);
         }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
 
-        log.debug("📢 BROADCAST RESULTS - Success: {}, Errors: {}, Total Clients: {}",
-                successCount, errorCount, sessions.size());
+    @jakarta.annotation.PreDestroy
+    public void shutdown() {
+        fanout.shutdownNow();
+        drainPool.shutdownNow();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.pxbt.dev.aiTradingCharts.handler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded outgoing queue of one WebSocket session, drained by a shared pool with at most one drain task per
+ * session (so frames keep their order and sends never overlap). A slow client only fills its own queue:
+ *  - frames with a conflation key replace the queued frame with the same key in place (latest price wins)
+ *  - when the queue is full the oldest frame is dropped
+ * Frames are shared between sessions and never modified; binary payloads are sent through a duplicate view, since
+ * sending consumes the buffer's position.
+ */
+@Slf4j
+final class SessionOutbox {
+
+    private static final class Slot {
+        final String key;
+        WebSocketMessage<?> frame;
+
+        Slot(String key, WebSocketMessage<?> frame) {
+            this.key = key;
+            this.frame = frame;
+        }
+    }
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final Executor drainPool;
+    private final Runnable onClosed;
+    private final boolean binary;
+
+    private final ArrayDeque<Slot> queue = new ArrayDeque<>();
+    private final Map<String, Slot> queuedByKey = new HashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> ackedVersions = new ConcurrentHashMap<>();
+
+    SessionOutbox(WebSocketSession session, int capacity, Executor drainPool, Runnable onClosed) {
+        this(session, capacity, drainPool, onClosed, false);
+    }
+
+    SessionOutbox(WebSocketSession session, int capacity, Executor drainPool, Runnable onClosed, boolean binary) {
+        this.session = session;
+        this.capacity = capacity;
+        this.drainPool = drainPool;
+        this.onClosed = onClosed;
+        this.binary = binary;
+    }
+
+    /**
+     * Queues a frame without blocking; {@code conflationKey} may be null for frames that must not be merged
+     */
+    void offer(WebSocketMessage<?> frame, String conflationKey) {
+        synchronized (queue) {
+            Slot queued = conflationKey != null ? queuedByKey.get(conflationKey) : null;
+            if (queued != null) {
+                queued.frame = frame;
+            } else {
+                if (queue.size() >= capacity) {
+                    Slot oldest = queue.pollFirst();
+                    if (oldest.key != null) queuedByKey.remove(oldest.key);
+                    dropped.incrementAndGet();
+                }
+                Slot slot = new Slot(conflationKey, frame);
+                queue.addLast(slot);
+                if (conflationKey != null) queuedByKey.put(conflationKey, slot);
+            }
+        }
+        scheduleDrain();
+    }
+
+    /** Whether the client negotiated the binary sub-protocol for price frames */
+    boolean isBinary() {
+        return binary;
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** Topics this session subscribed to (maintained by the handler) */
+    Set<String> getTopics() {
+        return topics;
+    }
+
+    /** Last versioned-stream version the client acknowledged per stream key, or -1 */
+    long getAckedVersion(String stream) {
+        return ackedVersions.getOrDefault(stream, -1L);
+    }
+
+    void ack(String stream, long version) {
+        ackedVersions.put(stream, version);
+    }
+
+    WebSocketSession getSession() {
+        return session;
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            drainPool.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            WebSocketMessage<?> frame;
+            while ((frame = next()) != null) {
+                if (!session.isOpen()) {
+                    onClosed.run();
+                    return;
+                }
+                if (frame instanceof BinaryMessage shared) {
+                    frame = new BinaryMessage(shared.getPayload().duplicate(), shared.isLast());
+                }
+                session.sendMessage(frame);
+            }
+        } catch (Exception e) {
+            log.warn("❌ Failed to send to session {}: {}", session.getId(), e.getMessage());
+            try {
+                session.close(CloseStatus.SERVER_ERROR);
+            } catch (Exception ignored) {
+                // already closing
+            }
+            onClosed.run();
+            return;
+        } finally {
+            draining.set(false);
+        }
+        // A frame offered after the last poll but before draining was cleared would otherwise wait for the next offer
+        boolean pending;
+        synchronized (queue) {
+            pending = !queue.isEmpty();
+        }
+        if (pending) scheduleDrain();
+    }
+
+    private WebSocketMessage<?> next() {
+        synchronized (queue) {
+            Slot slot = queue.pollFirst();
+            if (slot == null) return null;
+            if (slot.key != null) queuedByKey.remove(slot.key);
+            return slot.frame;
+        }
+    }
+}
@@ -1,46 +1,68 @@
 package com.pxbt.dev.aiTradingCharts.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.lang.management.ManagementFactory;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class AIAnalysisResult {
-    private String symbol;
-    private String timeframe;
-    private double currentPrice;
-    private Map<String, PricePrediction> timeframePredictions;
-    private List<ChartPattern> chartPatterns;
-    private List<FibonacciTimeZone> fibonacciTimeZones;
-    private long timestamp;
-    private long systemUptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
-    private String wyckoffPhase;
-    private String wyckoffDetails;
-    private Map<String, WyckoffResult> wyckoffTimeframes = new java.util.HashMap<>();
-    private List<String> analysisLogs = new java.util.ArrayList<>();
+/**
+ * Immutable analysis snapshot: results are shared between the snapshot cache, broadcasts and WebSocket requests,
+ * so they are built once (builder / toBuilder) and never modified. Collections are exposed read-only.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class AIAnalysisResult {
+    // Signal thresholds calibrated to realistic confidence range (0.45–0.75) after TA + backtest bonuses.
+    public static final double STRONG_CHANGE_PERCENT = 2.0;
+    public static final double CHANGE_PERCENT = 0.5;
+    public static final double STRONG_CONFIDENCE = 0.60;
+    public static final double CONFIDENCE = 0.50;
 
-    // CONSTRUCTOR for backward compatibility
-    public AIAnalysisResult(String symbol, double currentPrice, Map<String, PricePrediction> timeframePredictions,
-            List<ChartPattern> chartPatterns, List<FibonacciTimeZone> fibonacciTimeZones, long timestamp) {
+    private final String symbol;
+    private final String timeframe;
+    private final double currentPrice;
+    private final Map<String, PricePrediction> timeframePredictions;
+    private final List<ChartPattern> chartPatterns;
+    private final List<FibonacciTimeZone> fibonacciTimeZones;
+    private final long timestamp;
+    private final long systemUptimeMs;
+    private final String wyckoffPhase;
+    private final String wyckoffDetails;
+    private final Map<String, WyckoffResult> wyckoffTimeframes;
+    private final List<String> analysisLogs;
+
+    @Builder(toBuilder = true)
+    private AIAnalysisResult(String symbol, String timeframe, double currentPrice,
+                             Map<String, PricePrediction> timeframePredictions, List<ChartPattern> chartPatterns,
+                             List<FibonacciTimeZone> fibonacciTimeZones, long timestamp, Long systemUptimeMs,
+                             String wyckoffPhase, String wyckoffDetails, Map<String, WyckoffResult> wyckoffTimeframes,
+                             List<String> analysisLogs) {
         this.symbol = symbol;
+        this.timeframe = timeframe;
         this.currentPrice = currentPrice;
-        this.timeframePredictions = timeframePredictions;
-        this.chartPatterns = chartPatterns;
-        this.fibonacciTimeZones = fibonacciTimeZones;
-        this.wyckoffPhase = "ANALYZING";
-        this.wyckoffDetails = "Initializing market structure analysis...";
-        this.wyckoffTimeframes = new java.util.HashMap<>();
+        this.timeframePredictions = timeframePredictions != null ? Collections.unmodifiableMap(timeframePredictions) : null;
+        this.chartPatterns = chartPatterns != null ? Collections.unmodifiableList(chartPatterns) : null;
+        this.fibonacciTimeZones = fibonacciTimeZones != null ? Collections.unmodifiableList(fibonacciTimeZones) : null;
         this.timestamp = timestamp;
-        this.timeframe = "1d"; // Default timeframe
-        this.systemUptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        this.systemUptimeMs = systemUptimeMs != null ? systemUptimeMs : ManagementFactory.getRuntimeMXBean().getUptime();
+        this.wyckoffPhase = wyckoffPhase;
+        this.wyckoffDetails = wyckoffDetails;
+        this.wyckoffTimeframes = wyckoffTimeframes != null ? Collections.unmodifiableMap(wyckoffTimeframes) : Map.of();
+        this.analysisLogs = analysisLogs != null ? Collections.unmodifiableList(analysisLogs) : List.of();
+    }
+
+    /**
+     * Live-price overlay: same snapshot (collections shared, not copied) at a different current price
+     */
+    public AIAnalysisResult withCurrentPrice(double price) {
+        if (price == currentPrice) return this;
+        return toBuilder().currentPrice(price).build();
     }
 
     // Existing custom methods
@@ -75,14 +97,13 @@ public class AIAnalysisResult {
         double changePercent = ((prediction.getPredictedPrice() - currentPrice) / currentPrice) * 100;
         double confidence = prediction.getConfidence();
 
-        // Thresholds calibrated to realistic confidence range (0.45–0.75) after TA + backtest bonuses.
-        if (changePercent > 2.0 && confidence > 0.60)
+        if (changePercent > STRONG_CHANGE_PERCENT && confidence > STRONG_CONFIDENCE)
             return "STRONG_BUY";
-        if (changePercent > 0.5 && confidence > 0.50)
+        if (changePercent > CHANGE_PERCENT && confidence > CONFIDENCE)
             return "BUY";
-        if (changePercent < -2.0 && confidence > 0.60)
+        if (changePercent < -STRONG_CHANGE_PERCENT && confidence > STRONG_CONFIDENCE)
             return "STRONG_SELL";
-        if (changePercent < -0.5 && confidence > 0.50)
+        if (changePercent < -CHANGE_PERCENT && confidence > CONFIDENCE)
             return "SELL";
         return "HOLD";
     }
@@ -24,6 +24,7 @@ public class AccuracyRecord {
     @JsonProperty("isDirectionMatch")
     private boolean isDirectionMatch;
     private String modelName;
+    private double confidence; // Prediction confidence (0.0–1.0) at prediction time
     @JsonProperty("isEvaluated")
     private boolean isEvaluated; // Set to true when ActualPrice is known and compared
 }
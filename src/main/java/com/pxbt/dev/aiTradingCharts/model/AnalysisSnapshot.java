@@ -0,0 +1,47 @@
+package com.pxbt.dev.aiTradingCharts.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A published analysis: the computed result with a live-price overlay, plus its JSON. The JSON is serialised
+ * on first use and then reused by every broadcast and request sending this snapshot.
+ */
+public final class AnalysisSnapshot {
+
+    private final AIAnalysisResult base;
+    private final AIAnalysisResult result;
+    private volatile String json;
+
+    public AnalysisSnapshot(AIAnalysisResult base) {
+        this(base, base);
+    }
+
+    private AnalysisSnapshot(AIAnalysisResult base, AIAnalysisResult result) {
+        this.base = base;
+        this.result = result;
+    }
+
+    /**
+     * Same analysis at the live price; returns this snapshot (and its JSON) when the price is unchanged
+     */
+    public AnalysisSnapshot withLivePrice(double price) {
+        if (price <= 0 || price == result.getCurrentPrice()) return this;
+        return new AnalysisSnapshot(base, base.withCurrentPrice(price));
+    }
+
+    public String toJson(ObjectMapper mapper) throws JsonProcessingException {
+        String serialised = json;
+        if (serialised == null) {
+            // Racing writers produce identical strings, so last-one-wins is fine
+            serialised = mapper.writeValueAsString(result);
+            json = serialised;
+        }
+        return serialised;
+    }
+
+    /** The computed result this snapshot overlays a live price on */
+    public AIAnalysisResult getBase() { return base; }
+
+    public AIAnalysisResult getResult() { return result; }
+}
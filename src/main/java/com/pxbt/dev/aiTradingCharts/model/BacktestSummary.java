@@ -17,4 +17,7 @@ public class BacktestSummary {
     private double winRate; // Percentage
     private double avgError; // Absolute percentage error
     private double latestActualPrice;
+    private int rollingWindow; // Evaluated records in the rolling window
+    private double rollingWinRate; // Percentage over the rolling window
+    private double rollingAvgError;
 }
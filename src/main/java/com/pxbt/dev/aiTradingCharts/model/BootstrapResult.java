@@ -0,0 +1,27 @@
+package com.pxbt.dev.aiTradingCharts.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BootstrapResult {
+    private String symbol;
+    private String timeframe;
+    private int samples;          // Evaluated predictions resampled
+    private int resamples;
+    private int blockLength;
+    private double confidenceLevel; // e.g. 0.95
+
+    private double winRate;       // Percentage, point estimate
+    private double winRateLow;    // Percentage, interval bounds
+    private double winRateHigh;
+    private double avgError;      // Absolute percentage error
+    private double avgErrorLow;
+    private double avgErrorHigh;
+    private long elapsedMs;
+}
@@ -7,12 +7,20 @@ import java.io.Serializable;
 @Data
 @AllArgsConstructor
 public class ModelPerformance implements Serializable {
+    // Unchanged when fields were added: performance files saved before then still load, new fields read as 0
     private static final long serialVersionUID = 1L;
     private double r2;              // R-squared score
     private double rmse;            // Root Mean Squared Error
     private double mae;             // Mean Absolute Error
     private int trainingSampleSize; // Number of training samples
     private int testSampleSize;     // Number of test samples
+    private double directionalAccuracy;  // Fraction of test rows with the right sign
+    private double calibrationSlope;     // Actual vs predicted fit, 1.0 = calibrated
+    private double calibrationIntercept;
+
+    public ModelPerformance(double r2, double rmse, double mae, int trainingSampleSize, int testSampleSize) {
+        this(r2, rmse, mae, trainingSampleSize, testSampleSize, 0, 0, 0);
+    }
 
     public boolean isAcceptable() {
         return r2 > 0.3 && rmse < 0.05;
@@ -24,4 +32,4 @@ public class ModelPerformance implements Serializable {
         if (r2 > 0.2) return "FAIR";
         return "POOR";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.pxbt.dev.aiTradingCharts.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SimulationResult {
+    private String symbol; // Comma-separated when aggregated over several symbols
+    private String timeframe;
+
+    // Signal cut-offs
+    private double changePercent;
+    private double strongChangePercent;
+    private double confidence;
+    private double strongConfidence;
+
+    // Costs and sizing
+    private double feeBps;
+    private double slippageBps;
+    private double positionSize;
+    private double strongPositionSize;
+    private boolean allowShort;
+
+    private int samples;
+    private double totalReturn; // Percentage
+    private double maxDrawdown; // Percentage of peak equity
+    private double sharpe;      // Annualised
+    private int trades;
+    private double exposure;    // Percentage of periods in the market
+    private double winRate;     // Percentage of in-market periods that made money
+
+    private long[] timestamps;
+    private double[] equityCurve; // Equity multiple per step, starts from 1.0
+}
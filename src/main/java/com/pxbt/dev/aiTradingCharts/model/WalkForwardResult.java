@@ -0,0 +1,40 @@
+package com.pxbt.dev.aiTradingCharts.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalkForwardResult {
+    private String symbol;
+    private String timeframe;
+    private String auditTimeframe; // Partition the fold predictions were written to (e.g. "1d:wf")
+    private int retrainEvery;
+    private int parallelism;
+    private long elapsedMs;
+    private List<Fold> folds;
+    private BacktestSummary aggregate;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Fold {
+        private int fold;
+        private long trainFrom;
+        private long trainTo;
+        private long testFrom;
+        private long testTo;
+        private int trainSamples;
+        private int testSamples;
+        private String modelName;
+        private double winRate; // Percentage
+        private double avgError; // Absolute percentage error
+    }
+}
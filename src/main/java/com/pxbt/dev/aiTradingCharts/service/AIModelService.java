@@ -1,10 +1,10 @@
 package com.pxbt.dev.aiTradingCharts.service;
 
 import com.pxbt.dev.aiTradingCharts.model.ModelPerformance;
+import com.pxbt.dev.aiTradingCharts.util.RegressionMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import weka.classifiers.Classifier;
-import weka.classifiers.Evaluation;
 import weka.classifiers.functions.LinearRegression;
 import weka.classifiers.trees.M5P;
 import weka.classifiers.trees.RandomForest;
@@ -78,10 +78,11 @@ public class AIModelService {
             dataset = null;
 
             // Train multiple models and select best
-            Classifier bestModel = trainAndSelectBestModel(trainData, testData, timeframe);
+            ScoredModel best = trainAndSelectBestModel(trainData, testData, timeframe);
 
-            if (bestModel != null) {
-                ModelPerformance performance = evaluateModel(bestModel, testData, trainSize);
+            if (best != null) {
+                Classifier bestModel = best.model();
+                ModelPerformance performance = toPerformance(best.metrics(), trainSize);
 
                 // Release training structures before storing model
                 trainData = null;
@@ -93,8 +94,9 @@ public class AIModelService {
 
                 saveModelToDisk(key);
 
-                log.info("✅ Model trained & saved for {} - R2: {}, RMSE: {}",
-                        key, String.format("%.4f", performance.getR2()), String.format("%.4f", performance.getRmse()));
+                log.info("✅ Model trained & saved for {} - R2: {}, RMSE: {}, Direction: {}%",
+                        key, String.format("%.4f", performance.getR2()), String.format("%.4f", performance.getRmse()),
+                        String.format("%.1f", performance.getDirectionalAccuracy() * 100));
             } else {
                 trainData = null;
                 testData = null;
@@ -106,6 +108,81 @@ public class AIModelService {
         }
     }
 
+    /**
+     * A model trained outside the serving maps (walk-forward folds). Never persisted or served.
+     */
+    public static final class DetachedModel {
+        private final Classifier model;
+        private final Instances header;
+        private final ModelPerformance performance;
+
+        private DetachedModel(Classifier model, Instances header, ModelPerformance performance) {
+            this.model = model;
+            this.header = header;
+            this.performance = performance;
+        }
+
+        public String getName() {
+            return model.getClass().getSimpleName();
+        }
+
+        /** Held-out scores of the model, as a serving model's {@link #getModelPerformance} */
+        public ModelPerformance getPerformance() {
+            return performance;
+        }
+
+        public double predict(double[] features) throws Exception {
+            double[] instanceValues = Arrays.copyOf(features, features.length + 1);
+            instanceValues[features.length] = weka.core.Utils.missingValue();
+            DenseInstance instance = new DenseInstance(1.0, instanceValues);
+            instance.setDataset(header);
+            return Math.max(-0.2, Math.min(0.2, model.classifyInstance(instance)));
+        }
+    }
+
+    /**
+     * Train with the same model selection as {@link #trainModel} on the given rows of a shared feature
+     * matrix, without touching the serving models. Safe to call concurrently.
+     *
+     * @return null if there are too few rows or no model could be fitted
+     */
+    public DetachedModel trainDetached(String timeframe, double[][] features, double[] targets, int[] rows) {
+        if (rows.length < MIN_TRAINING_SAMPLES) {
+            return null;
+        }
+
+        int featureCount = features[rows[0]].length;
+        ArrayList<Attribute> attributes = new ArrayList<>(featureCount + 1);
+        for (int i = 0; i < featureCount; i++) {
+            attributes.add(new Attribute("feature_" + i));
+        }
+        attributes.add(new Attribute("price_change"));
+
+        Instances dataset = new Instances("CryptoPrice_" + timeframe, attributes, rows.length);
+        dataset.setClassIndex(dataset.numAttributes() - 1);
+        for (int row : rows) {
+            double[] instanceValues = Arrays.copyOf(features[row], featureCount + 1);
+            instanceValues[featureCount] = targets[row];
+            dataset.add(new DenseInstance(1.0, instanceValues));
+        }
+
+        int trainSize = (int) (dataset.size() * TRAINING_RATIO);
+        Instances trainData = new Instances(dataset, 0, trainSize);
+        Instances testData = new Instances(dataset, trainSize, dataset.size() - trainSize);
+        ScoredModel best = trainAndSelectBestModel(trainData, testData, timeframe);
+        return best != null
+                ? new DetachedModel(best.model(), new Instances(dataset, 0), toPerformance(best.metrics(), trainData.size()))
+                : null;
+    }
+
+    /**
+     * Confidence of a detached model's prediction, scored as {@link #predictWithConfidence} scores a serving
+     * model's but without the live backtest feedback, which was measured after the model's training window
+     */
+    public double detachedConfidence(String symbol, String timeframe, DetachedModel model, double prediction) {
+        return calculatePredictionConfidence(symbol, prediction, model.getPerformance(), timeframe, null);
+    }
+
     private Instances createDataset(List<double[]> featuresList, List<Double> targets, String symbol, String timeframe) {
         // Create attributes
         ArrayList<Attribute> attributes = new ArrayList<>();
@@ -145,18 +222,28 @@ public class AIModelService {
         return dataset;
     }
 
-    private Classifier trainAndSelectBestModel(Instances trainData, Instances testData, String timeframe) {
-        Classifier bestModel = null;
-        double bestScore = -Double.MAX_VALUE;
+    /**
+     * A fitted model and its scores on the held-out rows, kept so the winner is never re-scored
+     */
+    private record ScoredModel(Classifier model, RegressionMetrics metrics) {
+    }
+
+    private ScoredModel trainAndSelectBestModel(Instances trainData, Instances testData, String timeframe) {
+        ScoredModel best = null;
+
+        // Class values read once and shared by every candidate
+        double[] actuals = new double[testData.size()];
+        for (int i = 0; i < actuals.length; i++) {
+            actuals[i] = testData.get(i).classValue();
+        }
 
         // 1. Linear Regression
         try {
             LinearRegression lr = new LinearRegression();
             lr.buildClassifier(trainData);
-            double score = calculateRSquared(lr, testData);
-            log.info("📊 Linear Regression R²: {}", String.format("%.4f", score));
-            bestModel = lr;
-            bestScore = score;
+            RegressionMetrics metrics = score(lr, testData, actuals);
+            log.info("📊 Linear Regression R²: {}", String.format("%.4f", metrics.r2()));
+            best = new ScoredModel(lr, metrics);
         } catch (Exception e) {
             log.warn("⚠️ Linear Regression failed: {}", e.getMessage());
         }
@@ -168,11 +255,10 @@ public class AIModelService {
             rf.setNumIterations(50);    // Raised from 10 — monitor memory
             rf.setMaxDepth(15);        // Raised from 8 — monitor memory
             rf.buildClassifier(trainData);
-            double score = calculateRSquared(rf, testData);
-            log.info("📊 Random Forest R²: {}", String.format("%.4f", score));
-            if (score > bestScore) {
-                bestModel = rf;
-                bestScore = score;
+            RegressionMetrics metrics = score(rf, testData, actuals);
+            log.info("📊 Random Forest R²: {}", String.format("%.4f", metrics.r2()));
+            if (best == null || metrics.r2() > best.metrics().r2()) {
+                best = new ScoredModel(rf, metrics);
             } else {
                 rf = null;
             }
@@ -185,72 +271,33 @@ public class AIModelService {
             M5P m5p = new M5P();
             m5p.setMinNumInstances(10);
             m5p.buildClassifier(trainData);
-            double score = calculateRSquared(m5p, testData);
-            log.info("📊 M5P R²: {}", String.format("%.4f", score));
-            if (score > bestScore) {
-                bestModel = m5p;
-                bestScore = score;
+            RegressionMetrics metrics = score(m5p, testData, actuals);
+            log.info("📊 M5P R²: {}", String.format("%.4f", metrics.r2()));
+            if (best == null || metrics.r2() > best.metrics().r2()) {
+                best = new ScoredModel(m5p, metrics);
             }
         } catch (Exception e) {
             log.warn("⚠️ M5P failed: {}", e.getMessage());
         }
 
-        return bestModel;
-    }
-
-    private Classifier selectBestModel(Map<String, Classifier> models, Map<String, Double> scores) {
-        if (scores.isEmpty())
-            return null;
-
-        return scores.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(entry -> {
-                    log.info("🏆 Best model: {} with R²: {}", entry.getKey(), entry.getValue());
-                    return models.get(entry.getKey());
-                })
-                .orElse(null);
-    }
-
-    private double calculateRSquared(Classifier model, Instances testData) throws Exception {
-        double ssTotal = 0;
-        double ssResidual = 0;
-        double mean = 0;
-
-        // Calculate mean
-        for (int i = 0; i < testData.size(); i++) {
-            mean += testData.get(i).classValue();
-        }
-        mean /= testData.size();
-
-        for (int i = 0; i < testData.size(); i++) {
-            double actual = testData.get(i).classValue();
-            double prediction = model.classifyInstance(testData.get(i));
-
-            ssTotal += Math.pow(actual - mean, 2);
-            ssResidual += Math.pow(actual - prediction, 2);
-        }
-
-        return 1 - (ssResidual / ssTotal);
+        return best;
     }
 
     /**
-     * Evaluate model performance using Weka's Evaluation class
+     * Classify every test row exactly once and accumulate all scores together
      */
-    private ModelPerformance evaluateModel(Classifier model, Instances testData, int trainSize) {
-        try {
-            Evaluation eval = new Evaluation(testData);
-            eval.evaluateModel(model, testData);
-
-            double r2 = calculateRSquared(model, testData);
-            double rmse = eval.rootMeanSquaredError();
-            double mae = eval.meanAbsoluteError();
-
-            return new ModelPerformance(Math.max(0, r2), rmse, mae, trainSize, testData.size());
-
-        } catch (Exception e) {
-            log.error("❌ Model evaluation failed: {}", e.getMessage());
-            return new ModelPerformance(0.0, 1.0, 1.0, trainSize, testData.size());
+    private RegressionMetrics score(Classifier model, Instances testData, double[] actuals) throws Exception {
+        RegressionMetrics metrics = new RegressionMetrics();
+        for (int i = 0; i < actuals.length; i++) {
+            metrics.add(actuals[i], model.classifyInstance(testData.get(i)));
         }
+        return metrics;
+    }
+
+    private ModelPerformance toPerformance(RegressionMetrics metrics, int trainSize) {
+        return new ModelPerformance(Math.max(0, metrics.r2()), metrics.rmse(), metrics.mae(),
+                trainSize, metrics.count(), metrics.directionalAccuracy(),
+                metrics.calibrationSlope(), metrics.calibrationIntercept());
     }
 
     /**
@@ -316,7 +363,7 @@ public class AIModelService {
             double prediction = predictPriceChange(symbol, features, timeframe);
 
             ModelPerformance perf = modelPerformance.get(key);
-            double confidence = calculatePredictionConfidence(symbol, prediction, perf, timeframe);
+            double confidence = calculatePredictionConfidence(symbol, prediction, perf, timeframe, backtestAccuracy.get(key));
 
             result.put("prediction", prediction);
             result.put("confidence", confidence);
@@ -335,7 +382,8 @@ public class AIModelService {
         }
     }
 
-    private double calculatePredictionConfidence(String symbol, double prediction, ModelPerformance perf, String timeframe) {
+    private double calculatePredictionConfidence(String symbol, double prediction, ModelPerformance perf, String timeframe,
+                                                 Double btAcc) {
         if (perf == null)
             return 0.15 + (Math.abs(symbol.hashCode() % 8) / 100.0); // Distinct fallback floor (15-22%)
 
@@ -373,7 +421,6 @@ public class AIModelService {
 
         // Backtest directional accuracy feedback:
         // 50% = random = neutral, 60% = +0.05 bonus, 40% = -0.05 penalty
-        Double btAcc = backtestAccuracy.get(generateKey(symbol, timeframe));
         if (btAcc != null) {
             double btBonus = (btAcc - 0.5) * 0.5; // maps [0.3, 0.7] → [-0.10, +0.10]
             confidence += btBonus;
@@ -452,6 +499,31 @@ public class AIModelService {
         return modelTrainingTimes.get(timeframe);
     }
 
+    /**
+     * Identifies the model currently serving predictions: its training time, or 0 when predictions
+     * fall back to technicals. Changes whenever the model is retrained, restored or invalidated.
+     */
+    public long getModelVersion(String symbol, String timeframe) {
+        String key = generateKey(symbol, timeframe);
+        return trainedModels.containsKey(key) ? modelTrainingTimes.getOrDefault(key, 0L) : 0L;
+    }
+
+    /**
+     * Kind of model serving predictions (e.g. RandomForest), or TECHNICAL when predictions fall back to
+     * technicals. Unlike {@link #getModelVersion}, a routine retrain of the same kind of model doesn't change it.
+     */
+    public String getModelType(String symbol, String timeframe) {
+        Classifier model = trainedModels.get(generateKey(symbol, timeframe));
+        return model != null ? model.getClass().getSimpleName() : "TECHNICAL";
+    }
+
+    /**
+     * Last directional accuracy recorded by BacktestService, or null before the first run
+     */
+    public Double getBacktestAccuracy(String symbol, String timeframe) {
+        return backtestAccuracy.get(generateKey(symbol, timeframe));
+    }
+
     public Long getOverallLastTrainingTime() {
         return modelTrainingTimes.values().stream()
                 .max(Long::compare)
@@ -0,0 +1,58 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.BootstrapResult;
+import com.pxbt.dev.aiTradingCharts.util.BlockBootstrap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Confidence intervals for backtest win rate and error, by block bootstrap over the stored evaluated records
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccuracyBootstrapService {
+
+    private final AccuracyPersistenceService accuracyPersistenceService;
+
+    public static final int DEFAULT_RESAMPLES = 20_000;
+    public static final double DEFAULT_CONFIDENCE_LEVEL = 0.95;
+    private static final long SEED = 0x5EED_B007L; // Fixed so the same records always give the same interval
+
+    public BootstrapResult bootstrap(String symbol, String timeframe) {
+        return bootstrap(symbol, timeframe, DEFAULT_RESAMPLES, DEFAULT_CONFIDENCE_LEVEL, 0);
+    }
+
+    /**
+     * blockLength <= 0 picks one from the sample size
+     */
+    public BootstrapResult bootstrap(String symbol, String timeframe, int resamples, double confidenceLevel, int blockLength) {
+        long started = System.currentTimeMillis();
+        BlockBootstrap.Outcomes outcomes = accuracyPersistenceService.getOutcomes(symbol, timeframe);
+        BlockBootstrap.Result r = BlockBootstrap.run(outcomes, resamples, confidenceLevel, blockLength,
+                SEED, ForkJoinPool.commonPool());
+        long elapsed = System.currentTimeMillis() - started;
+
+        log.debug("🎲 Bootstrapped {} {}: {} samples x {} resamples (block {}) in {}ms",
+                symbol, timeframe, r.samples, r.resamples, r.blockLength, elapsed);
+
+        return BootstrapResult.builder()
+                .symbol(symbol)
+                .timeframe(timeframe)
+                .samples(r.samples)
+                .resamples(r.resamples)
+                .blockLength(r.blockLength)
+                .confidenceLevel(r.confidenceLevel)
+                .winRate(r.winRate * 100)
+                .winRateLow(r.winRateLow * 100)
+                .winRateHigh(r.winRateHigh * 100)
+                .avgError(r.avgError * 100)
+                .avgErrorLow(r.avgErrorLow * 100)
+                .avgErrorHigh(r.avgErrorHigh * 100)
+                .elapsedMs(elapsed)
+                .build();
+    }
+}
@@ -1,21 +1,36 @@
 package com.pxbt.dev.aiTradingCharts.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pxbt.dev.aiTradingCharts.model.AccuracyRecord;
 import com.pxbt.dev.aiTradingCharts.model.BacktestSummary;
+import com.pxbt.dev.aiTradingCharts.util.AccuracyColumns;
+import com.pxbt.dev.aiTradingCharts.util.BlockBootstrap;
+import com.pxbt.dev.aiTradingCharts.util.StrategySimulator;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * Accuracy audit log, partitioned per (symbol, timeframe) into append-only NDJSON files.
+ * Writes append only the new lines; clears append a tombstone and are folded away by
+ * background compaction, which swaps the partition file atomically.
+ * In memory each partition is an {@link AccuracyColumns} with incrementally maintained summaries.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -24,102 +39,462 @@ public class AccuracyPersistenceService {
     private final String DATA_DIR = new java.io.File("/historical_data").exists()
             ? "/historical_data/backtest_data/"
             : "backtest_data/";
-    private final String FILE_NAME = DATA_DIR + "accuracy_audit.json";
-    
-    private final List<AccuracyRecord> auditLogs = new CopyOnWriteArrayList<>();
+    private final String LEGACY_FILE_NAME = DATA_DIR + "accuracy_audit.json";
+    private final String AUDIT_DIR = DATA_DIR + "audit/";
+    private static final String PARTITION_EXT = ".ndjson";
+
+    // Tombstone: drop every evaluated record that precedes it in the log
+    private static final String OP_CLEAR_EVALUATED = "CLEAR_EVALUATED";
+
+    // Records copied out per partition lock hold while streaming
+    private static final int SCAN_CHUNK = 512;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    private static class Partition {
+        final String symbol;
+        final String timeframe;
+        AccuracyColumns columns;
+        int logLines; // lines currently in the file, live or not
+
+        Partition(String symbol, String timeframe) {
+            this.symbol = symbol;
+            this.timeframe = timeframe;
+            this.columns = new AccuracyColumns(symbol, timeframe, 64);
+        }
+
+        boolean needsCompaction() {
+            return logLines > columns.size();
+        }
+    }
 
     @PostConstruct
     public void init() {
-        File dir = new File(DATA_DIR);
+        File dir = new File(AUDIT_DIR);
         if (!dir.exists()) dir.mkdirs();
         loadFromDisk();
     }
 
-    public synchronized void recordPrediction(AccuracyRecord record) {
-        auditLogs.add(record);
-        saveToDisk();
+    public void recordPrediction(AccuracyRecord record) {
+        recordBatch(List.of(record));
     }
 
-    public synchronized void recordBatch(List<AccuracyRecord> records) {
-        auditLogs.addAll(records);
-        saveToDisk();
+    public void recordBatch(List<AccuracyRecord> records) {
+        Map<String, List<AccuracyRecord>> byPartition = records.stream()
+                .collect(Collectors.groupingBy(r -> key(r.getSymbol(), r.getTimeframe()), LinkedHashMap::new, Collectors.toList()));
+
+        byPartition.forEach((key, batch) -> {
+            Partition partition = partition(batch.get(0).getSymbol(), batch.get(0).getTimeframe());
+            synchronized (partition) {
+                if (appendLines(partition, batch, null)) {
+                    batch.forEach(partition.columns::add);
+                }
+            }
+        });
     }
 
     public List<AccuracyRecord> getRecords(String symbol, String timeframe) {
-        return auditLogs.stream()
-                .filter(r -> r.getSymbol().equalsIgnoreCase(symbol) && r.getTimeframe().equalsIgnoreCase(timeframe))
-                .collect(Collectors.toList());
+        Partition partition = partitions.get(key(symbol, timeframe));
+        if (partition == null) return new ArrayList<>();
+        synchronized (partition) {
+            return materialise(partition.columns, new ArrayList<>(partition.columns.size()));
+        }
     }
 
+    /**
+     * O(1): read straight from the partition's running totals
+     */
     public BacktestSummary getSummary(String symbol, String timeframe) {
-        List<AccuracyRecord> records = getRecords(symbol, timeframe);
-        List<AccuracyRecord> evaluated = records.stream().filter(AccuracyRecord::isEvaluated).collect(Collectors.toList());
-        List<AccuracyRecord> pending = records.stream().filter(r -> !r.isEvaluated()).collect(Collectors.toList());
-
-        if (evaluated.isEmpty()) {
-            return BacktestSummary.builder()
-                    .symbol(symbol)
-                    .timeframe(timeframe)
-                    .totalEvaluated(0)
-                    .totalPending(pending.size())
-                    .winRate(0)
-                    .avgError(0)
+        BacktestSummary.BacktestSummaryBuilder summary = BacktestSummary.builder()
+                .symbol(symbol)
+                .timeframe(timeframe);
+
+        Partition partition = partitions.get(key(symbol, timeframe));
+        if (partition == null) {
+            return summary.build();
+        }
+        synchronized (partition) {
+            AccuracyColumns c = partition.columns;
+            return summary
+                    .totalEvaluated(c.evaluatedCount())
+                    .totalPending(c.pendingCount())
+                    .winRate(c.winRate())
+                    .avgError(c.avgError())
+                    .latestActualPrice(c.latestActualPrice())
+                    .rollingWindow(c.rollingCount())
+                    .rollingWinRate(c.rollingWinRate())
+                    .rollingAvgError(c.rollingAvgError())
                     .build();
         }
+    }
 
-        long wins = evaluated.stream().filter(AccuracyRecord::isDirectionMatch).count();
-        double winRate = (wins * 100.0) / evaluated.size();
+    public List<AccuracyRecord> getAllRecords() {
+        List<AccuracyRecord> all = new ArrayList<>();
+        for (String key : new TreeSet<>(partitions.keySet())) {
+            Partition partition = partitions.get(key);
+            synchronized (partition) {
+                materialise(partition.columns, all);
+            }
+        }
+        return all;
+    }
 
-        double totalError = evaluated.stream()
-                .mapToDouble(r -> Math.abs(r.getPredictedPrice() - r.getActualPrice()) / r.getActualPrice())
-                .sum();
-        double avgError = (totalError * 100.0) / evaluated.size();
+    public StrategySimulator.Series getSignalSeries(String symbol, String timeframe) {
+        Partition partition = partitions.get(key(symbol, timeframe));
+        if (partition == null) {
+            return new StrategySimulator.Series(new long[0], new double[0], new double[0], new double[0]);
+        }
+        synchronized (partition) {
+            return partition.columns.toSignalSeries();
+        }
+    }
 
-        double latestActual = evaluated.get(evaluated.size() - 1).getActualPrice();
+    public BlockBootstrap.Outcomes getOutcomes(String symbol, String timeframe) {
+        Partition partition = partitions.get(key(symbol, timeframe));
+        if (partition == null) {
+            return new BlockBootstrap.Outcomes(new double[0], new double[0]);
+        }
+        synchronized (partition) {
+            return partition.columns.toOutcomes();
+        }
+    }
 
-        return BacktestSummary.builder()
-                .symbol(symbol)
-                .timeframe(timeframe)
-                .totalEvaluated(evaluated.size())
-                .totalPending(pending.size())
-                .winRate(winRate)
-                .avgError(avgError)
-                .latestActualPrice(latestActual)
-                .build();
+    public boolean hasRecords(String symbol, String timeframe) {
+        return partitions.values().stream().anyMatch(p -> matches(p, symbol, timeframe) && !p.columns.isEmpty());
     }
 
-    public List<AccuracyRecord> getAllRecords() {
-        return new ArrayList<>(auditLogs);
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(AccuracyRecord record) throws IOException;
+    }
+
+    /**
+     * Stream records in prediction-time order without materialising the result. Partitions are visited in
+     * key order; a null symbol or timeframe matches all. Only {@link #SCAN_CHUNK} records are copied per
+     * lock hold, so memory stays constant however large the pull.
+     *
+     * @param cursor opaque position from a previous page, or null to start at the beginning
+     * @return cursor for the next page, or null when the scan is exhausted
+     * @throws IllegalArgumentException for a malformed cursor
+     */
+    public String scanRecords(String symbol, String timeframe, long from, long to, boolean descending,
+                              boolean evaluatedOnly, String cursor, int limit, RecordSink sink) throws IOException {
+        ScanPosition position = ScanPosition.decode(cursor);
+        List<String> keys = partitions.entrySet().stream()
+                .filter(e -> matches(e.getValue(), symbol, timeframe))
+                .map(Map.Entry::getKey)
+                .sorted()
+                .collect(Collectors.toList());
+
+        int remaining = limit;
+        for (String key : keys) {
+            if (position != null && key.compareTo(position.key) < 0) continue;
+            ScanPosition resume = position != null && key.equals(position.key) ? position : null;
+            position = null;
+            if (remaining == 0) {
+                return (resume != null ? resume : ScanPosition.start(key, descending)).encode();
+            }
+
+            Partition partition = partitions.get(key);
+            List<AccuracyRecord> chunk = new ArrayList<>(Math.min(SCAN_CHUNK, remaining));
+            while (true) {
+                chunk.clear();
+                synchronized (partition) {
+                    resume = scanChunk(key, partition.columns, from, to, descending, evaluatedOnly,
+                            resume, Math.min(SCAN_CHUNK, remaining), chunk);
+                }
+                for (AccuracyRecord record : chunk) {
+                    sink.accept(record);
+                }
+                remaining -= chunk.size();
+                if (resume == null) break;
+                if (remaining == 0) return resume.encode();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #scanRecords}
+     */
+    public void validateCursor(String cursor) {
+        ScanPosition.decode(cursor);
+    }
+
+    /**
+     * Copy up to {@code max} matching rows starting at {@code resume}. Caller holds the partition lock.
+     *
+     * @return position after the last visited row, or null if the partition has no more rows in range
+     */
+    private static ScanPosition scanChunk(String key, AccuracyColumns c, long from, long to, boolean descending,
+                                          boolean evaluatedOnly, ScanPosition resume, int max, List<AccuracyRecord> out) {
+        int lo = c.lowerBound(from);
+        int hi = to == Long.MAX_VALUE ? c.size() : c.upperBound(to); // rows [lo, hi) are in range
+        int i;
+        if (resume == null) {
+            i = descending ? hi - 1 : lo;
+        } else {
+            i = descending
+                    ? Math.min(hi - 1, c.upperBound(resume.ts) - 1 - resume.skip)
+                    : Math.max(lo, c.lowerBound(resume.ts) + resume.skip);
+        }
+
+        int step = descending ? -1 : 1;
+        for (; i >= lo && i < hi; i += step) {
+            if (out.size() == max) {
+                return ScanPosition.before(key, c, i - step, descending);
+            }
+            if (!evaluatedOnly || c.isEvaluated(i)) {
+                out.add(c.toRecord(i));
+            }
+        }
+        return null;
     }
 
-    public synchronized void clearBacktestRecords(String symbol, String timeframe) {
-        auditLogs.removeIf(r ->
-            r.getSymbol().equalsIgnoreCase(symbol) &&
-            r.getTimeframe().equalsIgnoreCase(timeframe) &&
-            r.isEvaluated());
-        saveToDisk();
+    private static boolean matches(Partition partition, String symbol, String timeframe) {
+        return (symbol == null || partition.symbol.equalsIgnoreCase(symbol))
+                && (timeframe == null || partition.timeframe.equalsIgnoreCase(timeframe));
+    }
+
+    /**
+     * Resume point: the partition plus the number of rows sharing {@code ts} already visited,
+     * so ties on prediction time never repeat or drop records.
+     */
+    private record ScanPosition(String key, long ts, int skip) {
+
+        static ScanPosition start(String key, boolean descending) {
+            return new ScanPosition(key, descending ? Long.MAX_VALUE : Long.MIN_VALUE, 0);
+        }
+
+        static ScanPosition before(String key, AccuracyColumns c, int lastVisited, boolean descending) {
+            long ts = c.predictionTime(lastVisited);
+            int skip = descending ? c.upperBound(ts) - lastVisited : lastVisited - c.lowerBound(ts) + 1;
+            return new ScanPosition(key, ts, skip);
+        }
+
+        String encode() {
+            String raw = key + "|" + ts + "|" + skip;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ScanPosition decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int second = raw.lastIndexOf('|');
+                int first = raw.lastIndexOf('|', second - 1);
+                return new ScanPosition(raw.substring(0, first),
+                        Long.parseLong(raw.substring(first + 1, second)),
+                        Integer.parseInt(raw.substring(second + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid audit cursor");
+            }
+        }
+    }
+
+    /**
+     * Sort once up front so every add takes the in-order O(1) path
+     */
+    private static AccuracyColumns columnsOf(String symbol, String timeframe, List<AccuracyRecord> records) {
+        List<AccuracyRecord> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparingLong(AccuracyRecord::getPredictionTime));
+        AccuracyColumns columns = new AccuracyColumns(symbol, timeframe, sorted.size());
+        sorted.forEach(columns::add);
+        return columns;
+    }
+
+    private static List<AccuracyRecord> materialise(AccuracyColumns columns, List<AccuracyRecord> out) {
+        for (int i = 0; i < columns.size(); i++) {
+            out.add(columns.toRecord(i));
+        }
+        return out;
+    }
+
+    /**
+     * O(1) on disk: a tombstone line is appended and compaction rewrites the file later
+     */
+    public void clearBacktestRecords(String symbol, String timeframe) {
+        Partition partition = partitions.get(key(symbol, timeframe));
+        if (partition == null) return;
+        synchronized (partition) {
+            if (appendLines(partition, List.of(), OP_CLEAR_EVALUATED)) {
+                partition.columns.removeEvaluated();
+            }
+        }
         log.info("🗑️ Cleared old backtest records for {} {}", symbol, timeframe);
     }
 
-    private void saveToDisk() {
+    /**
+     * Swap all evaluated records of a partition for {@code evaluated} in one atomic file move.
+     * Pending (live) predictions are kept.
+     */
+    public void replaceEvaluatedRecords(String symbol, String timeframe, List<AccuracyRecord> evaluated) {
+        Partition partition = partition(symbol, timeframe);
+        synchronized (partition) {
+            AccuracyColumns current = partition.columns;
+            List<AccuracyRecord> merged = new ArrayList<>(current.pendingCount() + evaluated.size());
+            for (int i = 0; i < current.size(); i++) {
+                if (!current.isEvaluated(i)) merged.add(current.toRecord(i));
+            }
+            merged.addAll(evaluated);
+            AccuracyColumns next = columnsOf(symbol, timeframe, merged);
+            if (writePartition(partition, next)) {
+                partition.columns = next;
+            }
+        }
+    }
+
+    /**
+     * Fold tombstones and superseded lines out of partition files
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000, initialDelay = 10 * 60 * 1000)
+    public void compact() {
+        int compacted = 0;
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                if (partition.needsCompaction() && writePartition(partition, partition.columns)) {
+                    compacted++;
+                }
+            }
+        }
+        if (compacted > 0) {
+            log.info("🧹 Compacted {} accuracy audit partitions", compacted);
+        }
+    }
+
+    // ===== STORAGE =====
+
+    private Partition partition(String symbol, String timeframe) {
+        return partitions.computeIfAbsent(key(symbol, timeframe), k -> new Partition(symbol, timeframe));
+    }
+
+    private static String key(String symbol, String timeframe) {
+        return symbol.toUpperCase() + "_" + timeframe.toLowerCase();
+    }
+
+    private Path partitionFile(Partition partition) {
+        String name = key(partition.symbol, partition.timeframe).replaceAll("[^A-Za-z0-9_.-]", "-");
+        return Paths.get(AUDIT_DIR + name + PARTITION_EXT);
+    }
+
+    /**
+     * Append records (and optionally a tombstone) to the partition log. Caller holds the partition lock.
+     */
+    private boolean appendLines(Partition partition, List<AccuracyRecord> records, String op) {
+        try (Writer out = Files.newBufferedWriter(partitionFile(partition), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (op != null) {
+                out.write("{\"op\":\"" + op + "\"}\n");
+                partition.logLines++;
+            }
+            for (AccuracyRecord record : records) {
+                out.write(objectMapper.writeValueAsString(record));
+                out.write('\n');
+            }
+            partition.logLines += records.size();
+            return true;
+        } catch (IOException e) {
+            log.error("❌ Failed to append accuracy audit {}: {}", partition.symbol, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Write a fresh partition file and atomically swap it in. Caller holds the partition lock.
+     */
+    private boolean writePartition(Partition partition, AccuracyColumns records) {
+        Path target = partitionFile(partition);
+        Path temp = Paths.get(target + ".tmp");
         try {
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(FILE_NAME), auditLogs);
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < records.size(); i++) {
+                    out.write(objectMapper.writeValueAsString(records.toRecord(i)));
+                    out.write('\n');
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            partition.logLines = records.size();
+            return true;
         } catch (IOException e) {
-            log.error("❌ Failed to save accuracy audit: {}", e.getMessage());
+            log.error("❌ Failed to write accuracy audit partition {}: {}", target.getFileName(), e.getMessage());
+            return false;
         }
     }
 
     private void loadFromDisk() {
-        File file = new File(FILE_NAME);
-        if (file.exists()) {
-            try {
-                List<AccuracyRecord> loaded = objectMapper.readValue(file, new TypeReference<List<AccuracyRecord>>() {});
-                auditLogs.clear();
-                auditLogs.addAll(loaded);
-                log.info("✅ Loaded {} historical accuracy records", auditLogs.size());
-            } catch (IOException e) {
-                log.error("❌ Failed to load accuracy audit: {}", e.getMessage());
+        File[] files = new File(AUDIT_DIR).listFiles((d, name) -> name.endsWith(PARTITION_EXT));
+        if (files == null || files.length == 0) {
+            migrateLegacyFile();
+            return;
+        }
+
+        int total = 0;
+        for (File file : files) {
+            total += replayPartition(file.toPath());
+        }
+        log.info("✅ Loaded {} historical accuracy records from {} partitions", total, files.length);
+    }
+
+    private int replayPartition(Path file) {
+        Partition partition = null;
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    log.warn("⚠️ Skipping torn line in {}", file.getFileName());
+                    continue;
+                }
+                lines++;
+                if (node.has("op")) {
+                    if (partition != null && OP_CLEAR_EVALUATED.equals(node.get("op").asText())) {
+                        partition.columns.removeEvaluated();
+                    }
+                    continue;
+                }
+                AccuracyRecord record = objectMapper.treeToValue(node, AccuracyRecord.class);
+                if (partition == null) {
+                    partition = partition(record.getSymbol(), record.getTimeframe());
+                }
+                partition.columns.add(record);
             }
+        } catch (IOException e) {
+            log.error("❌ Failed to load accuracy audit partition {}: {}", file.getFileName(), e.getMessage());
+        }
+        if (partition == null) return 0;
+        partition.logLines = lines;
+        return partition.columns.size();
+    }
+
+    /**
+     * One-off split of the old single pretty-printed accuracy_audit.json into partitions
+     */
+    private void migrateLegacyFile() {
+        File legacy = new File(LEGACY_FILE_NAME);
+        if (!legacy.exists()) return;
+        try {
+            List<AccuracyRecord> loaded = objectMapper.readValue(legacy, new TypeReference<List<AccuracyRecord>>() {});
+            Map<String, List<AccuracyRecord>> byPartition = loaded.stream()
+                    .collect(Collectors.groupingBy(r -> key(r.getSymbol(), r.getTimeframe()), LinkedHashMap::new, Collectors.toList()));
+            byPartition.values().forEach(records -> {
+                Partition partition = partition(records.get(0).getSymbol(), records.get(0).getTimeframe());
+                synchronized (partition) {
+                    partition.columns = columnsOf(partition.symbol, partition.timeframe, records);
+                    writePartition(partition, partition.columns);
+                }
+            });
+            log.info("✅ Migrated {} accuracy records from {} into {} partitions",
+                    loaded.size(), legacy.getName(), byPartition.size());
+        } catch (IOException e) {
+            log.error("❌ Failed to migrate accuracy audit: {}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,132 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.model.PriceUpdate;
+import com.pxbt.dev.aiTradingCharts.util.AnalysisContext;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
+import com.pxbt.dev.aiTradingCharts.util.IncrementalIndicators;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis contexts cached per (symbol, timeframe, candle window). The window's first and last candle, its size
+ * and the last candle's close and volume are part of the key, so a new or revised candle never serves a stale
+ * context.
+ *
+ * Benchmark indicators come from one streaming state per (input kind, symbol, timeframe) holding every candle but
+ * the last one seen: a new context only commits the candles closed since, then previews its last candle. CryptoPrice
+ * and PriceUpdate windows differ in length and origin, so they never share a stream.
+ */
+@Slf4j
+@Service
+public class AnalysisContextService {
+
+    @Autowired
+    private FeatureStoreService featureStore;
+
+    private final Cache<String, AnalysisContext> contexts = Caffeine.newBuilder()
+            .maximumSize(200)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    private static final String KIND_CANDLES = "c";
+    private static final String KIND_UPDATES = "u";
+
+    private final Map<String, StreamState> streams = new ConcurrentHashMap<>();
+
+    private static class StreamState {
+        IncrementalIndicators indicators;
+        long lastTimestamp;
+        double lastClose;
+    }
+
+    /**
+     * Context for OHLCV candles, including the model features of the last candle
+     */
+    public AnalysisContext forCandles(String symbol, String timeframe, List<CryptoPrice> candles) {
+        String key = candles.isEmpty() ? key(KIND_CANDLES, symbol, timeframe)
+                : key(KIND_CANDLES, symbol, timeframe, candles.size(), candles.get(0).getTimestamp(),
+                        candles.get(candles.size() - 1).getTimestamp(), closeOf(candles.get(candles.size() - 1)),
+                        candles.get(candles.size() - 1).getVolume());
+        return contexts.get(key, k -> build(KIND_CANDLES, symbol, timeframe, CandleColumns.fromPrices(candles),
+                featureStore.getLatestFeatures(symbol, timeframe, candles)));
+    }
+
+    /**
+     * Context for PriceUpdate candles (no model features)
+     */
+    public AnalysisContext forUpdates(String symbol, String timeframe, List<PriceUpdate> updates) {
+        String key = updates.isEmpty() ? key(KIND_UPDATES, symbol, timeframe)
+                : key(KIND_UPDATES, symbol, timeframe, updates.size(), updates.get(0).getTimestamp(),
+                        updates.get(updates.size() - 1).getTimestamp(), closeOf(updates.get(updates.size() - 1)),
+                        updates.get(updates.size() - 1).getVolume());
+        return contexts.get(key, k -> build(KIND_UPDATES, symbol, timeframe, CandleColumns.fromUpdates(updates), null));
+    }
+
+    private AnalysisContext build(String kind, String symbol, String timeframe, CandleColumns columns, double[] features) {
+        IncrementalIndicators benchmarks = null;
+        if (!columns.isEmpty()) {
+            StreamState stream = streams.computeIfAbsent(key(kind, symbol, timeframe), k -> new StreamState());
+            synchronized (stream) {
+                int lastIdx = columns.size() - 1;
+                int next = resumeIndex(stream, columns);
+                if (next < 0) {
+                    stream.indicators = new IncrementalIndicators(AnalysisContext.BENCHMARK_PERIODS);
+                    next = 0;
+                }
+                for (int i = next; i < lastIdx; i++) {
+                    stream.indicators.update(columns.high(i), columns.low(i), columns.close(i), columns.volume(i));
+                }
+                if (lastIdx > 0) {
+                    stream.lastTimestamp = columns.timestamp(lastIdx - 1);
+                    stream.lastClose = columns.close(lastIdx - 1);
+                }
+                benchmarks = stream.indicators.preview(columns.high(lastIdx), columns.low(lastIdx),
+                        columns.close(lastIdx), columns.volume(lastIdx));
+            }
+        }
+        log.debug("🧭 Built analysis context for {} {} ({} candles)", symbol, timeframe, columns.size());
+        return new AnalysisContext(symbol, timeframe, columns, benchmarks, features);
+    }
+
+    // Index of the first candle the stream has not committed, or -1 if it has to be rebuilt
+    private int resumeIndex(StreamState stream, CandleColumns columns) {
+        if (stream.indicators == null) return -1;
+        for (int i = columns.size() - 1; i >= 0; i--) {
+            long ts = columns.timestamp(i);
+            if (ts == stream.lastTimestamp) {
+                return columns.close(i) == stream.lastClose && i < columns.size() - 1 ? i + 1 : -1;
+            }
+            if (ts < stream.lastTimestamp) break;
+        }
+        return -1;
+    }
+
+    private static String key(String kind, String symbol, String timeframe) {
+        return String.join("|", kind, symbol.toUpperCase(), timeframe);
+    }
+
+    // Read straight off the input list: a cache hit must not cost a copy of the window
+    private static String key(String kind, String symbol, String timeframe, int size, long firstTimestamp,
+                              long lastTimestamp, double lastClose, double lastVolume) {
+        return String.join("|", kind, symbol.toUpperCase(), timeframe, String.valueOf(firstTimestamp),
+                String.valueOf(lastTimestamp), String.valueOf(size), String.valueOf(lastClose), String.valueOf(lastVolume));
+    }
+
+    // Same close as CandleColumns takes
+    private static double closeOf(CryptoPrice p) {
+        return p.getClose() != 0 ? p.getClose() : p.getPrice();
+    }
+
+    private static double closeOf(PriceUpdate p) {
+        return p.getClose() != 0 ? p.getClose() : p.getPrice();
+    }
+}
@@ -0,0 +1,190 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pxbt.dev.aiTradingCharts.model.AIAnalysisResult;
+import com.pxbt.dev.aiTradingCharts.model.AnalysisSnapshot;
+import com.pxbt.dev.aiTradingCharts.model.ChartPattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Full analysis results memoised per (symbol, latest closed 1d/1w/1M candle in the store, model versions,
+ * external-signal versions). Callers between real data changes share one snapshot, priced at the caller's current price.
+ * Concurrent misses for the same key wait on a single computation.
+ *
+ * The latest snapshot per symbol is published through an AtomicReference: readers never lock, and a snapshot
+ * (including its serialised JSON) is replaced rather than modified.
+ *
+ * Staleness of the tick-based parts (chart patterns, Fibonacci zones) is handled by AnalysisTriggerService, which
+ * invalidates on material price moves and after MAX_SNAPSHOT_AGE_MS. Expiry here is only a backstop for symbols
+ * no trigger is watching, so it is longer than the max age and never pre-empts the triggers.
+ */
+@Slf4j
+@Service
+public class AnalysisSnapshotService {
+
+    static final long MAX_SNAPSHOT_AGE_MS = 60 * 60 * 1000L;
+    private static final String[] MODEL_TIMEFRAMES = {"1d", "1w", "1m"};
+
+    @Autowired
+    @Lazy
+    private TradingAnalysisService tradingAnalysisService;
+
+    @Autowired
+    private AIModelService aiModelService;
+
+    @Autowired
+    private HistoricalDataFileService fileService;
+
+    @Autowired
+    private FearGreedService fearGreedService;
+
+    @Autowired
+    private FundingRateService fundingRateService;
+
+    private final Cache<String, CompletableFuture<AIAnalysisResult>> snapshots = Caffeine.newBuilder()
+            .maximumSize(200)
+            .expireAfterWrite(2 * MAX_SNAPSHOT_AGE_MS, TimeUnit.MILLISECONDS)
+            .build();
+
+    // Bumped by invalidate() to force the next request for a symbol to recompute
+    private final Map<String, AtomicLong> epochs = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicReference<AnalysisSnapshot>> published = new ConcurrentHashMap<>();
+
+    /**
+     * Cached analysis for the symbol, carrying {@code currentPrice}
+     */
+    public AIAnalysisResult getAnalysis(String symbol, double currentPrice) {
+        return getSnapshot(symbol, currentPrice).getResult();
+    }
+
+    /**
+     * Cached analysis snapshot for the symbol at {@code currentPrice}, published as the symbol's latest. The first
+     * caller for a new key computes it on its own thread; concurrent callers for the same key wait for that result.
+     */
+    public AnalysisSnapshot getSnapshot(String symbol, double currentPrice) {
+        AIAnalysisResult base = resolve(symbol, currentPrice);
+        AtomicReference<AnalysisSnapshot> ref = published.computeIfAbsent(symbol.toUpperCase(), k -> new AtomicReference<>());
+
+        AnalysisSnapshot current = ref.get();
+        if (current != null && current.getBase() == base) {
+            AnalysisSnapshot live = current.withLivePrice(currentPrice);
+            if (live != current) ref.compareAndSet(current, live);
+            return live;
+        }
+
+        AnalysisSnapshot snapshot = new AnalysisSnapshot(base).withLivePrice(currentPrice);
+        // A slower caller holding an older computation must not replace a newer snapshot
+        ref.accumulateAndGet(snapshot, (prev, next) ->
+                prev == null || prev.getBase().getTimestamp() <= next.getBase().getTimestamp() ? next : prev);
+        return snapshot;
+    }
+
+    /**
+     * Latest published snapshot for the symbol without computing anything, or null before the first analysis
+     */
+    public AnalysisSnapshot latest(String symbol) {
+        AtomicReference<AnalysisSnapshot> ref = published.get(symbol.toUpperCase());
+        return ref != null ? ref.get() : null;
+    }
+
+    private AIAnalysisResult resolve(String symbol, double currentPrice) {
+        String key = key(symbol);
+        CompletableFuture<AIAnalysisResult> pending = new CompletableFuture<>();
+        CompletableFuture<AIAnalysisResult> existing = snapshots.asMap().putIfAbsent(key, pending);
+
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                // The owner failed and dropped the entry: compute without coalescing
+                return compute(symbol, currentPrice);
+            }
+        }
+
+        try {
+            AIAnalysisResult result = compute(symbol, currentPrice);
+            pending.complete(result);
+            log.debug("📸 Analysis snapshot stored for {} ({})", symbol, key);
+            return result;
+        } catch (RuntimeException e) {
+            snapshots.asMap().remove(key, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private AIAnalysisResult compute(String symbol, double currentPrice) {
+        AIAnalysisResult result = tradingAnalysisService.analyzeMarketData(symbol, currentPrice);
+        return result.getChartPatterns() != null
+                ? result.toBuilder().chartPatterns(ensureValidChartPatterns(result.getChartPatterns())).build()
+                : result;
+    }
+
+    // Patterns without a type are sent as NEUTRAL (the client keys styling on patternType)
+    private static List<ChartPattern> ensureValidChartPatterns(List<ChartPattern> patterns) {
+        return patterns.stream()
+                .map(pattern -> {
+                    if (pattern.getPatternType() == null) {
+                        return new ChartPattern(
+                                "NEUTRAL",
+                                pattern.getPriceLevel(),
+                                pattern.getConfidence(),
+                                pattern.getDescription() != null ? pattern.getDescription() : "No pattern detected",
+                                pattern.getTimestamp());
+                    }
+                    return pattern;
+                })
+                .toList();
+    }
+
+    /**
+     * Forces the next request for the symbol to recompute, whatever its data and model versions
+     */
+    public void invalidate(String symbol) {
+        epochs.computeIfAbsent(symbol.toUpperCase(), k -> new AtomicLong()).incrementAndGet();
+        log.debug("♻️ Analysis snapshot invalidated for {}", symbol);
+    }
+
+    /**
+     * Everything besides price that the analysis depends on (closed candles, models, signals, invalidations):
+     * when this changes, a new analysis can differ from the published one
+     */
+    public String dataVersion(String symbol) {
+        return key(symbol);
+    }
+
+    private String key(String symbol) {
+        StringBuilder key = new StringBuilder(symbol.toUpperCase()).append('|');
+
+        // The latest closed candle the store holds, not the calendar: a daily backfilled after midnight changes
+        // the key when it lands. Weekly/monthly candles derived from dailies follow the 1d entry.
+        long now = System.currentTimeMillis();
+        for (String tf : MODEL_TIMEFRAMES) {
+            key.append(fileService.lastClosedTimestamp(symbol, tf, CandleAggregationService.bucketOpen(tf, now)))
+                    .append('|');
+        }
+
+        for (String tf : MODEL_TIMEFRAMES) {
+            key.append(aiModelService.getModelVersion(symbol, tf)).append(':')
+                    .append(aiModelService.getBacktestAccuracy(symbol, tf)).append('|');
+        }
+
+        key.append(fearGreedService.getVersion()).append(':').append(fundingRateService.getVersion()).append('|');
+        AtomicLong epoch = epochs.get(symbol.toUpperCase());
+        return key.append(epoch != null ? epoch.get() : 0).toString();
+    }
+}
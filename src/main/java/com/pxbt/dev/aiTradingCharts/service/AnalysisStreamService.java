@@ -0,0 +1,98 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pxbt.dev.aiTradingCharts.handler.CryptoWebSocketHandler;
+import com.pxbt.dev.aiTradingCharts.model.AnalysisSnapshot;
+import com.pxbt.dev.aiTradingCharts.util.JsonDelta;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versioned analysis stream per symbol for the "deltas" WebSocket channel. Each published analysis that differs
+ * from the previous one becomes a new version. A client receives only the paths changed since the version it
+ * last acknowledged:
+ *   {"type":"analysis_delta","symbol":"BTC","version":12,"base":11,"set":{"/currentPrice":101.2},"remove":[]}
+ * and a full keyframe when it has no acknowledged version still in HISTORY, and every KEYFRAME_EVERY versions:
+ *   {"type":"analysis_key","symbol":"BTC","version":12,"analysis":{...}}
+ */
+@Slf4j
+@Service
+public class AnalysisStreamService {
+
+    private static final int HISTORY = 8;
+    private static final int KEYFRAME_EVERY = 10;
+
+    @Autowired
+    private CryptoWebSocketHandler webSocketHandler;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+
+    private record Version(long version, ObjectNode doc) {}
+
+    private static class Stream {
+        long nextVersion = 1;
+        final ArrayDeque<Version> history = new ArrayDeque<>();
+    }
+
+    /**
+     * Publishes the snapshot as the symbol's next version, unless it is identical to the current one
+     */
+    public void publish(String symbol, AnalysisSnapshot snapshot) {
+        try {
+            ObjectNode doc = (ObjectNode) mapper.readTree(snapshot.toJson(mapper));
+            String key = symbol.toUpperCase();
+            Stream stream = streams.computeIfAbsent(key, k -> new Stream());
+
+            Version latest;
+            List<Version> history;
+            synchronized (stream) {
+                Version previous = stream.history.peekLast();
+                if (previous != null && previous.doc().equals(doc)) return;
+                latest = new Version(stream.nextVersion++, doc);
+                stream.history.addLast(latest);
+                if (stream.history.size() > HISTORY) stream.history.pollFirst();
+                history = List.copyOf(stream.history);
+            }
+
+            boolean keyframe = latest.version() % KEYFRAME_EVERY == 0;
+            webSocketHandler.publishVersioned(CryptoWebSocketHandler.DELTAS, key, "delta:" + key,
+                    base -> encode(key, latest, keyframe ? null : find(history, base)));
+        } catch (Exception e) {
+            log.error("❌ Failed to publish analysis delta for {}: {}", symbol, e.getMessage());
+        }
+    }
+
+    private static Version find(List<Version> history, long version) {
+        for (Version v : history) {
+            if (v.version() == version) return v;
+        }
+        return null;
+    }
+
+    private String encode(String symbol, Version latest, Version base) {
+        ObjectNode frame = mapper.createObjectNode();
+        frame.put("symbol", symbol);
+        frame.put("version", latest.version());
+        if (base == null) {
+            frame.put("type", "analysis_key");
+            frame.set("analysis", latest.doc());
+        } else {
+            frame.put("type", "analysis_delta");
+            frame.put("base", base.version());
+            frame.setAll(JsonDelta.diff(base.doc(), latest.doc()));
+        }
+        try {
+            return mapper.writeValueAsString(frame);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode analysis frame", e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
+import com.pxbt.dev.aiTradingCharts.model.AnalysisSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Decides when a symbol is re-analysed, so the full pipeline only runs when its output can change:
+ *  - a candle closes, a model is retrained/restored, or the Fear & Greed / funding value changes
+ *    (any change of {@link AnalysisSnapshotService#dataVersion})
+ *  - price moves more than MOVE_SIGMAS times its typical hourly move since the last analysis
+ *    (tick volatility as an EWMA, with a MIN_MOVE floor)
+ *  - an explicit request (first price seen, manual refresh)
+ *  - the snapshot reaching MAX_SNAPSHOT_AGE_MS, so tick-based patterns are recomputed at least that often
+ *
+ * Triggers are debounced per symbol: at most one run per DEBOUNCE_MS, later triggers in the window fold into a
+ * single deferred run. Runs happen on a dedicated thread, never on the ingest thread.
+ */
+@Slf4j
+@Service
+public class AnalysisTriggerService {
+
+    private static final long DEBOUNCE_MS = 30_000;
+    private static final double MOVE_SIGMAS = 2.0;
+    private static final double MIN_MOVE = 0.005;           // 0.5%
+    private static final double VOLATILITY_ALPHA = 0.01;    // EWMA weight per tick (~100 ticks memory)
+    private static final long VOLATILITY_HORIZON_MS = 60 * 60 * 1000L;
+
+    @Autowired
+    private AnalysisSnapshotService analysisSnapshotService;
+
+    @Autowired
+    private FearGreedService fearGreedService;
+
+    @Autowired
+    private FundingRateService fundingRateService;
+
+    @Autowired
+    private SymbolConfig symbolConfig;
+
+    private final Map<String, TriggerState> states = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, AnalysisSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    // Not final so tests can run triggers synchronously
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Analysis-Trigger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class TriggerState {
+        double lastPrice;
+        long lastTickTime;
+        double varianceRate;      // EWMA of squared log return per ms
+        double referencePrice;    // price of the last analysis
+        long lastRun;
+        String lastVersion;
+        boolean pending;
+        boolean recompute;        // data version unchanged, but the cached snapshot is stale
+        final Set<String> reasons = new LinkedHashSet<>();
+    }
+
+    /**
+     * Called with each new analysis snapshot produced by a trigger (on the trigger thread)
+     */
+    public void addListener(BiConsumer<String, AnalysisSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Feeds a live price. Cheap: updates the volatility estimate and schedules a run only on a material move.
+     */
+    public void onPrice(String symbol, double price, long timestamp) {
+        if (price <= 0) return;
+        TriggerState state = state(symbol);
+        String reason = null;
+        synchronized (state) {
+            if (state.lastPrice > 0 && timestamp > state.lastTickTime) {
+                double r = Math.log(price / state.lastPrice);
+                double sample = r * r / (timestamp - state.lastTickTime);
+                state.varianceRate = state.varianceRate == 0 ? sample
+                        : state.varianceRate + VOLATILITY_ALPHA * (sample - state.varianceRate);
+            }
+            state.lastPrice = price;
+            state.lastTickTime = timestamp;
+            if (state.pending) return; // the scheduled run picks up this price
+
+            if (state.referencePrice <= 0) {
+                // Not analysed yet (or the last run failed): request() dedups while a run is pending
+                reason = "first price";
+            } else {
+                double move = Math.abs(Math.log(price / state.referencePrice));
+                double threshold = Math.max(MIN_MOVE,
+                        MOVE_SIGMAS * Math.sqrt(state.varianceRate * VOLATILITY_HORIZON_MS));
+                if (move > threshold) {
+                    state.recompute = true;
+                    reason = String.format("price move %.2f%% > %.2f%%", move * 100, threshold * 100);
+                }
+            }
+        }
+        if (reason != null) {
+            request(symbol, reason);
+        }
+    }
+
+    /**
+     * Schedules a re-analysis of the symbol, debounced with any other pending trigger
+     */
+    public void request(String symbol, String reason) {
+        request(symbol, reason, false);
+    }
+
+    /**
+     * As {@link #request(String, String)}; with {@code recompute} the cached snapshot is dropped first, for
+     * triggers that don't change the data version (a manual refresh, the max snapshot age)
+     */
+    public void request(String symbol, String reason, boolean recompute) {
+        TriggerState state = state(symbol);
+        long delay;
+        synchronized (state) {
+            state.reasons.add(reason);
+            state.recompute |= recompute;
+            if (state.pending) return;
+            state.pending = true;
+            delay = Math.max(0, state.lastRun + DEBOUNCE_MS - System.currentTimeMillis());
+        }
+        executor.schedule(() -> run(symbol), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Candle closes, model and signal changes, and the max-age safety net. Refreshing the signals here (they are
+     * TTL-cached, so this is usually a map lookup) lets their changes trigger a run instead of waiting for one.
+     */
+    @Scheduled(fixedDelay = 30000, initialDelay = 60000)
+    public void checkVersions() {
+        fearGreedService.getScore();
+        long now = System.currentTimeMillis();
+        for (String symbol : symbolConfig.getSymbols()) {
+            fundingRateService.getFundingRate(symbol);
+            TriggerState state = states.get(symbol.toUpperCase());
+            if (state == null || state.lastVersion == null) continue;
+
+            if (!analysisSnapshotService.dataVersion(symbol).equals(state.lastVersion)) {
+                request(symbol, "candle/model/signal update");
+            } else if (now - state.lastRun > AnalysisSnapshotService.MAX_SNAPSHOT_AGE_MS) {
+                request(symbol, "max snapshot age", true);
+            }
+        }
+    }
+
+    private void run(String symbol) {
+        TriggerState state = state(symbol);
+        double price;
+        boolean recompute;
+        String reasons;
+        synchronized (state) {
+            state.pending = false;
+            state.lastRun = System.currentTimeMillis();
+            price = state.lastPrice;
+            recompute = state.recompute;
+            state.recompute = false;
+            reasons = String.join(", ", state.reasons);
+            state.reasons.clear();
+        }
+        if (price <= 0) return;
+
+        try {
+            // Price moves and age do not change the data version: force the snapshot to recompute
+            if (recompute) {
+                analysisSnapshotService.invalidate(symbol);
+            }
+            log.info("⚡ Re-analysing {} ({})", symbol, reasons);
+            AnalysisSnapshot snapshot = analysisSnapshotService.getSnapshot(symbol, price);
+            synchronized (state) {
+                state.referencePrice = price;
+                state.lastVersion = analysisSnapshotService.dataVersion(symbol);
+            }
+            for (BiConsumer<String, AnalysisSnapshot> listener : listeners) {
+                listener.accept(symbol, snapshot);
+            }
+        } catch (Exception e) {
+            log.error("❌ Triggered analysis failed for {}: {}", symbol, e.getMessage());
+        }
+    }
+
+    private TriggerState state(String symbol) {
+        return states.computeIfAbsent(symbol.toUpperCase(), k -> new TriggerState());
+    }
+
+    @jakarta.annotation.PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,16 +1,31 @@
 package com.pxbt.dev.aiTradingCharts.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pxbt.dev.aiTradingCharts.model.AccuracyRecord;
+import com.pxbt.dev.aiTradingCharts.model.BacktestSummary;
+import com.pxbt.dev.aiTradingCharts.model.BootstrapResult;
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
 import com.pxbt.dev.aiTradingCharts.model.PricePrediction;
+import com.pxbt.dev.aiTradingCharts.util.FeatureColumns;
+import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
@@ -24,17 +39,66 @@ public class BacktestService {
     private final TradingMetricsService metricsService;
     private final AIModelService aiModelService;
     private final TrainingDataService trainingDataService;
+    private final AccuracyBootstrapService bootstrapService;
+    private final FeatureStoreService featureStore;
 
     // Short symbols match the file names (BTC_1d.json, etc.)
     // USDT suffix is used for Binance API calls only
     private static final String[] SYMBOLS = {"BTC", "SOL", "TAO", "WIF"};
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Not final so tests can point it at a temp directory
+    String hwmFile = (new File("/historical_data").exists()
+            ? "/historical_data/backtest_data/"
+            : "backtest_data/") + "backtest_hwm.json";
+
+    // Bump when AccuracyRecord gains fields backtests must fill in, so old records get recomputed
+    private static final int RECORD_SCHEMA = 2; // 2: confidence
+
+    /**
+     * Last evaluated prediction time per symbol_timeframe and the model version that scored up to it.
+     * The version is the model type plus the feature and record schemas: a routine retrain keeps the mark (records
+     * before it keep the model that scored them, as a live audit would), a different model or schema doesn't.
+     */
+    record HighWaterMark(String modelVersion, long lastPredictionTime, int schema) {
+    }
+
+    private final Map<String, HighWaterMark> highWaterMarks = new ConcurrentHashMap<>();
+
+    private void loadHighWaterMarks() {
+        File file = new File(hwmFile);
+        if (!file.exists()) return;
+        try {
+            highWaterMarks.putAll(objectMapper.readValue(file, new TypeReference<Map<String, HighWaterMark>>() {}));
+            log.info("✅ Loaded {} backtest high-water marks", highWaterMarks.size());
+        } catch (IOException e) {
+            log.warn("⚠️ Could not load backtest high-water marks, next runs will be full: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void saveHighWaterMarks() {
+        Path target = Paths.get(hwmFile);
+        Path temp = Paths.get(hwmFile + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            objectMapper.writeValue(temp.toFile(), highWaterMarks);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.error("❌ Failed to save backtest high-water marks: {}", e.getMessage());
+        }
+    }
+
     /**
      * Run on startup to pre-populate Evidence Dashboard from existing disk data.
      * Runs in a background thread so it doesn't block startup.
      */
     @PostConstruct
     public void runStartupBacktest() {
+        loadHighWaterMarks();
         Thread t = new Thread(() -> {
             try {
                 Thread.sleep(5000); // Wait for app context to be fully ready
@@ -69,8 +133,36 @@ public class BacktestService {
         }
     }
 
+    // Stable across routine retrains, unlike the training timestamp
+    private String modelVersion(String symbol, String timeframe) {
+        return aiModelService.getModelType(symbol, timeframe)
+                + ":f" + FeatureExtractor.SCHEMA_VERSION + ":r" + RECORD_SCHEMA;
+    }
+
     public int runBacktest(String symbol, String timeframe) {
-        log.info("🧪 Starting historical backtest for {} on {} timeframe (Fixed Point)", symbol, timeframe);
+        return runBacktest(symbol, timeframe, false);
+    }
+
+    /**
+     * Evaluates only candles newer than the stored high-water mark and appends them, scored with the current model
+     * (routine retrains don't reset the mark). A full recompute replaces all evaluated records when forced,
+     * on first run, or when the model version (type, feature schema, record schema) changed.
+     */
+    public synchronized int runBacktest(String symbol, String timeframe, boolean forceFull) {
+        String key = symbol.toUpperCase() + "_" + timeframe.toLowerCase();
+        String modelVersion = modelVersion(symbol, timeframe);
+        HighWaterMark mark = highWaterMarks.get(key);
+        boolean incremental = !forceFull && mark != null
+                && mark.schema() == RECORD_SCHEMA
+                && modelVersion.equals(mark.modelVersion())
+                && accuracyPersistenceService.getSummary(symbol, timeframe).getTotalEvaluated() > 0;
+
+        log.info("🧪 Starting {} historical backtest for {} on {} timeframe (Fixed Point)",
+                incremental ? "incremental" : "full", symbol, timeframe);
+        if (!forceFull && mark != null && !modelVersion.equals(mark.modelVersion())) {
+            log.info("🔁 Model for {} {} changed since the last backtest ({} → {}); recomputing all records",
+                    symbol, timeframe, mark.modelVersion(), modelVersion);
+        }
 
         try {
             // Use BinanceHistoricalService to ensure we have deep data (3000 points)
@@ -86,23 +178,32 @@ public class BacktestService {
                 return 0;
             }
 
-            // Clear old backtest records for this symbol/timeframe to avoid duplicates
-            accuracyPersistenceService.clearBacktestRecords(symbol, timeframe);
-
             int scanStart = isMonthly ? 13 : (isWeekly ? 50 : 200); // Monthly: 13 months covers MACD slow period
             int scanEnd = allData.size() - 2; 
+            if (incremental) {
+                while (scanStart < scanEnd && allData.get(scanStart).getTimestamp() <= mark.lastPredictionTime()) {
+                    scanStart++;
+                }
+                if (scanStart >= scanEnd) {
+                    log.info("⏭️ Backtest for {} {} is up to date (model {})", symbol, timeframe, modelVersion);
+                    return 0;
+                }
+            }
             int count = 0;
             int step = 1; // Full granularity
 
             List<AccuracyRecord> batch = new ArrayList<>();
 
+            // Features for every candle at once; each prediction below is a lookup, not an indicator rebuild
+            FeatureColumns features = featureStore.getFeatures(symbol, timeframe, allData);
+
             for (int i = scanStart; i < scanEnd; i += step) {
                 List<CryptoPrice> historicalSlice = allData.subList(0, i + 1);
                 CryptoPrice currentPoint = allData.get(i);
                 CryptoPrice futurePoint = allData.get(i + 1);
 
                 PricePrediction pred = predictionService.generateAIPrediction(
-                        symbol, currentPoint.getClose(), historicalSlice, timeframe);
+                        symbol, currentPoint.getClose(), historicalSlice, timeframe, features.features(i));
 
                 double predictedMove = (pred.getPredictedPrice() - currentPoint.getClose()) / currentPoint.getClose();
                 double actualMove = (futurePoint.getClose() - currentPoint.getClose()) / currentPoint.getClose();
@@ -119,6 +220,7 @@ public class BacktestService {
                         .actualChange(actualMove)
                         .isDirectionMatch((predictedMove > 0 && actualMove > 0) || (predictedMove < 0 && actualMove < 0))
                         .modelName(pred.getModelName())
+                        .confidence(pred.getConfidence())
                         .isEvaluated(true)
                         .build();
 
@@ -126,15 +228,26 @@ public class BacktestService {
                 count++;
             }
 
-            accuracyPersistenceService.recordBatch(batch);
+            if (incremental) {
+                accuracyPersistenceService.recordBatch(batch);
+            } else {
+                // Swap out old backtest records for this symbol/timeframe in one atomic write
+                accuracyPersistenceService.replaceEvaluatedRecords(symbol, timeframe, batch);
+            }
+            if (!batch.isEmpty()) {
+                highWaterMarks.put(key, new HighWaterMark(modelVersion, batch.get(batch.size() - 1).getPredictionTime(), RECORD_SCHEMA));
+                saveHighWaterMarks();
+            }
 
-            // Calculate accuracy for metrics
-            long matches = batch.stream().filter(AccuracyRecord::isDirectionMatch).count();
-            double accuracy = batch.isEmpty() ? 0 : (matches * 100.0 / batch.size());
+            // Accuracy over the whole evaluated history, read from the store's running totals
+            BacktestSummary summary = accuracyPersistenceService.getSummary(symbol, timeframe);
+            double accuracy = summary.getWinRate();
             metricsService.recordBacktestRun(symbol, timeframe, count, accuracy);
 
-            // Feed real directional accuracy back into the model confidence scoring
-            aiModelService.updateBacktestAccuracy(symbol, timeframe, accuracy / 100.0);
+            // Feed the lower bound of the bootstrapped win rate back into model confidence scoring,
+            // so a short or streaky history can't buy more confidence than it has earned
+            BootstrapResult interval = bootstrapService.bootstrap(symbol, timeframe);
+            aiModelService.updateBacktestAccuracy(symbol, timeframe, interval.getWinRateLow() / 100.0);
 
             // If the model is performing worse than random, trigger an immediate retrain
             // so it can re-fit to the current market regime
@@ -144,7 +257,9 @@ public class BacktestService {
                 trainingDataService.forceRetrain();
             }
 
-            log.info("✅ Backtest for {}: Generated {} historical accuracy records (accuracy: {}%)", symbol, count, String.format("%.1f", accuracy));
+            log.info("✅ Backtest for {}: Generated {} historical accuracy records (accuracy: {}%, {}% CI {}–{}%)",
+                    symbol, count, String.format("%.1f", accuracy), Math.round(interval.getConfidenceLevel() * 100),
+                    String.format("%.1f", interval.getWinRateLow()), String.format("%.1f", interval.getWinRateHigh()));
             return count;
 
         } catch (Exception e) {
@@ -3,6 +3,7 @@ package com.pxbt.dev.aiTradingCharts.service;
 import com.pxbt.dev.aiTradingCharts.Gateway.BinanceGateway;
 import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Lazy;
@@ -13,6 +14,7 @@ import com.pxbt.dev.aiTradingCharts.handler.CryptoWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -45,17 +47,38 @@ public class BinanceHistoricalService {
     @Autowired
     private SmartCacheService smartCacheService;
 
+    @Autowired
+    private CandleAggregationService aggregationService;
+
+    @Autowired
+    private IntradayCandleStore intradayStore;
+
+    @Value("${app.intraday.enabled:true}")
+    private boolean intradayEnabled;
+
     private final Map<String, Long> lastDeepFetchTime = new ConcurrentHashMap<>();
     private final BinanceGateway binanceGateway;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // Small cache for active data
+    // Upper bound on dailies replayed into a roll-up (the store holds ~2500); older buckets come from native klines
+    private static final int FULL_DAILY_DEPTH = 5000;
+
+    // Upper bound for a single intraday backfill (5 batches)
+    private static final int MAX_INTRADAY_BACKFILL = 5000;
+
+    // Small cache for active data (keyed by limit too, a short list must never satisfy a longer request)
     private final Cache<String, List<CryptoPrice>> dataCache = Caffeine.newBuilder()
-            .maximumSize(5)
+            .maximumSize(32)
             .expireAfterWrite(10, TimeUnit.MINUTES)
             .weakValues() // Allows GC to collect cached values
             .build();
 
+    // Native weekly/monthly klines, only read for the span the daily store does not cover (history that never changes)
+    private final Cache<String, List<CryptoPrice>> nativeHistoryCache = Caffeine.newBuilder()
+            .maximumSize(64)
+            .expireAfterWrite(24, TimeUnit.HOURS)
+            .build();
+
     @PostConstruct
     public void init() {
         log.info("📚 BinanceHistoricalService initializing - file-based storage");
@@ -169,6 +192,10 @@ public class BinanceHistoricalService {
 
         for (String symbol : symbols) {
             for (String timeframe : mlTimeframes) {
+                // Weekly/monthly come from the daily store once it exists
+                if (aggregationService.isDerivedTimeframe(timeframe) && fileService.hasData(symbol, "1d")) {
+                    continue;
+                }
                 try {
                     updateMLData(symbol, timeframe);
                     Thread.sleep(2000); // Rate limiting
@@ -203,7 +230,7 @@ public class BinanceHistoricalService {
             fileService.saveHistoricalData(symbol, timeframe, merged);
 
             // Clear cache
-            dataCache.invalidate(symbol + "_" + timeframe);
+            invalidateCache(symbol, timeframe);
 
             log.info("📈 Updated {} {}: {} total points", symbol, timeframe, merged.size());
 
@@ -222,8 +249,28 @@ public class BinanceHistoricalService {
         }
     }
 
+    /**
+     * Daily, derived from dailies, or intraday. Anything else would silently fall back to daily klines.
+     */
+    public boolean isSupportedTimeframe(String timeframe) {
+        return "1d".equals(timeframe)
+                || aggregationService.isDerivedTimeframe(timeframe)
+                || intradayStore.isIntraday(timeframe);
+    }
+
     public List<CryptoPrice> getHistoricalData(String symbol, String timeframe, int limit) {
-        String cacheKey = symbol + "_" + timeframe;
+        if (intradayStore.isIntraday(timeframe)) {
+            return getIntradayHistoricalData(symbol, timeframe, limit);
+        }
+
+        if (aggregationService.isDerivedTimeframe(timeframe)) {
+            List<CryptoPrice> derived = getDerivedHistoricalData(symbol, timeframe, limit);
+            if (!derived.isEmpty()) {
+                return derived;
+            }
+        }
+
+        String cacheKey = symbol + "_" + timeframe + "_" + limit;
 
         return dataCache.get(cacheKey, key -> {
             // 1. Check file first
@@ -267,6 +314,153 @@ public class BinanceHistoricalService {
         });
     }
 
+    /**
+     * Weekly/monthly candles rolled up locally from the daily store.
+     * Only the dailies since the forming bucket opened are re-read once the roll-up is warm.
+     */
+    private List<CryptoPrice> getDerivedHistoricalData(String symbol, String timeframe, int limit) {
+        if (!fileService.hasData(symbol, "1d")) {
+            return new ArrayList<>();
+        }
+
+        // Keep dailies current - this is the only network touch for derived timeframes
+        if (fileService.needsUpdate(symbol, "1d", getMaxAgeForTimeframe("1d"))) {
+            getHistoricalData(symbol, "1d", 30);
+        }
+
+        long resumeFrom = aggregationService.resumeFrom(symbol, timeframe);
+        List<CryptoPrice> dailies;
+        if (resumeFrom < 0) {
+            dailies = fileService.loadRecentData(symbol, "1d", FULL_DAILY_DEPTH);
+        } else {
+            long days = (System.currentTimeMillis() - resumeFrom) / TimeUnit.DAYS.toMillis(1) + 2;
+            dailies = smartCacheService.getSmartData(symbol, "1d", (int) Math.min(days, FULL_DAILY_DEPTH));
+        }
+
+        List<CryptoPrice> derived = aggregationService.aggregate(symbol, timeframe, dailies, limit);
+        return withNativeHistory(symbol, timeframe, derived, limit);
+    }
+
+    /**
+     * Weekly/monthly history older than the daily store, taken from native Binance klines.
+     * Native buckets share the roll-up's alignment; the one the dailies start in is usually partial when derived,
+     * so the native candle wins there.
+     */
+    private List<CryptoPrice> withNativeHistory(String symbol, String timeframe, List<CryptoPrice> derived, int limit) {
+        if (derived.isEmpty() || derived.size() >= limit
+                || !(timeframe.equalsIgnoreCase("1w") || timeframe.equalsIgnoreCase("1m"))) {
+            return derived;
+        }
+
+        List<CryptoPrice> nativeData = loadNativeHistory(symbol, timeframe.toLowerCase());
+        long firstDerived = derived.get(0).getTimestamp();
+        List<CryptoPrice> merged = new ArrayList<>();
+        for (CryptoPrice candle : nativeData) {
+            if (candle.getTimestamp() > firstDerived) break;
+            merged.add(candle);
+        }
+        if (merged.isEmpty()) {
+            return derived;
+        }
+
+        boolean nativeFirstBucket = merged.get(merged.size() - 1).getTimestamp() == firstDerived;
+        merged.addAll(nativeFirstBucket ? derived.subList(1, derived.size()) : derived);
+        int start = Math.max(0, merged.size() - limit);
+        return start == 0 ? merged : new ArrayList<>(merged.subList(start, merged.size()));
+    }
+
+    private List<CryptoPrice> loadNativeHistory(String symbol, String timeframe) {
+        String cacheKey = symbol + "_" + timeframe;
+        List<CryptoPrice> cached = nativeHistoryCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<CryptoPrice> nativeData = fileService.loadHistoricalData(symbol, timeframe);
+        if (nativeData.isEmpty()) {
+            // Same 24h cooldown as the ML deep fetch, so a symbol Binance has no older klines for isn't re-asked
+            Long lastFetch = lastDeepFetchTime.get(cacheKey);
+            if (lastFetch != null && System.currentTimeMillis() - lastFetch < TimeUnit.HOURS.toMillis(24)) {
+                return nativeData;
+            }
+            nativeData = fetchOptimizedData(symbol, timeframe, getRequiredPointsForTimeframe(timeframe));
+            lastDeepFetchTime.put(cacheKey, System.currentTimeMillis());
+            if (nativeData.isEmpty()) {
+                return nativeData;
+            }
+            fileService.saveHistoricalData(symbol, timeframe, nativeData);
+        }
+
+        nativeHistoryCache.put(cacheKey, nativeData);
+        return nativeData;
+    }
+
+    /**
+     * Intraday candles come from the partitioned store; Binance is only asked for
+     * the gap since the newest stored candle (or a bounded backfill when the store is short).
+     */
+    private List<CryptoPrice> getIntradayHistoricalData(String symbol, String timeframe, int limit) {
+        IntradayCandleStore.Tier tier = IntradayCandleStore.tierOf(timeframe).orElseThrow();
+        long now = System.currentTimeMillis();
+
+        List<CryptoPrice> stored = intradayStore.loadRecent(symbol, tier.code, limit);
+        long latest = stored.isEmpty() ? -1 : stored.get(stored.size() - 1).getTimestamp();
+        String cooldownKey = symbol + "_" + tier.code;
+        Long lastBackfill = lastDeepFetchTime.get(cooldownKey);
+        boolean cooledDown = lastBackfill == null || now - lastBackfill > TimeUnit.HOURS.toMillis(1);
+
+        List<CryptoPrice> fresh = new ArrayList<>();
+        if (stored.size() < limit && cooledDown) {
+            fresh = fetchDeepHistoricalData(symbol, tier.code, Math.min(limit, MAX_INTRADAY_BACKFILL));
+            lastDeepFetchTime.put(cooldownKey, now);
+        } else if (latest < 0 || now - latest > tier.millis) {
+            long missing = latest < 0 ? limit : (now - latest) / tier.millis + 1;
+            fresh = fetchBinanceData(symbol, tier.code, (int) Math.min(missing, 1000));
+        }
+
+        if (!fresh.isEmpty()) {
+            intradayStore.append(symbol, tier.code, fresh);
+            stored = intradayStore.loadRecent(symbol, tier.code, limit);
+        }
+        return stored;
+    }
+
+    /**
+     * Pull the latest one-minute candles; the store rolls them up into 15min/1h/4h
+     */
+    @Scheduled(fixedDelay = 300000, initialDelay = 120000)
+    public void updateIntradayData() {
+        if (!intradayEnabled) return;
+
+        for (String symbol : symbolConfig.getSymbols()) {
+            try {
+                long latest = intradayStore.latestTimestamp(symbol, "1min");
+                int missing = latest < 0 ? 1000
+                        : (int) Math.min(1000, (System.currentTimeMillis() - latest) / TimeUnit.MINUTES.toMillis(1) + 1);
+                List<CryptoPrice> minutes = fetchBinanceData(symbol, "1min", missing);
+                if (!minutes.isEmpty()) {
+                    intradayStore.append(symbol, "1min", minutes);
+                }
+                Thread.sleep(500); // Rate limiting
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("❌ Intraday update failed for {}: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    private void invalidateCache(String symbol, String timeframe) {
+        String prefix = symbol + "_" + timeframe + "_";
+        dataCache.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+        smartCacheService.invalidate(symbol, timeframe);
+        if (timeframe.equalsIgnoreCase("1d")) {
+            // The daily file was rewritten: closed weekly/monthly buckets may have changed
+            aggregationService.invalidate(symbol);
+        }
+    }
+
     /**
      * Update file with new data (append/merge instead of replace)
      */
@@ -282,6 +476,12 @@ public class BinanceHistoricalService {
 
         // 3. Save merged data back to file
         fileService.saveHistoricalData(symbol, timeframe, mergedData);
+        smartCacheService.invalidate(symbol, timeframe);
+        if (timeframe.equalsIgnoreCase("1d") && !existingData.isEmpty()
+                && newData.get(0).getTimestamp() < existingData.get(0).getTimestamp()) {
+            // Deeper daily history arrived: the roll-up only replays from its forming bucket, so rebuild it
+            aggregationService.invalidate(symbol);
+        }
 
         log.info("📈 Updated {} {}: {} → {} points (added {})",
                 symbol, timeframe, existingData.size(), mergedData.size(),
@@ -314,6 +514,36 @@ public class BinanceHistoricalService {
         return new ArrayList<>(mergedMap.values());
     }
 
+    /**
+     * Candles in [from, to] (UTC ms), capped to the latest {@code maxPoints}.
+     * Served from the local stores; Binance is only asked when nothing is stored yet.
+     */
+    public CandleColumns getHistoricalDataRange(String symbol, String timeframe, long from, long to, int maxPoints) {
+        if (intradayStore.isIntraday(timeframe)) {
+            IntradayCandleStore.Tier tier = IntradayCandleStore.tierOf(timeframe).orElseThrow();
+            if (intradayStore.latestTimestamp(symbol, tier.code) < 0) {
+                getIntradayHistoricalData(symbol, tier.code, 1000);
+            }
+            return CandleColumns.fromPrices(intradayStore.loadRange(symbol, tier.code, from, to, maxPoints));
+        }
+
+        if (aggregationService.isDerivedTimeframe(timeframe)) {
+            // Derived timeframes are a few hundred candles at most - filter the roll-up
+            List<CryptoPrice> derived = getDerivedHistoricalData(symbol, timeframe, Integer.MAX_VALUE);
+            if (!derived.isEmpty()) {
+                CandleColumns columns = CandleColumns.fromPrices(derived);
+                int start = columns.lowerBound(from);
+                int end = to == Long.MAX_VALUE ? columns.size() : columns.lowerBound(to + 1);
+                return columns.slice(Math.max(start, end - maxPoints), end);
+            }
+        }
+
+        if (!fileService.hasData(symbol, timeframe)) {
+            getHistoricalData(symbol, timeframe, 1000);
+        }
+        return fileService.loadRangeColumns(symbol, timeframe, from, to, maxPoints);
+    }
+
     public List<CryptoPrice> getFullHistoricalData(String symbol) {
         // Get 5 years of daily data (~1825 points)
         return getHistoricalData(symbol, "1d", 1825);
@@ -377,6 +607,18 @@ public class BinanceHistoricalService {
         // Determine how much data we need for this timeframe
         int requiredPoints = getRequiredPointsForTimeframe(timeframe);
 
+        if (intradayStore.isIntraday(timeframe)) {
+            return getIntradayHistoricalData(symbol, timeframe, requiredPoints);
+        }
+
+        if (aggregationService.isDerivedTimeframe(timeframe)) {
+            List<CryptoPrice> derived = getDerivedHistoricalData(symbol, timeframe, requiredPoints);
+            if (!derived.isEmpty()) {
+                log.info("✅ Using {} {} candles rolled up from dailies for ML training", derived.size(), timeframe);
+                return derived;
+            }
+        }
+
         // Check if we have enough data in file
         List<CryptoPrice> trainingData = fileService.loadHistoricalData(symbol, timeframe);
 
@@ -407,7 +649,7 @@ public class BinanceHistoricalService {
         fileService.saveHistoricalData(symbol, timeframe, freshData);
 
         // Invalidate cache
-        dataCache.invalidate(symbol + "_" + timeframe);
+        invalidateCache(symbol, timeframe);
 
         log.info("✅ Fetched {} fresh data points for {} ML training",
                 freshData.size(), timeframe);
@@ -419,6 +661,7 @@ public class BinanceHistoricalService {
             case "1d" -> 2500; 
             case "1w" -> 500;  
             case "1m" -> 240;   
+            case "1min", "15min", "1h", "4h" -> 2500;
             default -> 100;
         };
     }
@@ -492,7 +735,9 @@ public class BinanceHistoricalService {
             case "1d" -> "1d";
             case "1w", "1W" -> "1w";
             case "1m", "1M" -> "1M";
-            default -> "1d";
+            default -> IntradayCandleStore.tierOf(timeframe)
+                    .map(tier -> tier.binanceInterval)
+                    .orElse("1d");
         };
     }
 
@@ -0,0 +1,208 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Derives weekly, monthly (and coarser) candles from the daily store.
+ * Closed buckets are cached per bucket boundary; the forming bucket is rolled up
+ * incrementally so only dailies newer than its open need to be replayed.
+ */
+@Slf4j
+@Service
+public class CandleAggregationService {
+
+    private static final long DAY_MS = 86_400_000L;
+
+    /**
+     * Timeframes we build from dailies. "m" is months here (the "1m" = monthly convention); intraday minutes are
+     * "15min" etc., so anything else - a Binance-style "15m" included - is not guessed at.
+     */
+    public static final Set<String> DERIVED_TIMEFRAMES = Set.of(
+            "3d", "1w", "1W", "1m", "1M", "3m", "3M", "6m", "6M", "12m", "12M");
+
+    private final Map<String, RollupState> states = new ConcurrentHashMap<>();
+
+    public boolean isDerivedTimeframe(String timeframe) {
+        return timeframe != null && DERIVED_TIMEFRAMES.contains(timeframe);
+    }
+
+    /**
+     * Open time (UTC ms) of the bucket containing {@code timestamp}, aligned the way Binance aligns its klines:
+     * weeks start Monday 00:00 UTC, months on the 1st, N-day buckets on the epoch.
+     */
+    public static long bucketOpen(String timeframe, long timestamp) {
+        char unit = timeframe.charAt(timeframe.length() - 1);
+        int n = Math.max(1, parseMultiplier(timeframe));
+        LocalDate day = Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate();
+        return switch (unit) {
+            case 'w', 'W' -> toMillis(day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            case 'm', 'M' -> {
+                int monthIndex = day.getYear() * 12 + (day.getMonthValue() - 1);
+                int aligned = monthIndex - Math.floorMod(monthIndex, n);
+                yield toMillis(LocalDate.of(aligned / 12, aligned % 12 + 1, 1));
+            }
+            default -> Math.floorDiv(timestamp, n * DAY_MS) * (n * DAY_MS);
+        };
+    }
+
+    /**
+     * Open time of the forming bucket, or -1 when nothing has been rolled up yet.
+     * Callers use it to size how many dailies they need to hand us next time.
+     */
+    public long resumeFrom(String symbol, String timeframe) {
+        RollupState state = states.get(key(symbol, timeframe));
+        if (state == null) return -1;
+        synchronized (state) {
+            return state.forming != null ? state.forming.open : -1;
+        }
+    }
+
+    /**
+     * Roll dailies (ascending) up into {@code timeframe} candles and return the last {@code limit}.
+     * Dailies may be a tail slice as long as it starts at or before {@link #resumeFrom}.
+     */
+    public List<CryptoPrice> aggregate(String symbol, String timeframe, List<CryptoPrice> dailies, int limit) {
+        if (dailies == null || dailies.isEmpty()) return new ArrayList<>();
+
+        String key = key(symbol, timeframe);
+        RollupState state = states.computeIfAbsent(key, k -> new RollupState());
+
+        synchronized (state) {
+            long firstTs = dailies.get(0).getTimestamp();
+            boolean gap = firstTs > state.lastDailyTs + DAY_MS;
+            if (state.forming != null && (firstTs < state.firstDailyTs || gap)) {
+                // Deeper history arrived (or a slice we can't stitch) - rebuild from scratch
+                log.debug("🔁 Rebuilding {} roll-up from {} dailies", key, dailies.size());
+                state.reset();
+            }
+
+            for (CryptoPrice daily : dailies) {
+                state.apply(timeframe, symbol, daily);
+            }
+
+            List<CryptoPrice> result = new ArrayList<>(Math.min(limit, state.closed.size() + 1));
+            int wantedClosed = state.forming != null ? limit - 1 : limit;
+            if (wantedClosed > 0) {
+                NavigableMap<Long, CryptoPrice> closed = state.closed;
+                int skip = Math.max(0, closed.size() - wantedClosed);
+                for (CryptoPrice candle : closed.values()) {
+                    if (skip-- > 0) continue;
+                    result.add(copy(candle));
+                }
+            }
+            if (state.forming != null && limit > 0) {
+                result.add(state.forming.materialise(symbol));
+            }
+            return result;
+        }
+    }
+
+    public void invalidate(String symbol) {
+        states.keySet().removeIf(k -> k.startsWith(symbol.toUpperCase() + "_"));
+    }
+
+    private static String key(String symbol, String timeframe) {
+        return symbol.toUpperCase() + "_" + timeframe.toLowerCase();
+    }
+
+    private static int parseMultiplier(String timeframe) {
+        try {
+            return Integer.parseInt(timeframe.substring(0, timeframe.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long toMillis(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static CryptoPrice copy(CryptoPrice c) {
+        return new CryptoPrice(c.getSymbol(), c.getClose(), c.getVolume(), c.getTimestamp(),
+                c.getOpen(), c.getHigh(), c.getLow(), c.getClose());
+    }
+
+    private static class RollupState {
+        final NavigableMap<Long, CryptoPrice> closed = new TreeMap<>();
+        FormingBucket forming;
+        long firstDailyTs = Long.MAX_VALUE;
+        long lastDailyTs = Long.MIN_VALUE;
+
+        void reset() {
+            closed.clear();
+            forming = null;
+            firstDailyTs = Long.MAX_VALUE;
+            lastDailyTs = Long.MIN_VALUE;
+        }
+
+        void apply(String timeframe, String symbol, CryptoPrice daily) {
+            long ts = daily.getTimestamp();
+            if (ts < lastDailyTs) return; // already folded into a bucket
+            long open = bucketOpen(timeframe, ts);
+
+            if (forming != null && open > forming.open) {
+                closed.put(forming.open, forming.materialise(symbol));
+                forming = null;
+            }
+            if (forming == null) {
+                // A closed bucket can reappear if the daily store was rewritten; start it over
+                closed.remove(open);
+                forming = new FormingBucket(open);
+            }
+            forming.accept(daily);
+
+            firstDailyTs = Math.min(firstDailyTs, ts);
+            lastDailyTs = ts;
+        }
+    }
+
+    /**
+     * Roll-up of the dailies already closed inside the bucket plus the latest daily,
+     * which may still be forming and is replaced (not added) when it is seen again.
+     */
+    private static class FormingBucket {
+        final long open;
+        double baseOpen, baseHigh = -Double.MAX_VALUE, baseLow = Double.MAX_VALUE, baseVolume;
+        boolean hasBase;
+        CryptoPrice latest;
+
+        FormingBucket(long open) {
+            this.open = open;
+        }
+
+        void accept(CryptoPrice daily) {
+            if (latest != null && daily.getTimestamp() > latest.getTimestamp()) {
+                if (!hasBase) baseOpen = latest.getOpen();
+                baseHigh = Math.max(baseHigh, latest.getHigh());
+                baseLow = Math.min(baseLow, latest.getLow());
+                baseVolume += latest.getVolume();
+                hasBase = true;
+            }
+            latest = daily;
+        }
+
+        CryptoPrice materialise(String symbol) {
+            double o = hasBase ? baseOpen : latest.getOpen();
+            double h = hasBase ? Math.max(baseHigh, latest.getHigh()) : latest.getHigh();
+            double l = hasBase ? Math.min(baseLow, latest.getLow()) : latest.getLow();
+            double v = baseVolume + latest.getVolume();
+            double c = latest.getClose();
+            return new CryptoPrice(symbol, c, v, open, o, h, l, c);
+        }
+    }
+}
@@ -1,13 +1,11 @@
 package com.pxbt.dev.aiTradingCharts.service;
 
 import com.pxbt.dev.aiTradingCharts.model.*;
-import com.pxbt.dev.aiTradingCharts.util.Ta4jConverter;
+import com.pxbt.dev.aiTradingCharts.util.AnalysisContext;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.indicators.SMAIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
 
 import java.util.*;
 
@@ -15,26 +13,37 @@ import java.util.*;
 @Service
 public class ChartPatternService {
 
-    public List<ChartPattern> detectPatterns(String symbol, List<CryptoPrice> prices) {
-        List<ChartPattern> patterns = new ArrayList<>();
+    @Autowired
+    private AnalysisContextService analysisContextService;
 
+    public List<ChartPattern> detectPatterns(String symbol, String timeframe, List<CryptoPrice> prices) {
         if (prices.size() < 20) {
             log.debug("Insufficient data for pattern detection: {} points", prices.size());
+            return new ArrayList<>();
+        }
+        return detectPatterns(analysisContextService.forCandles(symbol, timeframe, prices));
+    }
+
+    /**
+     * Pattern detection on a shared context (closes and benchmark SMAs computed once per candle window)
+     */
+    public List<ChartPattern> detectPatterns(AnalysisContext context) {
+        List<ChartPattern> patterns = new ArrayList<>();
+        String symbol = context.symbol();
+
+        if (context.size() < 20) {
+            log.debug("Insufficient data for pattern detection: {} points", context.size());
             return patterns;
         }
 
         try {
-            // Convert to ta4j BarSeries for better pattern recognition sub-analysis
-            BarSeries series = Ta4jConverter.toSeries(symbol, prices);
-            double[] priceArray = prices.stream()
-                    .mapToDouble(CryptoPrice::getPrice)
-                    .toArray();
+            double[] priceArray = context.closes();
 
             // Detect various patterns
-            patterns.addAll(detectSupportResistance(symbol, priceArray, prices));
-            patterns.addAll(detectTrendLines(symbol, series, prices));
-            patterns.addAll(detectChartPatterns(symbol, series, prices));
-            patterns.addAll(detectCandlestickPatterns(symbol, prices));
+            patterns.addAll(detectSupportResistance(symbol, priceArray));
+            patterns.addAll(detectTrendLines(symbol, context));
+            patterns.addAll(detectChartPatterns(symbol, context));
+            patterns.addAll(detectCandlestickPatterns(symbol, context.candles()));
 
             // Sort by confidence (highest first)
             patterns.sort((a, b) -> Double.compare(b.getConfidence(), a.getConfidence()));
@@ -48,7 +57,7 @@ public class ChartPatternService {
         return patterns;
     }
 
-    private List<ChartPattern> detectSupportResistance(String symbol, double[] prices, List<CryptoPrice> priceObjects) {
+    private List<ChartPattern> detectSupportResistance(String symbol, double[] prices) {
         List<ChartPattern> patterns = new ArrayList<>();
 
         // Simple support/resistance detection using swing points
@@ -96,16 +105,16 @@ public class ChartPatternService {
         return patterns;
     }
 
-    private List<ChartPattern> detectTrendLines(String symbol, BarSeries series, List<CryptoPrice> priceObjects) {
+    private List<ChartPattern> detectTrendLines(String symbol, AnalysisContext context) {
         List<ChartPattern> patterns = new ArrayList<>();
-        double[] prices = priceObjects.stream().mapToDouble(CryptoPrice::getPrice).toArray();
+        double[] prices = context.closes();
 
         // Detect uptrend (higher highs and higher lows)
         boolean uptrend = detectUptrend(prices, 10);
         boolean downtrend = detectDowntrend(prices, 10);
 
         if (uptrend) {
-            double trendStrength = calculateTrendStrength(series, true);
+            double trendStrength = calculateTrendStrength(context);
             patterns.add(new ChartPattern(
                     symbol,
                     "UPTREND",
@@ -117,7 +126,7 @@ public class ChartPatternService {
         }
 
         if (downtrend) {
-            double trendStrength = calculateTrendStrength(series, false);
+            double trendStrength = calculateTrendStrength(context);
             patterns.add(new ChartPattern(
                     symbol,
                     "DOWNTREND",
@@ -131,9 +140,9 @@ public class ChartPatternService {
         return patterns;
     }
 
-    private List<ChartPattern> detectChartPatterns(String symbol, BarSeries series, List<CryptoPrice> priceObjects) {
+    private List<ChartPattern> detectChartPatterns(String symbol, AnalysisContext context) {
         List<ChartPattern> patterns = new ArrayList<>();
-        double[] prices = priceObjects.stream().mapToDouble(CryptoPrice::getPrice).toArray();
+        double[] prices = context.closes();
 
         // Head and Shoulders
         ChartPattern headShoulders = detectHeadAndShoulders(prices);
@@ -147,44 +156,43 @@ public class ChartPatternService {
         if (doubleBottom != null) patterns.add(doubleBottom);
 
         // Triangle Patterns
-        ChartPattern triangle = detectTriangle(symbol, series, prices);
+        ChartPattern triangle = detectTriangle(symbol, context, prices);
         if (triangle != null) patterns.add(triangle);
 
         return patterns;
     }
 
-    private List<ChartPattern> detectCandlestickPatterns(String symbol, List<CryptoPrice> prices) {
+    private List<ChartPattern> detectCandlestickPatterns(String symbol, CandleColumns candles) {
         List<ChartPattern> patterns = new ArrayList<>();
 
-        if (prices.size() < 3) return patterns;
+        if (candles.size() < 3) return patterns;
 
         // Get last few prices for candlestick analysis
-        int end = prices.size();
+        int end = candles.size();
         int start = Math.max(0, end - 5); // Last 5 candles
-
-        List<CryptoPrice> recent = prices.subList(start, end);
+        double lastPrice = candles.close(end - 1);
 
         // Simple candlestick pattern detection
-        if (isBullishEngulfing(recent)) {
+        if (isBullishEngulfing(candles, end)) {
             patterns.add(new ChartPattern(
                     symbol, "BULLISH_ENGULFING",
-                    recent.get(recent.size()-1).getPrice(), 0.7,
+                    lastPrice, 0.7,
                     "Bullish reversal pattern", getCurrentTimestamp()
             ));
         }
 
-        if (isBearishEngulfing(recent)) {
+        if (isBearishEngulfing(candles, end)) {
             patterns.add(new ChartPattern(
                     symbol, "BEARISH_ENGULFING",
-                    recent.get(recent.size()-1).getPrice(), 0.7,
+                    lastPrice, 0.7,
                     "Bearish reversal pattern", getCurrentTimestamp()
             ));
         }
 
-        if (isDoji(recent)) {
+        if (isDoji(candles, start, end)) {
             patterns.add(new ChartPattern(
                     symbol, "DOJI",
-                    recent.get(recent.size()-1).getPrice(), 0.6,
+                    lastPrice, 0.6,
                     "Indecision pattern", getCurrentTimestamp()
             ));
         }
@@ -290,16 +298,13 @@ public class ChartPatternService {
         return lowerHighs && lowerLows;
     }
 
-    private double calculateTrendStrength(BarSeries series, boolean isUptrend) {
-        if (series.getBarCount() < 10) return 0.5;
+    private double calculateTrendStrength(AnalysisContext context) {
+        if (context.size() < 10) return 0.5;
 
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        SMAIndicator fast = new SMAIndicator(close, 5);
-        SMAIndicator slow = new SMAIndicator(close, 20);
-        
-        int lastIdx = series.getEndIndex();
-        double trend = (fast.getValue(lastIdx).doubleValue() - slow.getValue(lastIdx).doubleValue()) 
-                        / slow.getValue(lastIdx).doubleValue();
+        // SMA5 vs SMA20 from the context's benchmark indicators
+        double fast = context.benchmarks().sma5();
+        double slow = context.benchmarks().sma20();
+        double trend = (fast - slow) / slow;
         
         // Normalize to 0.5-0.9 based on deviation
         double normalized = 0.7 + (trend * 2.0);
@@ -380,18 +385,16 @@ public class ChartPatternService {
         return null;
     }
 
-    private ChartPattern detectTriangle(String symbol, BarSeries series, double[] prices) {
-        if (series.getBarCount() < 15) return null;
+    private ChartPattern detectTriangle(String symbol, AnalysisContext context, double[] prices) {
+        if (context.size() < 15) return null;
 
-        // Simple triangle detection using volatility contraction via ta4j
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        int total = series.getBarCount();
+        // Simple triangle detection using volatility contraction
+        int total = context.size();
+        int window = total / 3;
         
-        StandardDeviationIndicator stdDev = new StandardDeviationIndicator(close, total / 3);
-        
-        double earlyVolatility = stdDev.getValue(total / 3).doubleValue() / prices[total / 3];
-        double midVolatility = stdDev.getValue(total * 2 / 3).doubleValue() / prices[total * 2 / 3];
-        double lateVolatility = stdDev.getValue(total - 1).doubleValue() / prices[total - 1];
+        double earlyVolatility = context.stdDev(window, total / 3) / prices[total / 3];
+        double midVolatility = context.stdDev(window, total * 2 / 3) / prices[total * 2 / 3];
+        double lateVolatility = context.stdDev(window, total - 1) / prices[total - 1];
 
         if (lateVolatility < midVolatility && midVolatility < earlyVolatility) {
             return new ChartPattern(
@@ -409,39 +412,40 @@ public class ChartPatternService {
 
     // ===== CANDLESTICK PATTERNS =====
 
-    private boolean isBullishEngulfing(List<CryptoPrice> candles) {
-        if (candles.size() < 2) return false;
+    private boolean isBullishEngulfing(CandleColumns candles, int end) {
+        if (end < 2) return false;
 
-        CryptoPrice prev = candles.get(candles.size() - 2);
-        CryptoPrice current = candles.get(candles.size() - 1);
+        int prev = end - 2;
+        int current = end - 1;
 
         // Current candle opens below previous close and closes above previous open
-        return current.getPrice() > prev.getPrice() &&
-                current.getVolume() > prev.getVolume() * 0.8; // Volume confirmation
+        return candles.close(current) > candles.close(prev) &&
+                candles.volume(current) > candles.volume(prev) * 0.8; // Volume confirmation
     }
 
-    private boolean isBearishEngulfing(List<CryptoPrice> candles) {
-        if (candles.size() < 2) return false;
+    private boolean isBearishEngulfing(CandleColumns candles, int end) {
+        if (end < 2) return false;
 
-        CryptoPrice prev = candles.get(candles.size() - 2);
-        CryptoPrice current = candles.get(candles.size() - 1);
+        int prev = end - 2;
+        int current = end - 1;
 
         // Current candle opens above previous close and closes below previous open
-        return current.getPrice() < prev.getPrice() &&
-                current.getVolume() > prev.getVolume() * 0.8;
+        return candles.close(current) < candles.close(prev) &&
+                candles.volume(current) > candles.volume(prev) * 0.8;
     }
 
-    private boolean isDoji(List<CryptoPrice> candles) {
-        if (candles.isEmpty()) return false;
+    private boolean isDoji(CandleColumns candles, int start, int end) {
+        if (end <= start) return false;
 
-        CryptoPrice candle = candles.get(candles.size() - 1);
+        double price = candles.close(end - 1);
         // Simplified: small body relative to recent average
-        double avgBody = candles.stream()
-                .mapToDouble(CryptoPrice::getPrice)
-                .average()
-                .orElse(1.0);
+        double avgBody = 0;
+        for (int i = start; i < end; i++) {
+            avgBody += candles.close(i);
+        }
+        avgBody /= (end - start);
 
-        return Math.abs(candle.getPrice() - avgBody) / avgBody < 0.01; // Very small change
+        return Math.abs(price - avgBody) / avgBody < 0.01; // Very small change
     }
 
     // ===== UTILITY METHODS =====
@@ -0,0 +1,170 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed JSON bodies of responses that never change (e.g. closed-candle ranges), compressed once and
+ * served as-is to every client that accepts gzip. Server compression skips responses that already carry a
+ * Content-Encoding, so these are never compressed twice.
+ */
+@Slf4j
+@Service
+public class CompressedBodyCache {
+
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
+
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * The two encodings are different bytes, so each gets its own strong validator
+     */
+    public record Body(byte[] gzip, int rawLength, String etag, String gzipEtag) {}
+
+    private final Cache<String, Body> bodies = Caffeine.newBuilder()
+            .maximumWeight(MAX_BYTES)
+            .weigher((String key, Body body) -> body.gzip().length)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * The compressed body for {@code key}, written and compressed on the first request only
+     */
+    public Body get(String key, BodyWriter writer) {
+        return bodies.get(key, k -> compress(k, writer));
+    }
+
+    /**
+     * 304 when the client already holds this body, the gzip bytes when it accepts gzip, else the inflated JSON
+     */
+    public ResponseEntity<byte[]> respond(Body body, String acceptEncoding, String ifNoneMatch) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? body.gzipEtag() : body.etag();
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CACHE_CONTROL)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(CACHE_CONTROL)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.body(inflate(body));
+    }
+
+    /**
+     * Whether Accept-Encoding allows gzip: listed (or covered by "*") with a non-zero q-value
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        Double gzipQ = null;
+        Double wildcardQ = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().toLowerCase();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQ = gzipQ == null ? q : Math.max(gzipQ, q);
+            } else if (name.equals("*")) {
+                wildcardQ = q;
+            }
+        }
+        if (gzipQ != null) {
+            return gzipQ > 0;
+        }
+        return wildcardQ != null && wildcardQ > 0;
+    }
+
+    private static Body compress(String key, BodyWriter writer) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+            CountingOutputStream raw;
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer, 8 * 1024)) {
+                raw = new CountingOutputStream(gzip);
+                writer.writeTo(raw);
+            }
+            byte[] compressed = buffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(compressed);
+            String tag = Long.toHexString(crc.getValue()) + "-" + compressed.length;
+            log.debug("🗜️ Precompressed {}: {} → {} bytes", key, raw.count, compressed.length);
+            return new Body(compressed, (int) raw.count, "\"" + tag + "\"", "\"" + tag + "-gzip\"");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] inflate(Body body) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body.gzip()))) {
+            return in.readNBytes(body.rawLength());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Raw length, so clients without gzip get a body inflated in one allocation
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
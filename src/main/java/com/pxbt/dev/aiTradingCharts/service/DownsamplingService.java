@@ -0,0 +1,55 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
+import com.pxbt.dev.aiTradingCharts.util.Downsampler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downsampled chart levels, cached per (symbol, tf, range, maxPoints, mode).
+ * The source's size and its last candle (timestamp and OHLCV) are part of the key, so neither a new candle nor
+ * an update to the forming one serves a stale level.
+ */
+@Slf4j
+@Service
+public class DownsamplingService {
+
+    public static final String MODE_CANDLES = "candles";
+    public static final String MODE_LINE = "line";
+
+    private final Cache<String, CandleColumns> levels = Caffeine.newBuilder()
+            .maximumSize(200)
+            .expireAfterWrite(30, TimeUnit.MINUTES)
+            .softValues()
+            .build();
+
+    /**
+     * @param range free-form description of the requested window ("last:300", "1609459200000-1640995199999")
+     */
+    public CandleColumns downsample(String symbol, String timeframe, String range,
+                                    CandleColumns source, int maxPoints, String mode) {
+        if (source.size() <= maxPoints) {
+            return source;
+        }
+
+        boolean line = MODE_LINE.equalsIgnoreCase(mode);
+        int last = source.size() - 1;
+        String key = String.join("|", symbol.toUpperCase(), timeframe, range, String.valueOf(maxPoints),
+                line ? MODE_LINE : MODE_CANDLES,
+                String.valueOf(source.lastTimestamp()), String.valueOf(source.size()),
+                String.valueOf(source.high(last)), String.valueOf(source.low(last)),
+                String.valueOf(source.close(last)), String.valueOf(source.volume(last)));
+
+        return levels.get(key, k -> {
+            CandleColumns level = line
+                    ? Downsampler.lttb(source, maxPoints)
+                    : Downsampler.ohlcBuckets(source, maxPoints);
+            log.debug("📉 Downsampled {} {} {} → {} points ({})", symbol, timeframe, source.size(), level.size(), mode);
+            return level;
+        });
+    }
+}
@@ -26,6 +26,7 @@ public class FearGreedService {
     private final RestTemplate restTemplate = new RestTemplate();
     private final AtomicReference<Double> cached = new AtomicReference<>(50.0); // neutral default
     private final AtomicLong lastFetch = new AtomicLong(0);
+    private final AtomicLong version = new AtomicLong(0);
 
     /**
      * Returns the raw Fear & Greed score (0–100).
@@ -44,7 +45,9 @@ public class FearGreedService {
                 List<Map<String, Object>> data = (List<Map<String, Object>>) body.get("data");
                 if (data != null && !data.isEmpty()) {
                     double score = Double.parseDouble(data.get(0).get("value").toString());
-                    cached.set(score);
+                    if (cached.getAndSet(score) != score) {
+                        version.incrementAndGet();
+                    }
                     lastFetch.set(now);
                     log.info("😱 Fear & Greed updated: {} ({})", score, data.get(0).get("value_classification"));
                     return score;
@@ -56,6 +59,13 @@ public class FearGreedService {
         return cached.get();
     }
 
+    /**
+     * Increments each time a fetch returns a different score; never triggers a fetch itself
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
     /**
      * Returns a mean-reversion signal in [-1, +1].
      *  -1 = extreme greed  (expect downward reversion)
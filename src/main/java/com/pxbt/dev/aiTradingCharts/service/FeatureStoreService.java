@@ -0,0 +1,190 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.util.FeatureColumns;
+import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materialised feature vectors per (symbol, timeframe, feature schema), shared by training, backtests,
+ * walk-forward and live prediction.
+ *
+ * Callers pass the candles they already hold and get back the feature rows aligned to them. The stored
+ * candles are the data version: rows are reused while timestamp, close and volume still match, and only
+ * the rows from the first changed or new candle onwards are computed. A window that starts before the
+ * stored history triggers a rebuild from the longer history; windows inside it are served as-is, so every
+ * caller sees features computed from the same origin.
+ */
+@Slf4j
+@Service
+public class FeatureStoreService {
+
+    private static final String FEATURE_DIR = HistoricalDataFileService.getDataDir() + "features/";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        FeatureColumns columns;
+        int persistedRows = -1; // Settled rows (all but the forming candle) last written to disk
+    }
+
+    /**
+     * Feature rows for the given candles, row j matching candles.get(j)
+     */
+    public FeatureColumns getFeatures(String symbol, String timeframe, List<CryptoPrice> candles) {
+        if (candles.isEmpty()) {
+            return new FeatureColumns(0);
+        }
+        Entry entry = entries.computeIfAbsent(key(symbol, timeframe), k -> new Entry());
+        synchronized (entry) {
+            int start = sync(entry, symbol, timeframe, candles);
+            return entry.columns.slice(start, start + candles.size());
+        }
+    }
+
+    /**
+     * Feature vector of the last candle only
+     */
+    public double[] getLatestFeatures(String symbol, String timeframe, List<CryptoPrice> candles) {
+        if (candles.isEmpty()) {
+            return new double[FeatureColumns.WIDTH];
+        }
+        Entry entry = entries.computeIfAbsent(key(symbol, timeframe), k -> new Entry());
+        synchronized (entry) {
+            int start = sync(entry, symbol, timeframe, candles);
+            return entry.columns.features(start + candles.size() - 1);
+        }
+    }
+
+    /**
+     * Feature vector of the last (forming) candle re-priced at a live tick. The tick is previewed on the
+     * streaming indicator state and never stored.
+     */
+    public double[] getLatestFeatures(String symbol, String timeframe, List<CryptoPrice> candles, double livePrice) {
+        if (candles.isEmpty() || livePrice <= 0) {
+            return getLatestFeatures(symbol, timeframe, candles);
+        }
+        Entry entry = entries.computeIfAbsent(key(symbol, timeframe), k -> new Entry());
+        synchronized (entry) {
+            int start = sync(entry, symbol, timeframe, candles);
+            int last = start + candles.size() - 1;
+            if (last != entry.columns.size() - 1 || livePrice == entry.columns.close(last)) {
+                // Window ends inside the stored history (not the forming candle), or nothing to re-price
+                return entry.columns.features(last);
+            }
+            return entry.columns.previewLast(symbol, timeframe, livePrice);
+        }
+    }
+
+    /**
+     * Bring the stored rows in line with the candles and return the row of the first candle
+     */
+    private int sync(Entry entry, String symbol, String timeframe, List<CryptoPrice> candles) {
+        if (entry.columns == null) {
+            entry.columns = load(symbol, timeframe);
+            entry.persistedRows = entry.columns.size() - 1;
+        }
+        FeatureColumns columns = entry.columns;
+        long first = candles.get(0).getTimestamp();
+
+        int start = columns.isEmpty() ? 0 : columns.lowerBound(first);
+        boolean aligned = !columns.isEmpty() && start < columns.size() && columns.timestamp(start) == first;
+        if (!aligned) {
+            // Longer history than stored (or no overlap at all): start again from these candles
+            if (!columns.isEmpty()) {
+                log.info("🔁 Rebuilding {} {} features from {} candles (stored origin moved)",
+                        symbol, timeframe, candles.size());
+            }
+            columns = new FeatureColumns(candles.size());
+            entry.columns = columns;
+            entry.persistedRows = -1;
+            start = 0;
+        }
+
+        // Skip the candles already stored unchanged
+        int j = 0;
+        while (j < candles.size() && start + j < columns.size()) {
+            CryptoPrice p = candles.get(j);
+            if (!columns.sameCandle(start + j, p.getTimestamp(), closeOf(p), p.getVolume())) break;
+            j++;
+        }
+        if (j == candles.size()) {
+            return start;
+        }
+
+        int changedFrom = start + j;
+        columns.truncate(changedFrom);
+        for (int k = j; k < candles.size(); k++) {
+            CryptoPrice p = candles.get(k);
+            columns.add(p.getTimestamp(), closeOf(p), p.getVolume());
+        }
+        columns.computeFeatures(symbol, timeframe, changedFrom);
+        log.debug("🧬 {} {} features: {} rows computed from row {} ({} stored)",
+                symbol, timeframe, columns.size() - changedFrom, changedFrom, columns.size());
+
+        // Only persist when a closed candle changed or arrived; the forming candle churns on every tick
+        int settled = columns.size() - 1;
+        if (settled != entry.persistedRows || changedFrom < entry.persistedRows) {
+            save(symbol, timeframe, columns);
+            entry.persistedRows = settled;
+        }
+        return start;
+    }
+
+    private FeatureColumns load(String symbol, String timeframe) {
+        Path path = path(symbol, timeframe);
+        if (Files.exists(path)) {
+            try {
+                FeatureColumns columns = FeatureColumns.read(path, FeatureExtractor.SCHEMA_VERSION);
+                if (columns != null) {
+                    log.info("📂 Loaded {} stored feature rows for {} {}", columns.size(), symbol, timeframe);
+                    return columns;
+                }
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to read feature store for {} {}: {}", symbol, timeframe, e.getMessage());
+            }
+        }
+        return new FeatureColumns(0);
+    }
+
+    private void save(String symbol, String timeframe, FeatureColumns columns) {
+        Path target = path(symbol, timeframe);
+        Path temp = Paths.get(target + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            columns.write(temp, FeatureExtractor.SCHEMA_VERSION);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.error("❌ Failed to save feature store for {} {}: {}", symbol, timeframe, e.getMessage());
+        }
+    }
+
+    private static Path path(String symbol, String timeframe) {
+        return Paths.get(FEATURE_DIR + key(symbol, timeframe) + ".v" + FeatureExtractor.SCHEMA_VERSION + FeatureColumns.EXTENSION);
+    }
+
+    private static String key(String symbol, String timeframe) {
+        // FeatureExtractor treats 1m and 1M alike (monthly), so the store does too
+        return symbol.toUpperCase().replaceAll("[^A-Z0-9]", "") + "_" + timeframe.toLowerCase().replaceAll("[^a-z0-9]", "");
+    }
+
+    private static double closeOf(CryptoPrice p) {
+        // Same fallback as Ta4jConverter
+        return p.getClose() != 0 ? p.getClose() : p.getPrice();
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Fetches Binance perpetual futures funding rates (free, no API key for read-only).
@@ -26,6 +27,7 @@ public class FundingRateService {
 
     private record CacheEntry(double rate, long timestamp) {}
     private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong(0);
 
     /**
      * Returns the latest funding rate for the given symbol (e.g. "BTC").
@@ -43,20 +45,34 @@ public class FundingRateService {
             String url = String.format(FUNDING_URL, key);
             @SuppressWarnings("unchecked")
             Map<String, Object> body = restTemplate.getForObject(url, Map.class);
-            if (body != null) {
-                Object rateObj = body.get("lastFundingRate");
-                if (rateObj == null) return 0.0;
+            Object rateObj = body != null ? body.get("lastFundingRate") : null;
+            if (rateObj != null) {
                 double rate = Double.parseDouble(rateObj.toString());
-                cache.put(key, new CacheEntry(rate, now));
+                CacheEntry previous = cache.put(key, new CacheEntry(rate, now));
+                if (previous == null || previous.rate() != rate) {
+                    version.incrementAndGet();
+                }
                 log.info("💸 Funding rate [{}]: {}%", key, String.format("%.4f", rate * 100));
                 return rate;
             }
         } catch (Exception e) {
             log.debug("Funding rate unavailable for {} (no futures market or API error): {}", key, e.getMessage());
         }
+        // Cache the miss too, so symbols without a futures market are not re-fetched on every call
+        CacheEntry previous = cache.put(key, new CacheEntry(0.0, now));
+        if (previous != null && previous.rate() != 0.0) {
+            version.incrementAndGet();
+        }
         return 0.0;
     }
 
+    /**
+     * Increments each time a fetch returns a different rate for any symbol; never triggers a fetch itself
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
     /**
      * Returns a mean-reversion signal in [-1, +1] based on funding rate.
      *  +1 = funding strongly negative (shorts crowded → expect upward reversion)
@@ -3,6 +3,8 @@ package com.pxbt.dev.aiTradingCharts.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
 import com.pxbt.dev.aiTradingCharts.handler.CryptoWebSocketHandler;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
+import com.pxbt.dev.aiTradingCharts.util.CandleSegmentCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -31,6 +33,13 @@ public class HistoricalDataFileService {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Open times of the newest two candles per segment file (the last may still be forming), kept in step with saves
+    private final Map<String, long[]> tailTimestamps = new ConcurrentHashMap<>();
+
+    public static String getDataDir() {
+        return DATA_DIR;
+    }
+
     @Autowired
     @Lazy
     private CryptoWebSocketHandler webSocketHandler;
@@ -50,17 +59,23 @@ public class HistoricalDataFileService {
             return;
         }
 
-        String filename = getFilename(symbol, interval);
+        String filename = getSegmentFilename(symbol, interval);
 
         try {
             Path tempFile = Paths.get(filename + ".tmp");
             Path finalFile = Paths.get(filename);
 
             Files.createDirectories(tempFile.getParent());
-            objectMapper.writeValue(tempFile.toFile(), data);
+            CandleColumns columns = CandleColumns.fromPrices(data);
+            CandleSegmentCodec.write(tempFile, columns);
             Files.move(tempFile, finalFile, StandardCopyOption.REPLACE_EXISTING);
+            tailTimestamps.put(filename, tailOf(columns));
 
-            String msg = String.format("Saved %d candles for %s %s", data.size(), symbol, interval);
+            // The segment supersedes the legacy JSON file
+            Files.deleteIfExists(Paths.get(getFilename(symbol, interval)));
+
+            String msg = String.format("Saved %d candles for %s %s (%d KB)",
+                    data.size(), symbol, interval, Files.size(finalFile) / 1024);
             log.info("💾 " + msg);
             webSocketHandler.broadcastEvent("DISK", msg);
 
@@ -73,10 +88,58 @@ public class HistoricalDataFileService {
         return loadRecentData(symbol, interval, 3000); // Increased from 1500 to restore 2300+ sample depth for models
     }
 
+    /**
+     * Last N candles as primitive columns, decoding only the trailing blocks of the segment
+     */
+    public CandleColumns loadRecentColumns(String symbol, String interval, int limit) {
+        Path segment = Paths.get(getSegmentFilename(symbol, interval));
+        if (Files.exists(segment)) {
+            try {
+                return CandleSegmentCodec.readTail(segment, limit);
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to decode segment for {} {}: {}", symbol, interval, e.getMessage());
+                return new CandleColumns(0);
+            }
+        }
+        return CandleColumns.fromPrices(loadLegacyJson(symbol, interval, limit));
+    }
+
+    /**
+     * Candles with from <= timestamp <= to, capped to the latest {@code maxPoints}.
+     * Segments are served through their block index; legacy JSON is streamed and filtered.
+     */
+    public CandleColumns loadRangeColumns(String symbol, String interval, long from, long to, int maxPoints) {
+        Path segment = Paths.get(getSegmentFilename(symbol, interval));
+        if (Files.exists(segment)) {
+            try {
+                return CandleSegmentCodec.readRange(segment, from, to).tail(maxPoints);
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to decode segment range for {} {}: {}", symbol, interval, e.getMessage());
+                return new CandleColumns(0);
+            }
+        }
+
+        List<CryptoPrice> inRange = new ArrayList<>();
+        for (CryptoPrice p : loadLegacyJson(symbol, interval, Integer.MAX_VALUE)) {
+            if (p.getTimestamp() >= from && p.getTimestamp() <= to) inRange.add(p);
+        }
+        return CandleColumns.fromPrices(inRange).tail(maxPoints);
+    }
+
     /**
      * Load only the last N items efficiently using streaming to save RAM
      */
     public List<CryptoPrice> loadRecentData(String symbol, String interval, int limit) {
+        if (Files.exists(Paths.get(getSegmentFilename(symbol, interval)))) {
+            return loadRecentColumns(symbol, interval, limit).toPrices(symbol);
+        }
+        return loadLegacyJson(symbol, interval, limit);
+    }
+
+    /**
+     * Pre-segment JSON / JSONL files, streamed through a sliding window
+     */
+    private List<CryptoPrice> loadLegacyJson(String symbol, String interval, int limit) {
         String filename = getFilename(symbol, interval);
         File file = new File(filename);
 
@@ -85,7 +148,7 @@ public class HistoricalDataFileService {
 
         // Use a Deque as a sliding window to keep only the 'limit' most recent items in
         // memory
-        Deque<CryptoPrice> window = new ArrayDeque<>(limit);
+        Deque<CryptoPrice> window = new ArrayDeque<>(Math.min(limit, 4096));
 
         try (com.fasterxml.jackson.core.JsonParser parser = objectMapper.getFactory().createParser(file)) {
             // Check if it's the start of an array
@@ -128,9 +191,35 @@ public class HistoricalDataFileService {
         return new ArrayList<>(window);
     }
 
+    /**
+     * Open time of the newest stored candle that opened before {@code formingOpen}, or -1 if there is none.
+     * Served from memory; the file is read once per symbol/interval and saves keep it current.
+     */
+    public long lastClosedTimestamp(String symbol, String interval, long formingOpen) {
+        long[] tail = tailTimestamps.computeIfAbsent(getSegmentFilename(symbol, interval),
+                k -> tailOf(loadRecentColumns(symbol, interval, 2)));
+        for (int i = tail.length - 1; i >= 0; i--) {
+            if (tail[i] < formingOpen) return tail[i];
+        }
+        return -1;
+    }
+
+    private static long[] tailOf(CandleColumns columns) {
+        int from = Math.max(0, columns.size() - 2);
+        long[] tail = new long[columns.size() - from];
+        for (int i = from; i < columns.size(); i++) {
+            tail[i - from] = columns.timestamp(i);
+        }
+        return tail;
+    }
+
+    public boolean hasData(String symbol, String interval) {
+        File file = currentFile(symbol, interval);
+        return file.exists() && file.length() > 0;
+    }
+
     public boolean needsUpdate(String symbol, String interval, int maxAgeHours) {
-        String filename = getFilename(symbol, interval);
-        File file = new File(filename);
+        File file = currentFile(symbol, interval);
 
         if (!file.exists()) {
             return true;
@@ -142,19 +231,46 @@ public class HistoricalDataFileService {
     }
 
     public void pruneFileIfNeeded(String symbol, String interval, int maxPoints) {
-        String filename = getFilename(symbol, interval);
-        File file = new File(filename);
-        if (!file.exists() || file.length() < 1024 * 1024)
-            return; // Only prune if > 1MB
+        File file = currentFile(symbol, interval);
+        if (!file.exists())
+            return;
+
+        if (file.getName().endsWith(CandleSegmentCodec.EXTENSION)) {
+            try {
+                if (CandleSegmentCodec.count(file.toPath()) <= maxPoints)
+                    return; // Segments know their candle count - no size heuristic needed
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to read segment header {}: {}", file.getName(), e.getMessage());
+                return;
+            }
+        } else if (file.length() < 1024 * 1024) {
+            return; // Only prune legacy JSON if > 1MB
+        }
 
-        log.info("✂️ Pruning file {} to {} points", filename, maxPoints);
+        log.info("✂️ Pruning file {} to {} points", file.getName(), maxPoints);
         List<CryptoPrice> recent = loadRecentData(symbol, interval, maxPoints);
         saveHistoricalData(symbol, interval, recent);
     }
 
+    /**
+     * Segment if present, otherwise the legacy JSON file
+     */
+    private File currentFile(String symbol, String interval) {
+        File segment = new File(getSegmentFilename(symbol, interval));
+        return segment.exists() ? segment : new File(getFilename(symbol, interval));
+    }
+
+    private String getSegmentFilename(String symbol, String interval) {
+        return getBaseFilename(symbol, interval) + CandleSegmentCodec.EXTENSION;
+    }
+
     private String getFilename(String symbol, String interval) {
+        return getBaseFilename(symbol, interval) + ".json";
+    }
+
+    private String getBaseFilename(String symbol, String interval) {
         String cleanSymbol = symbol.toUpperCase().replaceAll("[^A-Z0-9]", "");
         String cleanInterval = interval.toLowerCase().replaceAll("[^a-z0-9]", "");
-        return DATA_DIR + cleanSymbol + "_" + cleanInterval + ".json";
+        return DATA_DIR + cleanSymbol + "_" + cleanInterval;
     }
 }
\ No newline at end of file
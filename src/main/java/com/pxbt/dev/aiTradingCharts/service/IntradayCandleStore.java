@@ -0,0 +1,350 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
+import com.pxbt.dev.aiTradingCharts.util.CandleSegmentCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time-partitioned storage for intraday candles.
+ * Layout: {DATA_DIR}/intraday/{SYMBOL}/{tf}/{partition}.cseg, one compressed segment per day (1min),
+ * month (15min, 1h) or year (4h), so reads only touch the partitions a query overlaps.
+ * "1m" stays monthly in this codebase; one-minute candles use the "1min" code.
+ */
+@Slf4j
+@Service
+public class IntradayCandleStore {
+
+    public enum Tier {
+        MIN_1("1min", "1m", TimeUnit.MINUTES.toMillis(1), "yyyy-MM-dd"),
+        MIN_15("15min", "15m", TimeUnit.MINUTES.toMillis(15), "yyyy-MM"),
+        HOUR_1("1h", "1h", TimeUnit.HOURS.toMillis(1), "yyyy-MM"),
+        HOUR_4("4h", "4h", TimeUnit.HOURS.toMillis(4), "yyyy");
+
+        public final String code;
+        public final String binanceInterval;
+        public final long millis;
+        final DateTimeFormatter partitionFormat;
+
+        Tier(String code, String binanceInterval, long millis, String partitionPattern) {
+            this.code = code;
+            this.binanceInterval = binanceInterval;
+            this.millis = millis;
+            this.partitionFormat = DateTimeFormatter.ofPattern(partitionPattern).withZone(ZoneOffset.UTC);
+        }
+
+        public long bucketOpen(long timestamp) {
+            return Math.floorDiv(timestamp, millis) * millis;
+        }
+
+        String partitionOf(long timestamp) {
+            return partitionFormat.format(Instant.ofEpochMilli(timestamp));
+        }
+
+        /** Exclusive end (UTC ms) of a partition */
+        long partitionEnd(String partition) {
+            LocalDate start = switch (partition.length()) {
+                case 4 -> LocalDate.of(Integer.parseInt(partition), 1, 1).plusYears(1);
+                case 7 -> LocalDate.parse(partition + "-01").plusMonths(1);
+                default -> LocalDate.parse(partition).plusDays(1);
+            };
+            return start.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+
+        long partitionStart(String partition) {
+            LocalDate start = switch (partition.length()) {
+                case 4 -> LocalDate.of(Integer.parseInt(partition), 1, 1);
+                case 7 -> LocalDate.parse(partition + "-01");
+                default -> LocalDate.parse(partition);
+            };
+            return start.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+    }
+
+    private static final String EXT = CandleSegmentCodec.EXTENSION;
+
+    private final String intradayDir;
+    private final Map<String, Object> partitionLocks = new ConcurrentHashMap<>();
+
+    // Coarser-tier bucket still being rolled up from minutes, per SYMBOL_tier. Only closed buckets are persisted;
+    // reads overlay this one so charts stay current.
+    private final Map<String, CryptoPrice> formingBuckets = new ConcurrentHashMap<>();
+
+    // Retention per tier in days (0 = keep forever). Coarser tiers are rolled up before 1min expires.
+    @Value("${app.intraday.retention.1min:14}")
+    private int retention1min;
+    @Value("${app.intraday.retention.15min:180}")
+    private int retention15min;
+    @Value("${app.intraday.retention.1h:730}")
+    private int retention1h;
+    @Value("${app.intraday.retention.4h:0}")
+    private int retention4h;
+
+    public IntradayCandleStore() {
+        this(HistoricalDataFileService.getDataDir() + "intraday/");
+    }
+
+    IntradayCandleStore(String intradayDir) {
+        this.intradayDir = intradayDir;
+    }
+
+    public static Optional<Tier> tierOf(String timeframe) {
+        if (timeframe == null) return Optional.empty();
+        for (Tier tier : Tier.values()) {
+            if (tier.code.equalsIgnoreCase(timeframe)) return Optional.of(tier);
+        }
+        return Optional.empty();
+    }
+
+    public boolean isIntraday(String timeframe) {
+        return tierOf(timeframe).isPresent();
+    }
+
+    /**
+     * Merge candles into their partitions (newer data wins). One-minute candles are rolled up into every
+     * coarser tier: a bucket is written once a minute of the next bucket arrives, the forming one stays in memory.
+     */
+    public void append(String symbol, String timeframe, List<CryptoPrice> candles) {
+        Tier tier = tierOf(timeframe).orElseThrow(() -> new IllegalArgumentException("Not intraday: " + timeframe));
+        if (candles == null || candles.isEmpty()) return;
+
+        Map<String, List<CryptoPrice>> byPartition = new TreeMap<>();
+        for (CryptoPrice c : candles) {
+            byPartition.computeIfAbsent(tier.partitionOf(c.getTimestamp()), p -> new ArrayList<>()).add(c);
+        }
+        byPartition.forEach((partition, batch) -> mergePartition(symbol, tier, partition, batch));
+
+        if (tier == Tier.MIN_1) {
+            long from = candles.stream().mapToLong(CryptoPrice::getTimestamp).min().orElse(0);
+            long to = candles.stream().mapToLong(CryptoPrice::getTimestamp).max().orElse(0);
+            long newestMinute = latestTimestamp(symbol, Tier.MIN_1.code);
+            for (Tier coarser : new Tier[]{Tier.MIN_15, Tier.HOUR_1, Tier.HOUR_4}) {
+                rollUp(symbol, coarser, from, to, newestMinute);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the {@code target} buckets touched by [from, to] from one-minute candles. The newest stored minute may
+     * still be forming, so only buckets ending at or before it are closed and persisted (a month or year partition
+     * is rewritten once per closed bucket, not per tick); the bucket holding it becomes the in-memory forming bucket.
+     * Buckets whose open predates our minute coverage are left to the native backfill.
+     */
+    private void rollUp(String symbol, Tier target, long from, long to, long newestMinute) {
+        long firstBucket = target.bucketOpen(from);
+        long lastBucketEnd = target.bucketOpen(to) + target.millis;
+        List<CryptoPrice> minutes = loadRange(symbol, Tier.MIN_1.code, firstBucket, lastBucketEnd - 1, Integer.MAX_VALUE);
+        if (minutes.isEmpty()) return;
+
+        List<CryptoPrice> rolled = new ArrayList<>();
+        CryptoPrice bucket = null;
+        for (CryptoPrice m : minutes) {
+            long open = target.bucketOpen(m.getTimestamp());
+            if (bucket == null || bucket.getTimestamp() != open) {
+                if (bucket != null) rolled.add(bucket);
+                if (m.getTimestamp() != open) { // first minute missing - partial bucket, skip it
+                    bucket = null;
+                    continue;
+                }
+                bucket = new CryptoPrice(symbol, m.getClose(), m.getVolume(), open, m.getOpen(), m.getHigh(), m.getLow(), m.getClose());
+            } else {
+                bucket.setHigh(Math.max(bucket.getHigh(), m.getHigh()));
+                bucket.setLow(Math.min(bucket.getLow(), m.getLow()));
+                bucket.setClose(m.getClose());
+                bucket.setPrice(m.getClose());
+                bucket.setVolume(bucket.getVolume() + m.getVolume());
+            }
+        }
+        if (bucket != null) rolled.add(bucket);
+
+        String formingKey = formingKey(symbol, target);
+        List<CryptoPrice> closed = new ArrayList<>(rolled.size());
+        for (CryptoPrice candle : rolled) {
+            if (candle.getTimestamp() + target.millis <= newestMinute) {
+                closed.add(candle);
+            } else {
+                formingBuckets.put(formingKey, candle);
+            }
+        }
+        // A forming bucket that has since closed is served from its partition
+        formingBuckets.computeIfPresent(formingKey, (k, f) -> f.getTimestamp() + target.millis <= newestMinute ? null : f);
+
+        if (!closed.isEmpty()) {
+            append(symbol, target.code, closed);
+            log.debug("🧮 Rolled {} closed {} candles up from 1min for {}", closed.size(), target.code, symbol);
+        }
+    }
+
+    /**
+     * Most recent {@code limit} candles, walking partitions newest first so memory stays O(limit).
+     */
+    public List<CryptoPrice> loadRecent(String symbol, String timeframe, int limit) {
+        Tier tier = tierOf(timeframe).orElse(null);
+        if (tier == null || limit <= 0) return new ArrayList<>();
+
+        List<String> partitions = listPartitions(symbol, tier);
+        Deque<CryptoPrice> result = new ArrayDeque<>(Math.min(limit, 4096));
+        for (int i = partitions.size() - 1; i >= 0 && result.size() < limit; i--) {
+            List<CryptoPrice> part = readPartition(symbol, tier, partitions.get(i));
+            for (int j = part.size() - 1; j >= 0 && result.size() < limit; j--) {
+                result.addFirst(part.get(j));
+            }
+        }
+        List<CryptoPrice> candles = new ArrayList<>(result);
+        overlayForming(symbol, tier, candles, Long.MIN_VALUE, Long.MAX_VALUE, limit);
+        return candles;
+    }
+
+    /**
+     * Candles with from <= timestamp <= to, reading only overlapping partitions.
+     * Keeps at most {@code maxPoints} (the latest ones) in memory.
+     */
+    public List<CryptoPrice> loadRange(String symbol, String timeframe, long from, long to, int maxPoints) {
+        Tier tier = tierOf(timeframe).orElse(null);
+        if (tier == null || maxPoints <= 0 || to < from) return new ArrayList<>();
+
+        Deque<CryptoPrice> window = new ArrayDeque<>(Math.min(maxPoints, 4096));
+        for (String partition : listPartitions(symbol, tier)) {
+            if (tier.partitionEnd(partition) <= from || tier.partitionStart(partition) > to) continue;
+            for (CryptoPrice c : readPartition(symbol, tier, partition)) {
+                if (c.getTimestamp() < from || c.getTimestamp() > to) continue;
+                if (window.size() >= maxPoints) window.removeFirst();
+                window.addLast(c);
+            }
+        }
+        List<CryptoPrice> candles = new ArrayList<>(window);
+        overlayForming(symbol, tier, candles, from, to, maxPoints);
+        return candles;
+    }
+
+    // Adds the in-memory forming bucket when it is in [from, to] and not older than the stored candles
+    private void overlayForming(String symbol, Tier tier, List<CryptoPrice> candles, long from, long to, int maxPoints) {
+        if (tier == Tier.MIN_1) return;
+        CryptoPrice forming = formingBuckets.get(formingKey(symbol, tier));
+        if (forming == null || forming.getTimestamp() < from || forming.getTimestamp() > to) return;
+
+        long lastStored = candles.isEmpty() ? Long.MIN_VALUE : candles.get(candles.size() - 1).getTimestamp();
+        if (forming.getTimestamp() < lastStored) return;
+        if (forming.getTimestamp() == lastStored) {
+            candles.remove(candles.size() - 1); // a natively fetched partial bucket, ours is fresher
+        } else if (candles.size() >= maxPoints) {
+            candles.remove(0);
+        }
+        candles.add(new CryptoPrice(symbol.toUpperCase(), forming.getClose(), forming.getVolume(), forming.getTimestamp(),
+                forming.getOpen(), forming.getHigh(), forming.getLow(), forming.getClose()));
+    }
+
+    public long latestTimestamp(String symbol, String timeframe) {
+        List<CryptoPrice> last = loadRecent(symbol, timeframe, 1);
+        return last.isEmpty() ? -1 : last.get(0).getTimestamp();
+    }
+
+    /**
+     * Drop partitions that fell out of their tier's retention window
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void enforceRetention() {
+        File root = new File(intradayDir);
+        File[] symbols = root.listFiles(File::isDirectory);
+        if (symbols == null) return;
+
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (File symbolDir : symbols) {
+            for (Tier tier : Tier.values()) {
+                int days = retentionDays(tier);
+                if (days <= 0) continue;
+                long cutoff = now - TimeUnit.DAYS.toMillis(days);
+                for (String partition : listPartitions(symbolDir.getName(), tier)) {
+                    if (tier.partitionEnd(partition) > cutoff) break; // sorted oldest first
+                    if (new File(partitionFile(symbolDir.getName(), tier, partition)).delete()) removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("🧹 Intraday retention removed {} expired partitions", removed);
+        }
+    }
+
+    private int retentionDays(Tier tier) {
+        return switch (tier) {
+            case MIN_1 -> retention1min;
+            case MIN_15 -> retention15min;
+            case HOUR_1 -> retention1h;
+            case HOUR_4 -> retention4h;
+        };
+    }
+
+    private void mergePartition(String symbol, Tier tier, String partition, List<CryptoPrice> batch) {
+        String filename = partitionFile(symbol, tier, partition);
+        synchronized (partitionLocks.computeIfAbsent(filename, f -> new Object())) {
+            TreeMap<Long, CryptoPrice> merged = new TreeMap<>();
+            for (CryptoPrice c : readPartition(symbol, tier, partition)) merged.put(c.getTimestamp(), c);
+            for (CryptoPrice c : batch) merged.put(c.getTimestamp(), c);
+
+            try {
+                Path tempFile = Paths.get(filename + ".tmp");
+                Files.createDirectories(tempFile.getParent());
+                CandleSegmentCodec.write(tempFile, CandleColumns.fromPrices(new ArrayList<>(merged.values())));
+                Files.move(tempFile, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.error("❌ Failed to write intraday partition {}: {}", filename, e.getMessage());
+            }
+        }
+    }
+
+    private List<CryptoPrice> readPartition(String symbol, Tier tier, String partition) {
+        Path file = Paths.get(partitionFile(symbol, tier, partition));
+        if (!Files.exists(file)) return new ArrayList<>();
+
+        try {
+            return CandleSegmentCodec.readAll(file).toPrices(symbol.toUpperCase());
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to read intraday partition {}: {}", file.getFileName(), e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private List<String> listPartitions(String symbol, Tier tier) {
+        Path dir = Paths.get(tierDir(symbol, tier));
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(EXT))
+                    .map(n -> n.substring(0, n.length() - EXT.length()))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to list intraday partitions for {} {}: {}", symbol, tier.code, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private String tierDir(String symbol, Tier tier) {
+        String cleanSymbol = symbol.toUpperCase().replaceAll("[^A-Z0-9]", "");
+        return intradayDir + cleanSymbol + "/" + tier.code + "/";
+    }
+
+    private static String formingKey(String symbol, Tier tier) {
+        return symbol.toUpperCase() + "_" + tier.code;
+    }
+
+    private String partitionFile(String symbol, Tier tier, String partition) {
+        return tierDir(symbol, tier) + partition + EXT;
+    }
+}
@@ -4,11 +4,10 @@ import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
 import com.pxbt.dev.aiTradingCharts.model.ModelPerformance;
 import com.pxbt.dev.aiTradingCharts.model.PricePrediction;
-import com.pxbt.dev.aiTradingCharts.util.Ta4jConverter;
+import com.pxbt.dev.aiTradingCharts.util.AnalysisContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.ta4j.core.BarSeries;
 
 import java.util.*;
 
@@ -37,6 +36,12 @@ public class PricePredictionService {
     @Autowired
     private FundingRateService fundingRateService;
 
+    @Autowired
+    private FeatureStoreService featureStore;
+
+    @Autowired
+    private AnalysisContextService analysisContextService;
+
     /**
      * AI-based prediction for multiple timeframes
      */
@@ -77,15 +82,36 @@ public class PricePredictionService {
 
     public PricePrediction generateAIPrediction(String symbol, double currentPrice,
             List<CryptoPrice> recentData, String timeframe) {
+        return generateAIPrediction(symbol, currentPrice, recentData, timeframe, null);
+    }
+
+    /**
+     * @param features feature vector of the last candle in recentData, or null to take it from the feature store
+     */
+    public PricePrediction generateAIPrediction(String symbol, double currentPrice,
+            List<CryptoPrice> recentData, String timeframe, double[] features) {
         try {
-            // 1. Convert to ta4j BarSeries and initialize indicators once (timeframe-aware periods)
-            BarSeries series = Ta4jConverter.toSeries(symbol, recentData);
-            int lastIdx = series.getEndIndex();
-            com.pxbt.dev.aiTradingCharts.util.FeatureExtractor.Indicators inds =
-                new com.pxbt.dev.aiTradingCharts.util.FeatureExtractor.Indicators(series, timeframe);
+            // 1. Features of the latest candle, materialised by the feature store (no series rebuild)
+            int lastIdx = recentData.size() - 1;
+            double lastClose = closeOf(recentData.get(lastIdx));
+            if (features == null) {
+                // Live call: features come with the shared analysis context of these candles; a tick away from
+                // the last close re-prices the forming candle on the streaming indicator state
+                AnalysisContext context = analysisContextService.forCandles(symbol, timeframe, recentData);
+                if (currentPrice > 0 && currentPrice != context.lastClose()) {
+                    features = featureStore.getLatestFeatures(symbol, timeframe, recentData, currentPrice);
+                    lastClose = currentPrice;
+                } else {
+                    features = context.features();
+                }
+            }
 
-            // 2. Extract features for AI prediction using the pre-initialized indicators
-            double[] features = com.pxbt.dev.aiTradingCharts.util.FeatureExtractor.extractFeatures(lastIdx, inds);
+            // 2. Indicator values recovered from the normalised features
+            double sma5 = lastClose * (1 - features[0]);
+            double sma20 = lastClose * (1 - features[1]);
+            double rsiVal = features[3] * 50.0 + 50.0;
+            double macdVal = features[4] * lastClose;
+            double stdDev20 = features[5] * lastClose;
 
             // Get AI result
             Map<String, Object> aiResult = aiModelService.predictWithConfidence(symbol, features, timeframe);
@@ -95,17 +121,15 @@ public class PricePredictionService {
             boolean aiTrained = !modelType.equals("none") && !modelType.equals("error");
             boolean aiReliable = aiTrained && (boolean) aiResult.getOrDefault("isReliable", false);
 
-            // 3. Technical Indicators (REUSE pre-initialized indicators from 'inds' container)
-            double trendValue = (inds.sma5.getValue(lastIdx).doubleValue() - inds.sma20.getValue(lastIdx).doubleValue()) 
-                                / inds.sma20.getValue(lastIdx).doubleValue();
+            // 3. Technical Indicators
+            double trendValue = (sma5 - sma20) / sma20;
             
             // Momentum: Price difference over last 10 periods
             int momentumPeriod = timeframe.equalsIgnoreCase("1d") ? 10 : 5;
             int prevIdx = Math.max(0, lastIdx - momentumPeriod);
-            double momentum = (inds.close.getValue(lastIdx).doubleValue() - inds.close.getValue(prevIdx).doubleValue()) 
-                              / currentPrice;
+            double momentum = (lastClose - closeOf(recentData.get(prevIdx))) / currentPrice;
             
-            double volatility = inds.stdDev20.getValue(lastIdx).doubleValue() / currentPrice;
+            double volatility = stdDev20 / currentPrice;
 
             if (!aiReliable) {
                 // Base technical change
@@ -154,8 +178,6 @@ public class PricePredictionService {
 
             // TA signal alignment: reward confidence when RSI, MACD, and BB agree with the predicted direction.
             // features[11] is Bollinger %B centred at 0: negative = near lower band (room to go up).
-            double rsiVal  = inds.rsi14.getValue(lastIdx).doubleValue();
-            double macdVal = inds.macd.getValue(lastIdx).doubleValue();
             double bbPct   = features[11];
             boolean bullish = predictedChange > 0;
             int taAgreements = 0;
@@ -192,10 +214,10 @@ public class PricePredictionService {
                 prediction.setTrainingSamplesCount(recentData.size());
             }
 
-            // Populate granular indicator stats for display (Still reusing 'inds')
+            // Populate granular indicator stats for display
             prediction.setTrendValue(trendValue);
             prediction.setMomentum(momentum);
-            prediction.setRsiFactor((50.0 - inds.rsi14.getValue(lastIdx).doubleValue()) / 50.0);
+            prediction.setRsiFactor((50.0 - rsiVal) / 50.0);
             prediction.setFearGreedScore(fearGreedService.getScore());
             prediction.setFearGreedLabel(fearGreedService.getClassification());
             prediction.setFundingRate(fundingRateService.getFundingRate(symbol));
@@ -214,15 +236,12 @@ public class PricePredictionService {
         }
     }
 
-    /**
-     * Enhanced feature extraction for AI predictions
-     */
-    private double[] extractAdvancedFeatures(List<CryptoPrice> data, String timeframeType) {
-        return com.pxbt.dev.aiTradingCharts.util.FeatureExtractor.extractFeatures(data);
-    }
-
     // ===== HELPER METHODS =====
 
+    private static double closeOf(CryptoPrice p) {
+        return p.getClose() != 0 ? p.getClose() : p.getPrice();
+    }
+
     private String determineTrend(double predictedChange) {
         double changePercent = predictedChange * 100;
 
@@ -2,6 +2,7 @@ package com.pxbt.dev.aiTradingCharts.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
 import com.pxbt.dev.aiTradingCharts.handler.CryptoWebSocketHandler;
 import com.pxbt.dev.aiTradingCharts.model.*;
@@ -24,9 +25,6 @@ import java.util.concurrent.*;
 public class RealTimeDataService {
 
     private final Map<String, Deque<PriceUpdate>> priceCache = new ConcurrentHashMap<>();
-    private final Map<String, AIAnalysisResult> lastAnalysisCache = new ConcurrentHashMap<>();
-    private final Map<String, Long> lastAnalysisTime = new ConcurrentHashMap<>();
-    private static final long ANALYSIS_INTERVAL_MS = 600000; // Only analyze every 10 minutes
     private final List<WebSocketClient> webSocketClients = new ArrayList<>();
     // Single shared scheduler for reconnections - prevents Timer thread leaks
     private final ScheduledExecutorService reconnectScheduler =
@@ -48,7 +46,13 @@ public class RealTimeDataService {
     private CryptoWebSocketHandler webSocketHandler;
 
     @Autowired
-    private TradingAnalysisService tradingAnalysisService;
+    private AnalysisSnapshotService analysisSnapshotService;
+
+    @Autowired
+    private AnalysisTriggerService analysisTriggerService;
+
+    @Autowired
+    private AnalysisStreamService analysisStreamService;
 
     @Autowired
     private PricePredictionService predictionService;
@@ -82,6 +86,9 @@ public class RealTimeDataService {
             symbolToStream.put(symbol, symbol.toLowerCase() + "usdt@ticker");
         }
         
+        // Triggered re-analyses are pushed to clients as soon as they are ready
+        analysisTriggerService.addListener(this::broadcastTriggeredAnalysis);
+
         log.info("📊 Tracking symbols: {}", symbols);
         log.info("📊 Real-time updates: EVERY PRICE CHANGE | Manual refresh: 2 minutes");
         
@@ -213,38 +220,23 @@ public class RealTimeDataService {
             // Always update cache (for manual predictions)
             updatePriceCache(symbol, priceUpdate);
 
-            // THROTTLING LOGIC: Only re-analyze if enough time has passed
             long now = System.currentTimeMillis();
-            AIAnalysisResult analysis;
-
-            if (shouldReanalyze(symbol, now)) {
-                log.debug("🧠 Analysis triggered for {} (Interval exceeded)", symbol);
-                analysis = analyzeWithAI(priceUpdate);
-                lastAnalysisCache.put(symbol, analysis);
-                lastAnalysisTime.put(symbol, now);
-            } else {
-                analysis = lastAnalysisCache.get(symbol);
-                if (analysis == null) {
-                    analysis = analyzeWithAI(priceUpdate);
-                    lastAnalysisCache.put(symbol, analysis);
-                    lastAnalysisTime.put(symbol, now);
-                } else {
-                    // Update the price/timestamp in the cached analysis for the broadcast
-                    analysis.setCurrentPrice(price);
-                }
-            }
+
+            // Re-analysis is event driven (candle close, material move, model/signal change), never run here
+            analysisTriggerService.onPrice(symbol, price, now);
 
             // BROADCAST LOGIC (Throttled)
             if (shouldBroadcastPrice(symbol, now)) {
-                boolean includeFullAnalysis = shouldBroadcastFullAnalysis(symbol, now);
+                AnalysisSnapshot latest = analysisSnapshotService.latest(symbol);
+                boolean includeFullAnalysis = latest != null && shouldBroadcastFullAnalysis(symbol, now);
                 
+                // Prices go to the prices channel every time; analysis subscribers also get the full update
+                log.debug("📢 Broadcasting LIGHT update for {} (Price only)", symbol);
+                broadcastPriceOnly(priceUpdate);
                 if (includeFullAnalysis) {
                     log.debug("📢 Broadcasting FULL update for {} (Analysis included)", symbol);
-                    broadcastUpdate(priceUpdate, analysis);
+                    broadcastUpdate(priceUpdate, latest.withLivePrice(price));
                     lastAnalysisBroadcastTime.put(symbol, now);
-                } else {
-                    log.debug("📢 Broadcasting LIGHT update for {} (Price only)", symbol);
-                    broadcastPriceOnly(priceUpdate);
                 }
                 lastPriceBroadcastTime.put(symbol, now);
             }
@@ -256,9 +248,12 @@ public class RealTimeDataService {
         }
     }
 
-    private boolean shouldReanalyze(String symbol, long now) {
-        Long lastTime = lastAnalysisTime.get(symbol);
-        return lastTime == null || (now - lastTime) >= ANALYSIS_INTERVAL_MS;
+    private void broadcastTriggeredAnalysis(String symbol, AnalysisSnapshot snapshot) {
+        PriceUpdate latestUpdate = getLatestPriceUpdate(symbol);
+        if (latestUpdate != null) {
+            broadcastUpdate(latestUpdate, snapshot.withLivePrice(latestUpdate.getPrice()));
+            lastAnalysisBroadcastTime.put(symbol, System.currentTimeMillis());
+        }
     }
 
     private boolean shouldBroadcastPrice(String symbol, long now) {
@@ -293,6 +288,7 @@ public class RealTimeDataService {
                 // Get latest price from cache or generate synthetic update
                 PriceUpdate latestUpdate = getLatestPriceUpdate(symbol);
                 if (latestUpdate != null) {
+                    analysisTriggerService.request(symbol, "manual refresh", true);
                     processRealTimeUpdate(
                             createSyntheticMessage(latestUpdate),
                             symbol,
@@ -327,68 +323,29 @@ public class RealTimeDataService {
         }
     }
 
-    /**
-     * Quick refresh - updates predictions without full data broadcast
-     */
-    public void quickPredictionsRefresh() {
-        log.info("🧠 Quick predictions refresh triggered");
-
-        for (String symbol : symbols) {
-            try {
-                PriceUpdate latestUpdate = getLatestPriceUpdate(symbol);
-                if (latestUpdate != null) {
-                    AIAnalysisResult analysis = analyzeWithAI(latestUpdate);
-                    broadcastUpdate(latestUpdate, analysis);
-                }
-            } catch (Exception e) {
-                log.error("❌ Quick refresh failed for {}: {}", symbol, e.getMessage());
-            }
-        }
-    }
-
     public AIAnalysisResult analyzeWithAI(PriceUpdate update) {
-        // Use the unified TradingAnalysisService to get full structural and predictive analysis
-        return tradingAnalysisService.analyzeMarketData(update.getSymbol(), update.getPrice());
+        // Memoised TradingAnalysisService result, priced at this update
+        return analysisSnapshotService.getAnalysis(update.getSymbol(), update.getPrice());
     }
 
-    private List<ChartPattern> ensureValidChartPatterns(List<ChartPattern> patterns, String symbol) {
-        if (patterns == null)
-            return new ArrayList<>();
-
-        return patterns.stream()
-                .map(pattern -> {
-                    if (pattern.getPatternType() == null) {
-                        // Create a safe copy with default patternType
-                        return new ChartPattern(
-                                "NEUTRAL", // ✅ Default patternType
-                                pattern.getPriceLevel(),
-                                pattern.getConfidence(),
-                                pattern.getDescription() != null ? pattern.getDescription() : "No pattern detected",
-                                pattern.getTimestamp());
-                    }
-                    return pattern;
-                })
-                .toList();
-    }
-
-    private void broadcastUpdate(PriceUpdate priceUpdate, AIAnalysisResult analysis) {
+    private void broadcastUpdate(PriceUpdate priceUpdate, AnalysisSnapshot analysis) {
         try {
-            if (analysis != null && analysis.getChartPatterns() != null) {
-                analysis.setChartPatterns(
-                        ensureValidChartPatterns(analysis.getChartPatterns(), priceUpdate.getSymbol()));
-            }
-
-            // Create a combined message
+            // Create a combined message; the snapshot's JSON is serialised once and embedded as-is
             Map<String, Object> broadcastMessage = new HashMap<>();
             broadcastMessage.put("type", "price_update");
             broadcastMessage.put("symbol", priceUpdate.getSymbol());
             broadcastMessage.put("price", priceUpdate.getPrice());
             broadcastMessage.put("volume", priceUpdate.getVolume());
             broadcastMessage.put("timestamp", priceUpdate.getTimestamp());
-            broadcastMessage.put("analysis", analysis);
+            broadcastMessage.put("analysis", new RawValue(analysis.toJson(objectMapper)));
 
             String jsonMessage = objectMapper.writeValueAsString(broadcastMessage);
-            webSocketHandler.broadcast(jsonMessage);
+            // A client still holding an older update for this symbol only gets the newest one
+            webSocketHandler.publish(CryptoWebSocketHandler.ANALYSIS, priceUpdate.getSymbol(), jsonMessage,
+                    "update:" + priceUpdate.getSymbol());
+
+            // Same analysis as keyframes/deltas for clients on the "deltas" channel
+            analysisStreamService.publish(priceUpdate.getSymbol(), analysis);
 
         } catch (Exception e) {
             log.error("❌ Error broadcasting update for {}: {}", priceUpdate.getSymbol(), e.getMessage());
@@ -397,19 +354,9 @@ public class RealTimeDataService {
     }
 
     private void broadcastPriceOnly(PriceUpdate priceUpdate) {
-        try {
-            Map<String, Object> broadcastMessage = new HashMap<>();
-            broadcastMessage.put("type", "price_update");
-            broadcastMessage.put("symbol", priceUpdate.getSymbol());
-            broadcastMessage.put("price", priceUpdate.getPrice());
-            broadcastMessage.put("volume", priceUpdate.getVolume());
-            broadcastMessage.put("timestamp", priceUpdate.getTimestamp());
-            // No analysis field included in lightweight updates
-            
-            webSocketHandler.broadcast(objectMapper.writeValueAsString(broadcastMessage));
-        } catch (Exception e) {
-            log.error("❌ Error broadcasting price-only update for {}: {}", priceUpdate.getSymbol(), e.getMessage());
-        }
+        // No analysis field included in lightweight updates; the handler encodes binary or JSON per client
+        webSocketHandler.publishPrice(priceUpdate.getSymbol(), priceUpdate.getPrice(),
+                priceUpdate.getVolume(), priceUpdate.getTimestamp());
     }
 
     private void sendSafeFallbackMessage(PriceUpdate priceUpdate) {
@@ -422,7 +369,8 @@ public class RealTimeDataService {
             safeMessage.put("timestamp", priceUpdate.getTimestamp());
             safeMessage.put("analysis", Map.of("error", "Analysis temporarily unavailable"));
 
-            webSocketHandler.broadcast(objectMapper.writeValueAsString(safeMessage));
+            webSocketHandler.publish(CryptoWebSocketHandler.ANALYSIS, priceUpdate.getSymbol(),
+                    objectMapper.writeValueAsString(safeMessage), "update:" + priceUpdate.getSymbol());
         } catch (Exception e) {
             log.error("❌ Even fallback message failed for {}: {}", priceUpdate.getSymbol(), e.getMessage());
         }
@@ -81,7 +81,7 @@ public class SimulationEngine {
         try {
             String jsonLog = String.format("{\"type\":\"engine_log\", \"level\":\"%s\", \"message\":\"%s\"}", 
                     level.toLowerCase(), fullLog.replace("\"", "\\\""));
-            webSocketHandler.broadcast(jsonLog);
+            webSocketHandler.publish(CryptoWebSocketHandler.LOGS, null, jsonLog, null);
         } catch (Exception e) {
             log.error("Failed to broadcast simulation log: {}", e.getMessage());
         }
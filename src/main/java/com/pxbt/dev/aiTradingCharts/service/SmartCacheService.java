@@ -77,6 +77,13 @@ public class SmartCacheService {
         hotCache.put(cacheKey, listToCache);
     }
 
+    /**
+     * Drop the hot entry after the backing file was rewritten
+     */
+    public void invalidate(String symbol, String timeframe) {
+        hotCache.invalidate(symbol + "_" + timeframe);
+    }
+
     /**
      * Clear hot cache
      */
@@ -0,0 +1,151 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.AIAnalysisResult;
+import com.pxbt.dev.aiTradingCharts.model.SimulationResult;
+import com.pxbt.dev.aiTradingCharts.util.StrategySimulator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Trading-signal PnL over the stored backtest predictions, and threshold sweeps across all cores
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StrategySimulationService {
+
+    private final AccuracyPersistenceService accuracyPersistenceService;
+
+    // Sweep grid: normal/strong change cut-offs (%) and normal/strong confidence cut-offs
+    private static final double[] CHANGE_GRID = range(0.1, 1.5, 0.1);
+    private static final double[] STRONG_CHANGE_GRID = range(1.0, 4.0, 0.25);
+    private static final double[] CONFIDENCE_GRID = range(0.40, 0.60, 0.02);
+    private static final double[] STRONG_CONFIDENCE_GRID = range(0.50, 0.75, 0.025);
+
+    public static StrategySimulator.Params defaultParams(double feeBps, double slippageBps, double positionSize,
+                                                         double strongPositionSize, boolean allowShort) {
+        return new StrategySimulator.Params(
+                AIAnalysisResult.CHANGE_PERCENT, AIAnalysisResult.STRONG_CHANGE_PERCENT,
+                AIAnalysisResult.CONFIDENCE, AIAnalysisResult.STRONG_CONFIDENCE,
+                feeBps, slippageBps, positionSize, strongPositionSize, allowShort);
+    }
+
+    public SimulationResult simulate(String symbol, String timeframe, StrategySimulator.Params params) {
+        StrategySimulator.Series series = accuracyPersistenceService.getSignalSeries(symbol, timeframe);
+        StrategySimulator.Result r = StrategySimulator.run(series, params, periodsPerYear(timeframe), true);
+        return toResult(symbol, timeframe, params, series.size, r)
+                .timestamps(series.timestamps)
+                .equityCurve(r.equity)
+                .build();
+    }
+
+    /**
+     * Run every grid combination over every symbol in parallel and return the best by mean Sharpe.
+     * Costs and sizing stay fixed; combinations where a strong cut-off is below its normal one are skipped.
+     */
+    public List<SimulationResult> sweep(List<String> symbols, String timeframe, double feeBps, double slippageBps,
+                                        double positionSize, double strongPositionSize, boolean allowShort, int top) {
+        long started = System.currentTimeMillis();
+        List<StrategySimulator.Series> series = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            StrategySimulator.Series s = accuracyPersistenceService.getSignalSeries(symbol, timeframe);
+            if (s.size > 0) series.add(s);
+        }
+        if (series.isEmpty()) {
+            return List.of();
+        }
+
+        int periodsPerYear = periodsPerYear(timeframe);
+        int combos = CHANGE_GRID.length * STRONG_CHANGE_GRID.length * CONFIDENCE_GRID.length * STRONG_CONFIDENCE_GRID.length;
+        SimulationResult[] results = new SimulationResult[combos];
+        int samples = series.stream().mapToInt(s -> s.size).sum();
+        String symbolLabel = String.join(",", symbols);
+
+        IntStream.range(0, combos).parallel().forEach(c -> {
+            int idx = c;
+            double strongConf = STRONG_CONFIDENCE_GRID[idx % STRONG_CONFIDENCE_GRID.length];
+            idx /= STRONG_CONFIDENCE_GRID.length;
+            double conf = CONFIDENCE_GRID[idx % CONFIDENCE_GRID.length];
+            idx /= CONFIDENCE_GRID.length;
+            double strongChange = STRONG_CHANGE_GRID[idx % STRONG_CHANGE_GRID.length];
+            idx /= STRONG_CHANGE_GRID.length;
+            double change = CHANGE_GRID[idx];
+            if (strongChange <= change || strongConf < conf) return;
+
+            StrategySimulator.Params params = new StrategySimulator.Params(change, strongChange, conf, strongConf,
+                    feeBps, slippageBps, positionSize, strongPositionSize, allowShort);
+
+            // Mean over symbols, worst drawdown
+            StrategySimulator.Result agg = new StrategySimulator.Result();
+            for (StrategySimulator.Series s : series) {
+                StrategySimulator.Result r = StrategySimulator.run(s, params, periodsPerYear, false);
+                agg.totalReturn += r.totalReturn / series.size();
+                agg.sharpe += r.sharpe / series.size();
+                agg.exposure += r.exposure / series.size();
+                agg.winRate += r.winRate / series.size();
+                agg.maxDrawdown = Math.max(agg.maxDrawdown, r.maxDrawdown);
+                agg.trades += r.trades;
+            }
+            results[c] = toResult(symbolLabel, timeframe, params, samples, agg).build();
+        });
+
+        List<SimulationResult> best = Arrays.stream(results)
+                .filter(r -> r != null)
+                .sorted(Comparator.comparingDouble(SimulationResult::getSharpe).reversed())
+                .limit(Math.max(1, top))
+                .toList();
+
+        log.info("🧮 Swept {} threshold combinations over {} {} series ({} samples) in {}ms",
+                combos, series.size(), timeframe, samples, System.currentTimeMillis() - started);
+        return best;
+    }
+
+    private static SimulationResult.SimulationResultBuilder toResult(String symbol, String timeframe,
+                                                                     StrategySimulator.Params p, int samples,
+                                                                     StrategySimulator.Result r) {
+        return SimulationResult.builder()
+                .symbol(symbol)
+                .timeframe(timeframe)
+                .changePercent(p.changePercent())
+                .strongChangePercent(p.strongChangePercent())
+                .confidence(p.confidence())
+                .strongConfidence(p.strongConfidence())
+                .feeBps(p.feeBps())
+                .slippageBps(p.slippageBps())
+                .positionSize(p.positionSize())
+                .strongPositionSize(p.strongPositionSize())
+                .allowShort(p.allowShort())
+                .samples(samples)
+                .totalReturn(r.totalReturn * 100)
+                .maxDrawdown(r.maxDrawdown * 100)
+                .sharpe(r.sharpe)
+                .trades(r.trades)
+                .exposure(r.exposure * 100)
+                .winRate(r.winRate * 100);
+    }
+
+    private static int periodsPerYear(String timeframe) {
+        String tf = timeframe.contains(":") ? timeframe.substring(0, timeframe.indexOf(':')) : timeframe;
+        return switch (tf) {
+            case "1w", "1W" -> 52;
+            case "1m", "1M" -> 12;
+            default -> 365; // Crypto trades every day
+        };
+    }
+
+    private static double[] range(double from, double to, double step) {
+        int n = (int) Math.round((to - from) / step) + 1;
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = Math.round((from + i * step) * 1000) / 1000.0;
+        }
+        return values;
+    }
+}
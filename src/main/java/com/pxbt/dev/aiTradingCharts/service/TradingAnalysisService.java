@@ -2,15 +2,10 @@ package com.pxbt.dev.aiTradingCharts.service;
 
 import com.pxbt.dev.aiTradingCharts.handler.CryptoWebSocketHandler;
 import com.pxbt.dev.aiTradingCharts.model.*;
-import com.pxbt.dev.aiTradingCharts.util.Ta4jConverter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.indicators.RSIIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -90,43 +85,44 @@ public class TradingAnalysisService {
         // Calculate Overall Confluence (Master Structure)
         WyckoffResult daily = wyckoffResults.getOrDefault("1d", new WyckoffResult("UNKNOWN", "N/A", 0.0, 0.0, 0.0, new java.util.ArrayList<>()));
         
-        // CREATE RESULT
-        AIAnalysisResult result = new AIAnalysisResult();
-        result.setSymbol(symbol);
-        result.setCurrentPrice(currentPrice);
-        result.setTimeframePredictions(timeframePredictions);
-        result.setChartPatterns(chartPatterns);
-        result.setFibonacciTimeZones(fibonacciTimeZones);
-        
-        // Populate Multi-Timeframe Wyckoff
-        result.setWyckoffTimeframes(wyckoffResults);
-        
         // Set Overall Summary (using 1D as primary for phase label, but details show confluence)
-        result.setWyckoffPhase(daily.getPhase());
-        result.setWyckoffDetails(daily.getDetails());
-        
+        String wyckoffPhase = daily.getPhase();
         double avgScore = wyckoffResults.values().stream().mapToDouble(WyckoffResult::getScore).average().orElse(0.0);
         if (avgScore > 0.5) {
-            result.setWyckoffPhase("CONFLUENCE_BULLISH (" + daily.getPhase() + ")");
+            wyckoffPhase = "CONFLUENCE_BULLISH (" + daily.getPhase() + ")";
         } else if (avgScore < -0.5) {
-            result.setWyckoffPhase("CONFLUENCE_BEARISH (" + daily.getPhase() + ")");
+            wyckoffPhase = "CONFLUENCE_BEARISH (" + daily.getPhase() + ")";
         }
-        result.setTimestamp(System.currentTimeMillis());
-
-        log.info("✅ AI Analysis - Signal: {}, Phase: {}, Confidence: {}%, Data Coverage: {} days",
-                result.getTradingSignal(), result.getWyckoffPhase(), String.format("%.1f", result.getConfidence() * 100), String.format("%.1f", daysCovered));
 
         // Collect logs for the result
-        result.getAnalysisLogs().add(String.format("📊 Data Points: %d (%s days cover)", dataPoints, String.format("%.1f", daysCovered)));
+        List<String> analysisLogs = new ArrayList<>();
+        analysisLogs.add(String.format("📊 Data Points: %d (%s days cover)", dataPoints, String.format("%.1f", daysCovered)));
         
         // Log AI findings from the actual prediction service
         timeframePredictions.forEach((tf, p) -> {
-            result.getAnalysisLogs().add(String.format("🔍 %s Predict [%s] - Signal: %s, Conf: %.1f%% => $%s",
+            analysisLogs.add(String.format("🔍 %s Predict [%s] - Signal: %s, Conf: %.1f%% => $%s",
                 tf.toUpperCase(), p.getModelName(), p.getTrend(), p.getConfidence() * 100, 
                 String.format("%.2f", p.getPredictedPrice())));
         });
         
-        result.getAnalysisLogs().add(String.format("🧱 Market Structure: %s (%s)", daily.getPhase(), daily.getDetails()));
+        analysisLogs.add(String.format("🧱 Market Structure: %s (%s)", daily.getPhase(), daily.getDetails()));
+
+        // CREATE RESULT (immutable once built)
+        AIAnalysisResult result = AIAnalysisResult.builder()
+                .symbol(symbol)
+                .currentPrice(currentPrice)
+                .timeframePredictions(timeframePredictions)
+                .chartPatterns(chartPatterns)
+                .fibonacciTimeZones(fibonacciTimeZones)
+                .wyckoffTimeframes(wyckoffResults) // Multi-Timeframe Wyckoff
+                .wyckoffPhase(wyckoffPhase)
+                .wyckoffDetails(daily.getDetails())
+                .timestamp(System.currentTimeMillis())
+                .analysisLogs(analysisLogs)
+                .build();
+
+        log.info("✅ AI Analysis - Signal: {}, Phase: {}, Confidence: {}%, Data Coverage: {} days",
+                result.getTradingSignal(), result.getWyckoffPhase(), String.format("%.1f", result.getConfidence() * 100), String.format("%.1f", daysCovered));
 
         // Broadcast specific Wyckoff events if detected
         if (daily.getEvents() != null && !daily.getEvents().isEmpty()) {
@@ -137,7 +133,7 @@ public class TradingAnalysisService {
                 String fullLog = String.format("%s  INFO 12345 --- [analysis-1] com.bot.spreadengine.service.WyckoffAnalysis  : %s", timestamp, logMsg);
                 try {
                     String jsonLog = String.format("{\"type\":\"engine_log\", \"level\":\"info\", \"message\":\"%s\"}", fullLog.replace("\"", "\\\""));
-                    webSocketHandler.broadcast(jsonLog);
+                    webSocketHandler.publish(CryptoWebSocketHandler.LOGS, symbol, jsonLog, null);
                 } catch (Exception e) {
                     log.error("Failed to broadcast Wyckoff event log: {}", e.getMessage());
                 }
@@ -193,14 +189,15 @@ public class TradingAnalysisService {
         logAIAnalysisReasoning(timeframePredictions, chartPatterns, fibonacciTimeZones, timeframe);
 
         // CREATE RESULT
-        AIAnalysisResult result = new AIAnalysisResult();
-        result.setSymbol(symbol);
-        result.setCurrentPrice(currentPrice);
-        result.setTimeframePredictions(timeframePredictions);
-        result.setChartPatterns(chartPatterns);
-        result.setFibonacciTimeZones(fibonacciTimeZones);
-        result.setTimestamp(System.currentTimeMillis());
-        result.setTimeframe(timeframe);
+        AIAnalysisResult result = AIAnalysisResult.builder()
+                .symbol(symbol)
+                .currentPrice(currentPrice)
+                .timeframePredictions(timeframePredictions)
+                .chartPatterns(chartPatterns)
+                .fibonacciTimeZones(fibonacciTimeZones)
+                .timestamp(System.currentTimeMillis())
+                .timeframe(timeframe)
+                .build();
 
         log.info("✅ TIMEFRAME Analysis Complete - Symbol: {}, Timeframe: {}, Signal: {}, Confidence: {}%",
                 symbol, timeframe, result.getTradingSignal(),
@@ -284,13 +281,14 @@ public class TradingAnalysisService {
      * Create empty analysis for error cases
      */
     private AIAnalysisResult createEmptyAnalysis(String symbol, String timeframe) {
-        AIAnalysisResult result = new AIAnalysisResult();
-        result.setSymbol(symbol);
-        result.setCurrentPrice(0.0);
-        result.setTimeframePredictions(createConservativePredictions(symbol, 0.0));
-        result.setChartPatterns(new ArrayList<>());
-        result.setFibonacciTimeZones(new ArrayList<>());
-        result.setTimestamp(System.currentTimeMillis());
+        AIAnalysisResult result = AIAnalysisResult.builder()
+                .symbol(symbol)
+                .currentPrice(0.0)
+                .timeframePredictions(createConservativePredictions(symbol, 0.0))
+                .chartPatterns(new ArrayList<>())
+                .fibonacciTimeZones(new ArrayList<>())
+                .timestamp(System.currentTimeMillis())
+                .build();
 
         log.warn("⚠️ Created empty analysis for {} - {}", symbol, timeframe);
         return result;
@@ -303,40 +301,6 @@ public class TradingAnalysisService {
         return pricePredictionService.predictMultipleTimeframes(symbol, currentPrice);
     }
 
-    private void debugTechnicalIndicators(List<PriceUpdate> data, String timeframe) {
-        if (data.isEmpty()) {
-            log.info("⚠️ No data for {} technical indicators", timeframe);
-            return;
-        }
-
-        // Convert to ta4j BarSeries for analysis
-        BarSeries series = Ta4jConverter.priceUpdateToSeries("DEBUG_" + timeframe, data);
-        int lastIdx = series.getEndIndex();
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-
-        double trend = calculatePriceTrend(data); // This one is more of a weighted custom trend, keeping it for now
-        
-        StandardDeviationIndicator stdDev = new StandardDeviationIndicator(close, Math.min(20, series.getBarCount()));
-        double volatility = stdDev.getValue(lastIdx).doubleValue() / data.get(data.size() - 1).getPrice();
-        
-        // Momentum: Price difference over last 10 periods
-        int momPeriod = Math.min(10, lastIdx);
-        double momentum = (close.getValue(lastIdx).doubleValue() - close.getValue(lastIdx - momPeriod).doubleValue()) 
-                          / data.get(data.size() - 1).getPrice();
-        
-        RSIIndicator rsiInd = new RSIIndicator(close, 14);
-        double rsi = rsiInd.getValue(lastIdx).doubleValue();
-
-        log.info("📊 {} Technical Indicators - Trend: {}, Volatility: {}, Momentum: {}, RSI: {}, Data Points: {}",
-                timeframe, trend, volatility, momentum, rsi, data.size());
-
-        // Also log price range
-        double minPrice = data.stream().mapToDouble(PriceUpdate::getPrice).min().orElse(0);
-        double maxPrice = data.stream().mapToDouble(PriceUpdate::getPrice).max().orElse(0);
-        log.info("📊 {} Price Range - Min: ${}, Max: ${}, Current: ${}",
-                timeframe, minPrice, maxPrice, data.get(data.size() - 1).getPrice());
-    }
-
     private void debugHistoricalData(String symbol, List<PriceUpdate> historicalData) {
         log.debug("📊 Historical Data for {}: {} total points", symbol, historicalData.size());
         if (!historicalData.isEmpty()) {
@@ -531,27 +495,6 @@ public class TradingAnalysisService {
         return zones;
     }
 
-    private double calculatePriceTrend(List<PriceUpdate> data) {
-        if (data.size() < 5)
-            return 0.0;
-
-        // Use exponential weighting - more recent prices have higher weight
-        double totalWeight = 0;
-        double weightedSum = 0;
-        int size = data.size();
-
-        for (int i = 0; i < size; i++) {
-            // Exponential weight: recent = 1.0, oldest = 0.1
-            double weight = Math.exp((i - size + 1) * 0.1);
-            totalWeight += weight;
-            weightedSum += data.get(i).getPrice() * weight;
-        }
-
-        double weightedAverage = weightedSum / totalWeight;
-        double firstPrice = data.getFirst().getPrice();
-        return (weightedAverage - firstPrice) / firstPrice;
-    }
-
     private String getTrendDirection(double trend, double momentum, double rsi) {
         boolean strongBullish = trend > 0.03 && momentum > 0 && rsi > 60;
         boolean bullish = trend > 0 || (momentum > 0 && rsi > 50);
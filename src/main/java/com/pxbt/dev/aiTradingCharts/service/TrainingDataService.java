@@ -12,9 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import com.pxbt.dev.aiTradingCharts.handler.CryptoWebSocketHandler;
-import com.pxbt.dev.aiTradingCharts.util.Ta4jConverter;
-import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
-import org.ta4j.core.BarSeries;
+import com.pxbt.dev.aiTradingCharts.util.FeatureColumns;
 
 @Service
 @Slf4j
@@ -31,6 +29,9 @@ public class TrainingDataService {
     @Autowired
     private BinanceHistoricalService historicalDataService;
 
+    @Autowired
+    private FeatureStoreService featureStore;
+
     @Autowired
     @Lazy
     private CryptoWebSocketHandler webSocketHandler;
@@ -176,10 +177,8 @@ public class TrainingDataService {
         log.info("🤖 Processing {} data points for {} - {} ML training",
                 fullData.size(), symbol, timeframe);
 
-        // OPTIMIZATION: Convert to BarSeries and Indicators ONCE per symbol/timeframe
-        // This stops the creation of ~2,500 series and ~50,000 indicators per cycle
-        BarSeries series = Ta4jConverter.toSeries(symbol, fullData);
-        FeatureExtractor.Indicators inds = new FeatureExtractor.Indicators(series, timeframe);
+        // Feature rows come from the store; only candles it hasn't seen yet get indicators computed
+        FeatureColumns features = featureStore.getFeatures(symbol, timeframe, fullData);
 
         // Different window sizes based on timeframe
         int windowSize = getWindowSize(timeframe);
@@ -189,13 +188,11 @@ public class TrainingDataService {
         int trainingSamples = 0;
         // In the new system, we use the absolute index in the series
         for (int i = windowSize; i < fullData.size() - futureOffset; i++) {
-            // Extract features using the optimized index-based method
-            double[] features = FeatureExtractor.extractFeatures(i - 1, inds);
             double actualChange = calculateActualChange(fullData, i - 1, timeframe);
 
             // Only include meaningful samples (filter out noise)
             if (Math.abs(actualChange) < getMaxChangeFilter(timeframe)) {
-                featuresList.add(features);
+                featuresList.add(features.features(i - 1));
                 targetChanges.add(actualChange);
                 trainingSamples++;
             }
@@ -230,7 +227,7 @@ public class TrainingDataService {
         };
     }
 
-    private int getWindowSize(String timeframe) {
+    int getWindowSize(String timeframe) {
         return switch (timeframe) {
             case "1d" -> 50; // 50 days
             case "1W", "1w" -> 40; // 40 weeks (~9 months)
@@ -248,7 +245,7 @@ public class TrainingDataService {
         };
     }
 
-    private double getMaxChangeFilter(String timeframe) {
+    double getMaxChangeFilter(String timeframe) {
         return switch (timeframe) {
             case "1d" -> 0.3; // Filter >30% daily changes
             case "1W", "1w" -> 0.5; // Filter >50% weekly changes
@@ -257,7 +254,7 @@ public class TrainingDataService {
         };
     }
 
-    private int getMinTrainingSamples(String timeframe) {
+    int getMinTrainingSamples(String timeframe) {
         return switch (timeframe) {
             case "1d" -> 30;
             case "1W", "1w" -> 15;
@@ -266,16 +263,6 @@ public class TrainingDataService {
         };
     }
 
-    /**
-     * Enhanced feature extraction with 15 technical indicators
-     */
-    /**
-     * Enhanced feature extraction with 15 professional technical indicators via ta4j
-     */
-    private double[] extractFeaturesForTraining(List<CryptoPrice> windowData, String timeframe) {
-        return com.pxbt.dev.aiTradingCharts.util.FeatureExtractor.extractFeatures(windowData);
-    }
-
     /**
      * Calculate actual price change for training targets
      */
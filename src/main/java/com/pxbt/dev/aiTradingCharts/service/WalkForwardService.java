@@ -0,0 +1,286 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.AccuracyRecord;
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.model.WalkForwardResult;
+import com.pxbt.dev.aiTradingCharts.util.FeatureColumns;
+import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Walk-forward evaluation: every {@code retrainEvery} candles a fresh model is trained on only the data
+ * available at that point and scored on the following block. Features are read once from the feature store
+ * into a shared, read-only matrix (ta4j indicators are causal, so row i only sees candles up to i) and folds train
+ * independently on a ForkJoin pool sized to fit the memory budget.
+ */
+@Slf4j
+@Service
+public class WalkForwardService {
+
+    public static final String AUDIT_SUFFIX = ":wf";
+
+    // Rough heap per training cell (rows x columns) once Weka instances, the 80/20 copies and the
+    // candidate models are all alive. A 3000-row daily fold comes out around 16MB.
+    private static final long BYTES_PER_TRAINING_CELL = 8L * 32;
+
+    @Autowired
+    private BinanceHistoricalService historicalDataService;
+
+    @Autowired
+    private AIModelService aiModelService;
+
+    @Autowired
+    private TrainingDataService trainingDataService;
+
+    @Autowired
+    private AccuracyPersistenceService accuracyPersistenceService;
+
+    @Autowired
+    private FeatureStoreService featureStore;
+
+    @Value("${app.walkforward.memory-budget-mb:256}")
+    long memoryBudgetMb;
+
+    @Value("${app.walkforward.max-parallelism:0}")
+    int maxParallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * Shared feature matrix for one symbol/timeframe: row i holds the features at candle i and the
+     * change to candle i + 1.
+     */
+    record FeatureMatrix(double[][] features, double[] targets, long[] timestamps,
+                         double[] closes, int firstRow, int endRow) {
+    }
+
+    record FoldPlan(int fold, int[] trainRows, int testFrom, int testTo) {
+    }
+
+    private record FoldOutcome(WalkForwardResult.Fold summary, List<AccuracyRecord> records) {
+    }
+
+    public int defaultRetrainEvery(String timeframe) {
+        return switch (timeframe) {
+            case "1w", "1W" -> 13;  // Quarterly
+            case "1m", "1M" -> 6;   // Half-yearly
+            default -> 90;         // Quarterly on dailies
+        };
+    }
+
+    /**
+     * @throws IllegalStateException if another walk-forward run is in progress
+     */
+    public WalkForwardResult run(String symbol, String timeframe, int retrainEvery) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Walk-forward already running");
+        }
+        try {
+            return runInternal(symbol, timeframe, retrainEvery);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private WalkForwardResult runInternal(String symbol, String timeframe, int retrainEvery) {
+        long started = System.currentTimeMillis();
+        String auditTimeframe = timeframe + AUDIT_SUFFIX;
+
+        int pointsNeeded = timeframe.equalsIgnoreCase("1d") ? 3000 : (timeframe.equalsIgnoreCase("1w") ? 1000 : 500);
+        List<CryptoPrice> data = historicalDataService.getHistoricalData(symbol, timeframe, pointsNeeded);
+        FeatureMatrix matrix = buildMatrix(symbol, timeframe, data);
+        List<FoldPlan> plans = planFolds(timeframe, matrix, retrainEvery);
+
+        WalkForwardResult.WalkForwardResultBuilder result = WalkForwardResult.builder()
+                .symbol(symbol)
+                .timeframe(timeframe)
+                .auditTimeframe(auditTimeframe)
+                .retrainEvery(retrainEvery);
+
+        if (plans.isEmpty()) {
+            log.warn("⚠️ Not enough {} {} history for walk-forward: {} candles", symbol, timeframe, data.size());
+            return result.folds(List.of()).parallelism(0)
+                    .aggregate(accuracyPersistenceService.getSummary(symbol, auditTimeframe))
+                    .elapsedMs(System.currentTimeMillis() - started)
+                    .build();
+        }
+
+        int parallelism = parallelismFor(plans);
+        log.info("🚶 Walk-forward {} {}: {} folds, retrain every {}, parallelism {}",
+                symbol, timeframe, plans.size(), retrainEvery, parallelism);
+
+        List<Callable<FoldOutcome>> tasks = new ArrayList<>(plans.size());
+        for (FoldPlan plan : plans) {
+            tasks.add(() -> runFold(symbol, auditTimeframe, timeframe, matrix, plan));
+        }
+
+        List<WalkForwardResult.Fold> folds = new ArrayList<>(plans.size());
+        List<AccuracyRecord> records = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<FoldOutcome> future : pool.invokeAll(tasks)) {
+                try {
+                    FoldOutcome outcome = future.get();
+                    if (outcome != null) {
+                        folds.add(outcome.summary());
+                        records.addAll(outcome.records());
+                    }
+                } catch (ExecutionException e) {
+                    log.warn("⚠️ Walk-forward fold failed for {} {}: {}", symbol, timeframe, e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        accuracyPersistenceService.replaceEvaluatedRecords(symbol, auditTimeframe, records);
+
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("✅ Walk-forward {} {} finished: {} folds, {} predictions in {}ms",
+                symbol, timeframe, folds.size(), records.size(), elapsed);
+
+        return result
+                .parallelism(parallelism)
+                .folds(folds)
+                .aggregate(accuracyPersistenceService.getSummary(symbol, auditTimeframe))
+                .elapsedMs(elapsed)
+                .build();
+    }
+
+    private FeatureMatrix buildMatrix(String symbol, String timeframe, List<CryptoPrice> data) {
+        int n = data.size();
+        double[][] features = new double[n][];
+        double[] targets = new double[n];
+        long[] timestamps = new long[n];
+        double[] closes = new double[n];
+
+        int firstRow = trainingDataService.getWindowSize(timeframe) - 1;
+        int endRow = n - 1; // Last candle has no next close to score against
+        if (endRow <= firstRow) {
+            return new FeatureMatrix(features, targets, timestamps, closes, 0, 0);
+        }
+
+        FeatureColumns stored = featureStore.getFeatures(symbol, timeframe, data);
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = data.get(i).getTimestamp();
+            closes[i] = data.get(i).getClose();
+        }
+        for (int i = firstRow; i < endRow; i++) {
+            features[i] = stored.features(i);
+            targets[i] = (closes[i + 1] - closes[i]) / closes[i];
+        }
+        return new FeatureMatrix(features, targets, timestamps, closes, firstRow, endRow);
+    }
+
+    /**
+     * Expanding-window folds. The first half of the usable rows seeds training; a fold's training rows all
+     * have their target candle closed before the fold's first prediction.
+     */
+    List<FoldPlan> planFolds(String timeframe, FeatureMatrix matrix, int retrainEvery) {
+        List<FoldPlan> plans = new ArrayList<>();
+        int usable = matrix.endRow() - matrix.firstRow();
+        int minTraining = trainingDataService.getMinTrainingSamples(timeframe);
+        if (usable < minTraining * 2 || retrainEvery < 1) {
+            return plans;
+        }
+
+        double maxChange = trainingDataService.getMaxChangeFilter(timeframe);
+        int testStart = matrix.firstRow() + Math.max(usable / 2, minTraining);
+        for (int fold = 0; testStart < matrix.endRow(); fold++, testStart += retrainEvery) {
+            int[] trainRows = new int[testStart - matrix.firstRow()];
+            int count = 0;
+            for (int row = matrix.firstRow(); row < testStart; row++) {
+                if (Math.abs(matrix.targets()[row]) < maxChange) trainRows[count++] = row;
+            }
+            if (count < minTraining) continue;
+            int[] rows = new int[count];
+            System.arraycopy(trainRows, 0, rows, 0, count);
+            plans.add(new FoldPlan(fold, rows, testStart, Math.min(testStart + retrainEvery, matrix.endRow())));
+        }
+        return plans;
+    }
+
+    int parallelismFor(List<FoldPlan> plans) {
+        // The last fold trains on the most rows
+        long foldBytes = (long) plans.get(plans.size() - 1).trainRows().length
+                * (FeatureExtractor.FEATURE_SIZE + 1) * BYTES_PER_TRAINING_CELL;
+        long budget = Math.min(memoryBudgetMb * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4);
+        int cores = maxParallelism > 0 ? maxParallelism : Runtime.getRuntime().availableProcessors();
+        long byMemory = Math.max(1, budget / Math.max(1, foldBytes));
+        return (int) Math.max(1, Math.min(Math.min(byMemory, cores), plans.size()));
+    }
+
+    private FoldOutcome runFold(String symbol, String auditTimeframe, String timeframe,
+                                FeatureMatrix matrix, FoldPlan plan) throws Exception {
+        AIModelService.DetachedModel model = aiModelService.trainDetached(
+                timeframe, matrix.features(), matrix.targets(), plan.trainRows());
+        if (model == null) {
+            log.warn("⚠️ Walk-forward fold {} for {} {} produced no model", plan.fold(), symbol, timeframe);
+            return null;
+        }
+
+        String modelName = "WF-" + model.getName() + "#" + plan.fold();
+        List<AccuracyRecord> records = new ArrayList<>(plan.testTo() - plan.testFrom());
+        int wins = 0;
+        double errorSum = 0;
+        for (int i = plan.testFrom(); i < plan.testTo(); i++) {
+            double current = matrix.closes()[i];
+            double actual = matrix.closes()[i + 1];
+            double predictedMove = model.predict(matrix.features()[i]);
+            double actualMove = matrix.targets()[i];
+            double predictedPrice = current * (1 + predictedMove);
+            double confidence = aiModelService.detachedConfidence(symbol, timeframe, model, predictedMove);
+            boolean match = (predictedMove > 0 && actualMove > 0) || (predictedMove < 0 && actualMove < 0);
+
+            if (match) wins++;
+            errorSum += Math.abs(predictedPrice - actual) / actual;
+            records.add(AccuracyRecord.builder()
+                    .symbol(symbol)
+                    .timeframe(auditTimeframe)
+                    .predictionTime(matrix.timestamps()[i])
+                    .targetTime(matrix.timestamps()[i + 1])
+                    .currentPrice(current)
+                    .predictedPrice(predictedPrice)
+                    .actualPrice(actual)
+                    .predictedChange(predictedMove)
+                    .actualChange(actualMove)
+                    .isDirectionMatch(match)
+                    .modelName(modelName)
+                    .confidence(confidence)
+                    .isEvaluated(true)
+                    .build());
+        }
+
+        int[] trainRows = plan.trainRows();
+        WalkForwardResult.Fold summary = WalkForwardResult.Fold.builder()
+                .fold(plan.fold())
+                .trainFrom(matrix.timestamps()[trainRows[0]])
+                .trainTo(matrix.timestamps()[trainRows[trainRows.length - 1]])
+                .testFrom(matrix.timestamps()[plan.testFrom()])
+                .testTo(matrix.timestamps()[plan.testTo() - 1])
+                .trainSamples(trainRows.length)
+                .testSamples(records.size())
+                .modelName(model.getName())
+                .winRate(records.isEmpty() ? 0 : wins * 100.0 / records.size())
+                .avgError(records.isEmpty() ? 0 : errorSum * 100.0 / records.size())
+                .build();
+
+        log.info("📊 Walk-forward fold {} {} {}: {} train / {} test, win rate {}%",
+                plan.fold(), symbol, timeframe, trainRows.length, records.size(),
+                String.format("%.1f", summary.getWinRate()));
+        return new FoldOutcome(summary, records);
+    }
+}
@@ -2,15 +2,12 @@ package com.pxbt.dev.aiTradingCharts.service;
 
 import com.pxbt.dev.aiTradingCharts.model.WyckoffResult;
 import com.pxbt.dev.aiTradingCharts.model.PriceUpdate;
-import com.pxbt.dev.aiTradingCharts.util.Ta4jConverter;
+import com.pxbt.dev.aiTradingCharts.util.AnalysisContext;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
+import com.pxbt.dev.aiTradingCharts.util.IncrementalIndicators;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.indicators.SMAIndicator;
-import org.ta4j.core.indicators.volume.VWAPIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.indicators.helpers.VolumeIndicator;
-import org.ta4j.core.num.Num;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,6 +20,9 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class WyckoffAnalysisService {
 
+    @Autowired
+    private AnalysisContextService analysisContextService;
+
     private final Map<String, CachedResult> resultsCache = new ConcurrentHashMap<>();
 
     private static class CachedResult {
@@ -65,7 +65,7 @@ public class WyckoffAnalysisService {
                 results.put(tf, cached.result);
             } else if (timeframeData.containsKey(tf)) {
                 log.info("📡 Wyckoff Cache MISS / FRESH for {} {}", symbol, tf);
-                WyckoffResult fresh = analyze(symbol, timeframeData.get(tf));
+                WyckoffResult fresh = analyze(symbol, tf, timeframeData.get(tf));
                 resultsCache.put(cacheKey, new CachedResult(fresh));
                 results.put(tf, fresh);
             }
@@ -74,33 +74,39 @@ public class WyckoffAnalysisService {
         return results;
     }
 
-    public WyckoffResult analyze(String symbol, List<PriceUpdate> data) {
+    public WyckoffResult analyze(String symbol, String timeframe, List<PriceUpdate> data) {
         if (data == null || data.size() < 20) {
             return new WyckoffResult("ANALYZING", "Insufficient data for market structure analysis.", 0.0, 0.0, 0.0, new java.util.ArrayList<>());
         }
+        return analyze(analysisContextService.forUpdates(symbol, timeframe, data));
+    }
 
-        try {
-            BarSeries series = Ta4jConverter.priceUpdateToSeries(symbol, data);
-            int lastIdx = series.getEndIndex();
+    /**
+     * Analysis on a shared context: benchmark SMAs, VWAP and volatility come from its indicator state
+     */
+    public WyckoffResult analyze(AnalysisContext context) {
+        if (context.size() < 20) {
+            return new WyckoffResult("ANALYZING", "Insufficient data for market structure analysis.", 0.0, 0.0, 0.0, new java.util.ArrayList<>());
+        }
+        String symbol = context.symbol();
 
-            ClosePriceIndicator close = new ClosePriceIndicator(series);
-            VolumeIndicator volume = new VolumeIndicator(series);
-            VWAPIndicator vwap = new VWAPIndicator(series, Math.min(series.getBarCount(), 20));
-            SMAIndicator sma20 = new SMAIndicator(close, 20);
-            SMAIndicator sma50 = new SMAIndicator(close, Math.min(series.getBarCount(), 50));
+        try {
+            CandleColumns data = context.candles();
+            int lastIdx = data.size() - 1;
+            IncrementalIndicators inds = context.benchmarks();
 
-            double currentPrice = close.getValue(lastIdx).doubleValue();
-            double vwapVal = vwap.getValue(lastIdx).doubleValue();
-            double sma20Val = sma20.getValue(lastIdx).doubleValue();
-            double sma50Val = sma50.getValue(lastIdx).doubleValue();
+            double currentPrice = inds.close();
+            double vwapVal = inds.vwap();
+            double sma20Val = inds.sma20();
+            double sma50Val = inds.sma50();
 
             // Law of Effort vs Result
-            double effortVsResult = calculateEffortVsResult(series, lastIdx);
+            double effortVsResult = calculateEffortVsResult(data, lastIdx);
             
             // Indicators
-            double volTrend = calculateVolumeTrend(series, 10);
-            double volatility = calculateVolatility(series, 20);
-            double moneyFlow = calculateMoneyFlow(series, 20);
+            double volTrend = calculateVolumeTrend(data, 10);
+            double volatility = calculateVolatility(inds);
+            double moneyFlow = calculateMoneyFlow(data, 20);
 
             // Phase Detection logic
             String phase;
@@ -148,7 +154,7 @@ public class WyckoffAnalysisService {
             WyckoffResult result = new WyckoffResult(phase, details, score, volatility, moneyFlow, new java.util.ArrayList<>());
             
             // Detect specific events
-            detectEvents(series, result, symbol);
+            detectEvents(data, sma20Val, result, symbol);
 
             return result;
 
@@ -158,13 +164,13 @@ public class WyckoffAnalysisService {
         }
     }
 
-    private void detectEvents(BarSeries series, WyckoffResult result, String symbol) {
-        int lastIdx = series.getEndIndex();
+    private void detectEvents(CandleColumns data, double sma20, WyckoffResult result, String symbol) {
+        int lastIdx = data.size() - 1;
         if (lastIdx < 20) return;
 
-        double currentPrice = series.getBar(lastIdx).getClosePrice().doubleValue();
-        double prevPrice = series.getBar(lastIdx - 1).getClosePrice().doubleValue();
-        double volume = series.getBar(lastIdx).getVolume().doubleValue();
+        double currentPrice = data.close(lastIdx);
+        double prevPrice = data.close(lastIdx - 1);
+        double volume = data.volume(lastIdx);
         
         // Find local range
         double localLow = Double.MAX_VALUE;
@@ -172,22 +178,22 @@ public class WyckoffAnalysisService {
         double avgVol = 0;
         
         for (int i = 1; i <= 10; i++) {
-            double low = series.getBar(lastIdx - i).getLowPrice().doubleValue();
-            double high = series.getBar(lastIdx - i).getHighPrice().doubleValue();
+            double low = data.low(lastIdx - i);
+            double high = data.high(lastIdx - i);
             localLow = Math.min(localLow, low);
             localHigh = Math.max(localHigh, high);
-            avgVol += series.getBar(lastIdx - i).getVolume().doubleValue();
+            avgVol += data.volume(lastIdx - i);
         }
         avgVol /= 10;
 
         // SPRING detection: Price breaks BELOW local low but closes ABOVE it
-        if (series.getBar(lastIdx).getLowPrice().doubleValue() < localLow && currentPrice > localLow) {
+        if (data.low(lastIdx) < localLow && currentPrice > localLow) {
             result.getEvents().add("SPRING detected: Shakeout successful.");
             log.info("📢 {} WYCKOFF EVENT: SPRING (Potential Accumulation)", symbol);
         }
 
         // UPTHRUST detection: Price breaks ABOVE local high but closes BELOW it
-        if (series.getBar(lastIdx).getHighPrice().doubleValue() > localHigh && currentPrice < localHigh) {
+        if (data.high(lastIdx) > localHigh && currentPrice < localHigh) {
             result.getEvents().add("UPTHRUST detected: False breakout.");
             log.info("📢 {} WYCKOFF EVENT: UPTHRUST (Potential Distribution)", symbol);
         }
@@ -199,43 +205,32 @@ public class WyckoffAnalysisService {
         }
 
         // LPS (Last Point of Support): Pullback to EMA20/SMA50 that holds
-        double sma20 = new SMAIndicator(new ClosePriceIndicator(series), 20).getValue(lastIdx).doubleValue();
         if (prevPrice < currentPrice && prevPrice <= sma20 * 1.01 && prevPrice >= sma20 * 0.99) {
             result.getEvents().add("LPS (Last Point of Support): Support validated.");
             log.info("📢 {} WYCKOFF EVENT: LPS/BU", symbol);
         }
     }
 
-    private double calculateVolatility(BarSeries series, int period) {
-        if (series.getBarCount() < period) return 0.0;
-        
-        ClosePriceIndicator close = new ClosePriceIndicator(series);
-        SMAIndicator sma = new SMAIndicator(close, period);
-        
-        double sumSqDiff = 0;
-        double mean = sma.getValue(series.getEndIndex()).doubleValue();
-        
-        for (int i = 0; i < period; i++) {
-            double price = series.getBar(series.getEndIndex() - i).getClosePrice().doubleValue();
-            sumSqDiff += Math.pow(price - mean, 2);
-        }
-        
-        double stdDev = Math.sqrt(sumSqDiff / period);
-        return (stdDev / mean) * 100; // Percentage volatility
+    private double calculateVolatility(IncrementalIndicators inds) {
+        if (inds.count() < AnalysisContext.BENCHMARK_PERIODS.stdShort()) return 0.0;
+
+        // Population standard deviation of the last 20 closes around their SMA
+        double mean = inds.sma20();
+        return (inds.stdDev20() / mean) * 100; // Percentage volatility
     }
 
-    private double calculateMoneyFlow(BarSeries series, int period) {
-        if (series.getBarCount() < period) return 0.0;
+    private double calculateMoneyFlow(CandleColumns data, int period) {
+        if (data.size() < period) return 0.0;
         
         double mfvSum = 0;
         double volSum = 0;
         
         for (int i = 0; i < period; i++) {
-            int idx = series.getEndIndex() - i;
-            double high = series.getBar(idx).getHighPrice().doubleValue();
-            double low = series.getBar(idx).getLowPrice().doubleValue();
-            double close = series.getBar(idx).getClosePrice().doubleValue();
-            double volume = series.getBar(idx).getVolume().doubleValue();
+            int idx = data.size() - 1 - i;
+            double high = data.high(idx);
+            double low = data.low(idx);
+            double close = data.close(idx);
+            double volume = data.volume(idx);
             
             double range = high - low;
             if (range > 0) {
@@ -248,20 +243,20 @@ public class WyckoffAnalysisService {
         return volSum > 0 ? mfvSum / volSum : 0.0;
     }
 
-    private double calculateEffortVsResult(BarSeries series, int index) {
+    private double calculateEffortVsResult(CandleColumns data, int index) {
         if (index < 5) return 0;
         
         double avgVol = 0;
         for (int i = 0; i < 5; i++) {
-            avgVol += series.getBar(index - i).getVolume().doubleValue();
+            avgVol += data.volume(index - i);
         }
         avgVol /= 5;
         
-        double currentVol = series.getBar(index).getVolume().doubleValue();
+        double currentVol = data.volume(index);
         double effort = (currentVol / avgVol) - 1.0;
         
-        double currentClose = series.getBar(index).getClosePrice().doubleValue();
-        double prevClose = series.getBar(index - 1).getClosePrice().doubleValue();
+        double currentClose = data.close(index);
+        double prevClose = data.close(index - 1);
         double result = (currentClose - prevClose) / prevClose;
         
         if (Math.abs(effort) > 0.2 && Math.abs(result) < 0.005) {
@@ -271,18 +266,18 @@ public class WyckoffAnalysisService {
         return 0;
     }
 
-    private double calculateVolumeTrend(BarSeries series, int period) {
-        int count = series.getBarCount();
+    private double calculateVolumeTrend(CandleColumns data, int period) {
+        int count = data.size();
         if (count < period * 2) return 0;
         
         double recentVol = 0;
         for (int i = 0; i < period; i++) {
-            recentVol += series.getBar(count - 1 - i).getVolume().doubleValue();
+            recentVol += data.volume(count - 1 - i);
         }
         
         double olderVol = 0;
         for (int i = 0; i < period; i++) {
-            olderVol += series.getBar(count - 1 - period - i).getVolume().doubleValue();
+            olderVol += data.volume(count - 1 - period - i);
         }
         
         return (recentVol - olderVol) / olderVol;
@@ -0,0 +1,311 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.pxbt.dev.aiTradingCharts.model.AccuracyRecord;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Column-oriented accuracy records for one (symbol, timeframe), kept in ascending prediction-time order.
+ * Win rate, average error and a rolling window over the latest evaluated rows are maintained as rows
+ * arrive, so summaries are O(1). Not thread-safe; callers hold their own lock.
+ */
+public class AccuracyColumns {
+
+    public static final int DEFAULT_ROLLING_WINDOW = 100;
+
+    private final String symbol;
+    private final String timeframe;
+
+    private long[] predictionTime;
+    private long[] targetTime;
+    private double[] currentPrice;
+    private double[] predictedPrice;
+    private double[] actualPrice;
+    private double[] predictedChange;
+    private double[] actualChange;
+    private double[] confidence;
+    private String[] modelName;
+    private final BitSet directionMatch = new BitSet();
+    private final BitSet evaluated = new BitSet();
+    private int size;
+
+    // Running totals over all evaluated rows
+    private int evaluatedCount;
+    private int wins;
+    private double errorSum;
+    private int lastEvaluatedRow = -1;
+
+    // Ring buffer over the latest evaluated rows
+    private final boolean[] ringWin;
+    private final double[] ringError;
+    private int ringPos;
+    private int ringCount;
+    private int ringWins;
+    private double ringErrorSum;
+
+    public AccuracyColumns(String symbol, String timeframe, int capacity) {
+        this(symbol, timeframe, capacity, DEFAULT_ROLLING_WINDOW);
+    }
+
+    public AccuracyColumns(String symbol, String timeframe, int capacity, int rollingWindow) {
+        this.symbol = symbol;
+        this.timeframe = timeframe;
+        int cap = Math.max(capacity, 1);
+        predictionTime = new long[cap];
+        targetTime = new long[cap];
+        currentPrice = new double[cap];
+        predictedPrice = new double[cap];
+        actualPrice = new double[cap];
+        predictedChange = new double[cap];
+        actualChange = new double[cap];
+        confidence = new double[cap];
+        modelName = new String[cap];
+        ringWin = new boolean[Math.max(rollingWindow, 1)];
+        ringError = new double[ringWin.length];
+    }
+
+    /**
+     * Append in time order (O(1) stats update); an older row is inserted in place and the stats rebuilt.
+     */
+    public void add(AccuracyRecord record) {
+        if (size == predictionTime.length) {
+            grow(size * 2);
+        }
+        int row = size;
+        boolean inOrder = size == 0 || record.getPredictionTime() >= predictionTime[size - 1];
+        if (!inOrder) {
+            row = upperBound(record.getPredictionTime());
+            shiftRight(row);
+        }
+        set(row, record);
+        size++;
+
+        if (inOrder) {
+            accumulate(row);
+        } else {
+            rebuildStats();
+        }
+    }
+
+    /**
+     * Drop all evaluated rows, keeping pending predictions
+     */
+    public void removeEvaluated() {
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if (evaluated.get(r)) continue;
+            if (w != r) {
+                predictionTime[w] = predictionTime[r];
+                targetTime[w] = targetTime[r];
+                currentPrice[w] = currentPrice[r];
+                predictedPrice[w] = predictedPrice[r];
+                actualPrice[w] = actualPrice[r];
+                predictedChange[w] = predictedChange[r];
+                actualChange[w] = actualChange[r];
+                confidence[w] = confidence[r];
+                modelName[w] = modelName[r];
+                directionMatch.set(w, directionMatch.get(r));
+            }
+            w++;
+        }
+        Arrays.fill(modelName, w, size, null);
+        directionMatch.clear(w, size);
+        evaluated.clear();
+        size = w;
+        rebuildStats();
+    }
+
+    public AccuracyRecord toRecord(int i) {
+        return AccuracyRecord.builder()
+                .symbol(symbol)
+                .timeframe(timeframe)
+                .predictionTime(predictionTime[i])
+                .targetTime(targetTime[i])
+                .currentPrice(currentPrice[i])
+                .predictedPrice(predictedPrice[i])
+                .actualPrice(actualPrice[i])
+                .predictedChange(predictedChange[i])
+                .actualChange(actualChange[i])
+                .isDirectionMatch(directionMatch.get(i))
+                .modelName(modelName[i])
+                .confidence(confidence[i])
+                .isEvaluated(evaluated.get(i))
+                .build();
+    }
+
+    /**
+     * First row with predictionTime >= ts (size if none)
+     */
+    public int lowerBound(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (predictionTime[mid] < ts) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * First row with predictionTime > ts (size if none)
+     */
+    public int upperBound(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (predictionTime[mid] <= ts) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Copy of the evaluated rows as a simulator input
+     */
+    public StrategySimulator.Series toSignalSeries() {
+        int n = evaluatedCount;
+        long[] ts = new long[n];
+        double[] predicted = new double[n];
+        double[] actual = new double[n];
+        double[] conf = new double[n];
+        int w = 0;
+        for (int r = evaluated.nextSetBit(0); r >= 0 && r < size; r = evaluated.nextSetBit(r + 1)) {
+            ts[w] = predictionTime[r];
+            predicted[w] = predictedChange[r];
+            actual[w] = actualChange[r];
+            conf[w] = confidence[r];
+            w++;
+        }
+        return new StrategySimulator.Series(ts, predicted, actual, conf);
+    }
+
+    /**
+     * Direction hits (1/0) and absolute percentage errors of the evaluated rows, in time order
+     */
+    public BlockBootstrap.Outcomes toOutcomes() {
+        double[] hits = new double[evaluatedCount];
+        double[] errors = new double[evaluatedCount];
+        int w = 0;
+        for (int r = evaluated.nextSetBit(0); r >= 0 && r < size; r = evaluated.nextSetBit(r + 1)) {
+            hits[w] = directionMatch.get(r) ? 1 : 0;
+            errors[w] = error(r);
+            w++;
+        }
+        return new BlockBootstrap.Outcomes(hits, errors);
+    }
+
+    // ===== STATS =====
+
+    private void accumulate(int row) {
+        if (!evaluated.get(row)) return;
+        boolean win = directionMatch.get(row);
+        double error = error(row);
+
+        evaluatedCount++;
+        if (win) wins++;
+        errorSum += error;
+        lastEvaluatedRow = row;
+
+        if (ringCount == ringWin.length) {
+            if (ringWin[ringPos]) ringWins--;
+            ringErrorSum -= ringError[ringPos];
+        } else {
+            ringCount++;
+        }
+        ringWin[ringPos] = win;
+        ringError[ringPos] = error;
+        if (win) ringWins++;
+        ringErrorSum += error;
+        ringPos = (ringPos + 1) % ringWin.length;
+    }
+
+    private void rebuildStats() {
+        evaluatedCount = 0;
+        wins = 0;
+        errorSum = 0;
+        lastEvaluatedRow = -1;
+        ringPos = 0;
+        ringCount = 0;
+        ringWins = 0;
+        ringErrorSum = 0;
+        for (int r = evaluated.nextSetBit(0); r >= 0 && r < size; r = evaluated.nextSetBit(r + 1)) {
+            accumulate(r);
+        }
+    }
+
+    private double error(int row) {
+        double actual = actualPrice[row];
+        return actual != 0 ? Math.abs(predictedPrice[row] - actual) / actual : 0;
+    }
+
+    public int evaluatedCount() { return evaluatedCount; }
+    public int pendingCount() { return size - evaluatedCount; }
+
+    /** Percentage of evaluated rows with a direction match */
+    public double winRate() { return evaluatedCount == 0 ? 0 : wins * 100.0 / evaluatedCount; }
+
+    /** Mean absolute percentage error over evaluated rows */
+    public double avgError() { return evaluatedCount == 0 ? 0 : errorSum * 100.0 / evaluatedCount; }
+
+    public int rollingCount() { return ringCount; }
+    public double rollingWinRate() { return ringCount == 0 ? 0 : ringWins * 100.0 / ringCount; }
+    public double rollingAvgError() { return ringCount == 0 ? 0 : ringErrorSum * 100.0 / ringCount; }
+    public double latestActualPrice() { return lastEvaluatedRow < 0 ? 0 : actualPrice[lastEvaluatedRow]; }
+
+    // ===== STORAGE =====
+
+    private void set(int row, AccuracyRecord r) {
+        predictionTime[row] = r.getPredictionTime();
+        targetTime[row] = r.getTargetTime();
+        currentPrice[row] = r.getCurrentPrice();
+        predictedPrice[row] = r.getPredictedPrice();
+        actualPrice[row] = r.getActualPrice();
+        predictedChange[row] = r.getPredictedChange();
+        actualChange[row] = r.getActualChange();
+        confidence[row] = r.getConfidence();
+        modelName[row] = r.getModelName() != null ? r.getModelName().intern() : null;
+        directionMatch.set(row, r.isDirectionMatch());
+        evaluated.set(row, r.isEvaluated());
+    }
+
+    private void shiftRight(int from) {
+        int n = size - from;
+        System.arraycopy(predictionTime, from, predictionTime, from + 1, n);
+        System.arraycopy(targetTime, from, targetTime, from + 1, n);
+        System.arraycopy(currentPrice, from, currentPrice, from + 1, n);
+        System.arraycopy(predictedPrice, from, predictedPrice, from + 1, n);
+        System.arraycopy(actualPrice, from, actualPrice, from + 1, n);
+        System.arraycopy(predictedChange, from, predictedChange, from + 1, n);
+        System.arraycopy(actualChange, from, actualChange, from + 1, n);
+        System.arraycopy(confidence, from, confidence, from + 1, n);
+        System.arraycopy(modelName, from, modelName, from + 1, n);
+        for (int r = size; r > from; r--) {
+            directionMatch.set(r, directionMatch.get(r - 1));
+            evaluated.set(r, evaluated.get(r - 1));
+        }
+    }
+
+    private void grow(int capacity) {
+        predictionTime = Arrays.copyOf(predictionTime, capacity);
+        targetTime = Arrays.copyOf(targetTime, capacity);
+        currentPrice = Arrays.copyOf(currentPrice, capacity);
+        predictedPrice = Arrays.copyOf(predictedPrice, capacity);
+        actualPrice = Arrays.copyOf(actualPrice, capacity);
+        predictedChange = Arrays.copyOf(predictedChange, capacity);
+        actualChange = Arrays.copyOf(actualChange, capacity);
+        confidence = Arrays.copyOf(confidence, capacity);
+        modelName = Arrays.copyOf(modelName, capacity);
+    }
+
+    public String symbol() { return symbol; }
+    public String timeframe() { return timeframe; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public long predictionTime(int i) { return predictionTime[i]; }
+    public boolean isEvaluated(int i) { return evaluated.get(i); }
+    public double predictedChange(int i) { return predictedChange[i]; }
+    public double actualChange(int i) { return actualChange[i]; }
+    public double confidence(int i) { return confidence[i]; }
+    public boolean isDirectionMatch(int i) { return directionMatch.get(i); }
+}
@@ -0,0 +1,67 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+/**
+ * What the prediction, Wyckoff and pattern services read about one candle window, computed once:
+ * the candles as columns, the benchmark indicators at the last candle and, for CryptoPrice windows,
+ * the model feature vector of the last candle. Treat everything as read-only; contexts are shared.
+ */
+public final class AnalysisContext {
+
+    // Benchmarks are the classic 5/20/50/100-bar SMAs and 20-bar VWAP/std on every timeframe: the daily slots
+    public static final FeatureExtractor.Periods BENCHMARK_PERIODS = FeatureExtractor.Periods.forTimeframe("1d");
+
+    private final String symbol;
+    private final String timeframe;
+    private final CandleColumns candles;
+    private final double[] closes;
+    private final IncrementalIndicators benchmarks;
+    private final double[] features;
+
+    public AnalysisContext(String symbol, String timeframe, CandleColumns candles,
+                           IncrementalIndicators benchmarks, double[] features) {
+        this.symbol = symbol;
+        this.timeframe = timeframe;
+        this.candles = candles;
+        this.benchmarks = benchmarks;
+        this.features = features;
+        this.closes = new double[candles.size()];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = candles.close(i);
+        }
+    }
+
+    /**
+     * Population standard deviation of the closes over the {@code period} candles ending at {@code index}
+     * (fewer at the start of the window), as ta4j's StandardDeviationIndicator
+     */
+    public double stdDev(int period, int index) {
+        int start = Math.max(0, index - period + 1);
+        int n = index - start + 1;
+        double mean = 0;
+        for (int i = start; i <= index; i++) mean += closes[i];
+        mean /= n;
+        double sumSq = 0;
+        for (int i = start; i <= index; i++) {
+            double d = closes[i] - mean;
+            sumSq += d * d;
+        }
+        return Math.sqrt(sumSq / n);
+    }
+
+    public String symbol() { return symbol; }
+    public String timeframe() { return timeframe; }
+    public CandleColumns candles() { return candles; }
+    public int size() { return closes.length; }
+    public int lastIndex() { return closes.length - 1; }
+    public double lastClose() { return closes[closes.length - 1]; }
+    public long lastTimestamp() { return candles.lastTimestamp(); }
+
+    /** Closes of the window (shared array, do not modify) */
+    public double[] closes() { return closes; }
+
+    /** Benchmark indicators ({@link #BENCHMARK_PERIODS}) with the last candle applied */
+    public IncrementalIndicators benchmarks() { return benchmarks; }
+
+    /** Model features of the last candle, or null when the window was not built from CryptoPrice candles */
+    public double[] features() { return features; }
+}
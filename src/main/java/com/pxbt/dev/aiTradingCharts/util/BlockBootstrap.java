@@ -0,0 +1,148 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Circular block bootstrap of backtest outcomes (direction hit 1/0 and absolute error per evaluated prediction).
+ * Blocks keep neighbouring predictions together so autocorrelated streaks widen the interval as they should.
+ * Resamples are split across a ForkJoin pool; each subtask gets its own SplittableRandom split from a fixed
+ * tree, so results depend only on the seed, never on thread scheduling.
+ */
+public final class BlockBootstrap {
+
+    private static final int LEAF_RESAMPLES = 256;
+
+    private BlockBootstrap() {
+    }
+
+    /**
+     * Per-prediction outcomes in time order
+     */
+    public record Outcomes(double[] hits, double[] errors) {
+        public int size() {
+            return hits.length;
+        }
+    }
+
+    public static final class Result {
+        public int samples;
+        public int resamples;
+        public int blockLength;
+        public double confidenceLevel;
+        public double winRate;       // Fractions, 0.55 = 55%
+        public double winRateLow;
+        public double winRateHigh;
+        public double avgError;
+        public double avgErrorLow;
+        public double avgErrorHigh;
+    }
+
+    /**
+     * Politis–White style rule of thumb: block length grows with the cube root of the sample size
+     */
+    public static int defaultBlockLength(int n) {
+        return Math.max(1, (int) Math.ceil(Math.cbrt(n)));
+    }
+
+    public static Result run(Outcomes outcomes, int resamples, double confidenceLevel, int blockLength,
+                             long seed, ForkJoinPool pool) {
+        int n = outcomes.size();
+        Result r = new Result();
+        r.samples = n;
+        r.resamples = resamples;
+        r.confidenceLevel = confidenceLevel;
+        if (n == 0 || resamples <= 0) return r;
+
+        int block = Math.min(n, blockLength > 0 ? blockLength : defaultBlockLength(n));
+        r.blockLength = block;
+
+        // Prefix sums over the series wrapped once, so any circular block sum is one subtraction
+        double[] hitPrefix = wrappedPrefix(outcomes.hits());
+        double[] errorPrefix = wrappedPrefix(outcomes.errors());
+        r.winRate = hitPrefix[n] / n;
+        r.avgError = errorPrefix[n] / n;
+
+        double[] winRates = new double[resamples];
+        double[] errors = new double[resamples];
+        pool.invoke(new Resample(hitPrefix, errorPrefix, n, block, winRates, errors, 0, resamples, new SplittableRandom(seed)));
+
+        Arrays.sort(winRates);
+        Arrays.sort(errors);
+        double tail = (1 - confidenceLevel) / 2;
+        r.winRateLow = percentile(winRates, tail);
+        r.winRateHigh = percentile(winRates, 1 - tail);
+        r.avgErrorLow = percentile(errors, tail);
+        r.avgErrorHigh = percentile(errors, 1 - tail);
+        return r;
+    }
+
+    private static double[] wrappedPrefix(double[] values) {
+        int n = values.length;
+        double[] prefix = new double[2 * n + 1];
+        for (int i = 0; i < 2 * n; i++) {
+            prefix[i + 1] = prefix[i] + values[i < n ? i : i - n];
+        }
+        return prefix;
+    }
+
+    private static double percentile(double[] sorted, double q) {
+        double pos = q * (sorted.length - 1);
+        int i = (int) pos;
+        if (i >= sorted.length - 1) return sorted[sorted.length - 1];
+        double frac = pos - i;
+        return sorted[i] + (sorted[i + 1] - sorted[i]) * frac;
+    }
+
+    // ForkJoinTask is Serializable, but these tasks never leave the pool
+    @SuppressWarnings("serial")
+    private static final class Resample extends RecursiveAction {
+        private final double[] hitPrefix;
+        private final double[] errorPrefix;
+        private final int n;
+        private final int block;
+        private final double[] winRates;
+        private final double[] errors;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        Resample(double[] hitPrefix, double[] errorPrefix, int n, int block,
+                 double[] winRates, double[] errors, int from, int to, SplittableRandom random) {
+            this.hitPrefix = hitPrefix;
+            this.errorPrefix = errorPrefix;
+            this.n = n;
+            this.block = block;
+            this.winRates = winRates;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_RESAMPLES) {
+                int mid = (from + to) >>> 1;
+                // Split before forking so the stream tree is the same however the pool schedules it
+                Resample left = new Resample(hitPrefix, errorPrefix, n, block, winRates, errors, from, mid, random.split());
+                Resample right = new Resample(hitPrefix, errorPrefix, n, block, winRates, errors, mid, to, random);
+                invokeAll(left, right);
+                return;
+            }
+            for (int b = from; b < to; b++) {
+                double hits = 0, error = 0;
+                for (int filled = 0; filled < n; filled += block) {
+                    int start = random.nextInt(n);
+                    int end = start + Math.min(block, n - filled);
+                    hits += hitPrefix[end] - hitPrefix[start];
+                    error += errorPrefix[end] - errorPrefix[start];
+                }
+                winRates[b] = hits / n;
+                errors[b] = error / n;
+            }
+        }
+    }
+}
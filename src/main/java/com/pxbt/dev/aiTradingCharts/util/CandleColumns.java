@@ -0,0 +1,134 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.model.PriceUpdate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented OHLCV candles backed by primitive arrays (no per-candle objects).
+ * Rows are kept in ascending timestamp order.
+ */
+public class CandleColumns {
+
+    private long[] timestamps;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private int size;
+
+    public CandleColumns(int capacity) {
+        int cap = Math.max(capacity, 1);
+        timestamps = new long[cap];
+        open = new double[cap];
+        high = new double[cap];
+        low = new double[cap];
+        close = new double[cap];
+        volume = new double[cap];
+    }
+
+    public static CandleColumns fromPrices(List<CryptoPrice> prices) {
+        CandleColumns columns = new CandleColumns(prices.size());
+        for (CryptoPrice p : prices) {
+            double c = p.getClose() != 0 ? p.getClose() : p.getPrice();
+            columns.add(p.getTimestamp(),
+                    p.getOpen() != 0 ? p.getOpen() : c,
+                    p.getHigh() != 0 ? p.getHigh() : c,
+                    p.getLow() != 0 ? p.getLow() : c,
+                    c, p.getVolume());
+        }
+        return columns;
+    }
+
+    public static CandleColumns fromUpdates(List<PriceUpdate> updates) {
+        CandleColumns columns = new CandleColumns(updates.size());
+        for (PriceUpdate p : updates) {
+            double c = p.getClose() != 0 ? p.getClose() : p.getPrice();
+            columns.add(p.getTimestamp(),
+                    p.getOpen() != 0 ? p.getOpen() : c,
+                    p.getHigh() != 0 ? p.getHigh() : c,
+                    p.getLow() != 0 ? p.getLow() : c,
+                    c, p.getVolume());
+        }
+        return columns;
+    }
+
+    public void add(long ts, double o, double h, double l, double c, double v) {
+        if (size == timestamps.length) {
+            grow(size * 2);
+        }
+        timestamps[size] = ts;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    private void grow(int capacity) {
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+
+    /**
+     * Copy of rows [from, to)
+     */
+    public CandleColumns slice(int from, int to) {
+        int start = Math.max(0, from);
+        int end = Math.min(size, to);
+        CandleColumns out = new CandleColumns(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            out.add(timestamps[i], open[i], high[i], low[i], close[i], volume[i]);
+        }
+        return out;
+    }
+
+    public CandleColumns tail(int limit) {
+        return limit >= size ? this : slice(size - limit, size);
+    }
+
+    /**
+     * First row with timestamp >= ts (size if none)
+     */
+    public int lowerBound(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < ts) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    public CryptoPrice toPrice(String symbol, int i) {
+        return new CryptoPrice(symbol, close[i], volume[i], timestamps[i], open[i], high[i], low[i], close[i]);
+    }
+
+    public List<CryptoPrice> toPrices(String symbol) {
+        List<CryptoPrice> prices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            prices.add(toPrice(symbol, i));
+        }
+        return prices;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public long timestamp(int i) { return timestamps[i]; }
+    public double open(int i) { return open[i]; }
+    public double high(int i) { return high[i]; }
+    public double low(int i) { return low[i]; }
+    public double close(int i) { return close[i]; }
+    public double volume(int i) { return volume[i]; }
+    public long firstTimestamp() { return timestamps[0]; }
+    public long lastTimestamp() { return timestamps[size - 1]; }
+}
@@ -0,0 +1,416 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gorilla-style compressed candle segments.
+ *
+ * Layout: header (magic, version, block size, candle count, block count), then a block index
+ * (first ts, last ts, rows, byte length per block), then the blocks. Each block is one bit stream
+ * holding, per candle, a delta-of-delta timestamp followed by XOR-encoded open/high/low/close/volume.
+ * Blocks decode independently, so tail and range reads only touch the blocks they need.
+ */
+public final class CandleSegmentCodec {
+
+    public static final String EXTENSION = ".cseg";
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final int MAGIC = 0x43534547; // "CSEG"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 4 + 4 + 4;
+    private static final int INDEX_ENTRY_BYTES = 8 + 8 + 4 + 4;
+    private static final int VALUE_COLUMNS = 5;
+
+    private CandleSegmentCodec() {
+    }
+
+    /**
+     * Sparse timestamp index over the blocks of a segment
+     */
+    public static final class Index {
+        public final int blockSize;
+        public final int count;
+        public final long[] firstTs;
+        public final long[] lastTs;
+        public final int[] rows;
+        final long[] offsets;
+        final int[] lengths;
+
+        Index(int blockSize, int count, int blocks) {
+            this.blockSize = blockSize;
+            this.count = count;
+            this.firstTs = new long[blocks];
+            this.lastTs = new long[blocks];
+            this.rows = new int[blocks];
+            this.offsets = new long[blocks];
+            this.lengths = new int[blocks];
+        }
+
+        public int blockCount() {
+            return firstTs.length;
+        }
+
+        /**
+         * First block whose last timestamp is >= ts (blockCount() if none)
+         */
+        public int firstBlockEndingAtOrAfter(long ts) {
+            int lo = 0, hi = lastTs.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (lastTs[mid] < ts) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * Last block whose first timestamp is <= ts (-1 if none)
+         */
+        public int lastBlockStartingAtOrBefore(long ts) {
+            int lo = 0, hi = firstTs.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (firstTs[mid] <= ts) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo - 1;
+        }
+    }
+
+    // ===== WRITE =====
+
+    public static void write(Path path, CandleColumns candles) throws IOException {
+        write(path, candles, DEFAULT_BLOCK_SIZE);
+    }
+
+    public static void write(Path path, CandleColumns candles, int blockSize) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out, candles, blockSize);
+        }
+    }
+
+    public static void write(OutputStream target, CandleColumns candles, int blockSize) throws IOException {
+        int count = candles.size();
+        int blocks = (count + blockSize - 1) / blockSize;
+        List<byte[]> encoded = new ArrayList<>(blocks);
+        for (int b = 0; b < blocks; b++) {
+            encoded.add(encodeBlock(candles, b * blockSize, Math.min(count, (b + 1) * blockSize)));
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(blockSize);
+        out.writeInt(count);
+        out.writeInt(blocks);
+        for (int b = 0; b < blocks; b++) {
+            int from = b * blockSize;
+            int to = Math.min(count, from + blockSize);
+            out.writeLong(candles.timestamp(from));
+            out.writeLong(candles.timestamp(to - 1));
+            out.writeInt(to - from);
+            out.writeInt(encoded.get(b).length);
+        }
+        for (byte[] block : encoded) {
+            out.write(block);
+        }
+        out.flush();
+    }
+
+    private static byte[] encodeBlock(CandleColumns c, int from, int to) {
+        BitWriter w = new BitWriter((to - from) * 8);
+        XorState[] states = newStates();
+
+        long prevTs = c.timestamp(from);
+        long prevDelta = 0;
+        w.writeBits(prevTs, 64);
+        writeValues(w, states, c, from);
+
+        for (int i = from + 1; i < to; i++) {
+            long ts = c.timestamp(i);
+            long delta = ts - prevTs;
+            writeDeltaOfDelta(w, delta - prevDelta);
+            prevDelta = delta;
+            prevTs = ts;
+            writeValues(w, states, c, i);
+        }
+        return w.toByteArray();
+    }
+
+    private static void writeValues(BitWriter w, XorState[] states, CandleColumns c, int i) {
+        writeXor(w, states[0], c.open(i));
+        writeXor(w, states[1], c.high(i));
+        writeXor(w, states[2], c.low(i));
+        writeXor(w, states[3], c.close(i));
+        writeXor(w, states[4], c.volume(i));
+    }
+
+    private static void writeDeltaOfDelta(BitWriter w, long dod) {
+        if (dod == 0) {
+            w.writeBits(0b0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            w.writeBits(0b10, 2);
+            w.writeBits(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            w.writeBits(0b110, 3);
+            w.writeBits(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            w.writeBits(0b1110, 4);
+            w.writeBits(dod + 2047, 12);
+        } else {
+            w.writeBits(0b1111, 4);
+            w.writeBits(dod, 64);
+        }
+    }
+
+    private static void writeXor(BitWriter w, XorState st, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        long xor = bits ^ st.prev;
+        st.prev = bits;
+        if (xor == 0) {
+            w.writeBits(0b0, 1);
+            return;
+        }
+        int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trail = Long.numberOfTrailingZeros(xor);
+        if (st.lead >= 0 && lead >= st.lead && trail >= st.trail) {
+            // Meaningful bits fit inside the previous window
+            w.writeBits(0b10, 2);
+            w.writeBits(xor >>> st.trail, 64 - st.lead - st.trail);
+        } else {
+            int significant = 64 - lead - trail;
+            w.writeBits(0b11, 2);
+            w.writeBits(lead, 5);
+            w.writeBits(significant - 1, 6);
+            w.writeBits(xor >>> trail, significant);
+            st.lead = lead;
+            st.trail = trail;
+        }
+    }
+
+    // ===== READ =====
+
+    public static Index readIndex(FileChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a candle segment");
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported segment version " + version);
+        }
+        int blockSize = header.getInt();
+        int count = header.getInt();
+        int blocks = header.getInt();
+
+        Index index = new Index(blockSize, count, blocks);
+        ByteBuffer entries = readFully(channel, HEADER_BYTES, blocks * INDEX_ENTRY_BYTES);
+        long offset = HEADER_BYTES + (long) blocks * INDEX_ENTRY_BYTES;
+        for (int b = 0; b < blocks; b++) {
+            index.firstTs[b] = entries.getLong();
+            index.lastTs[b] = entries.getLong();
+            index.rows[b] = entries.getInt();
+            index.lengths[b] = entries.getInt();
+            index.offsets[b] = offset;
+            offset += index.lengths[b];
+        }
+        return index;
+    }
+
+    public static int count(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readIndex(channel).count;
+        }
+    }
+
+    public static CandleColumns readAll(Path path) throws IOException {
+        return readTail(path, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decode only the trailing blocks needed for the last {@code limit} candles
+     */
+    public static CandleColumns readTail(Path path, int limit) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Index index = readIndex(channel);
+            int blocks = index.blockCount();
+            if (blocks == 0 || limit <= 0) return new CandleColumns(0);
+
+            int first = blocks - 1;
+            int rows = index.rows[first];
+            while (first > 0 && rows < limit) {
+                rows += index.rows[--first];
+            }
+            return readBlocks(channel, index, first, blocks - 1).tail(limit);
+        }
+    }
+
+    /**
+     * Candles with from <= timestamp <= to. The block index is binary searched so only
+     * blocks overlapping the range are read and decoded.
+     */
+    public static CandleColumns readRange(Path path, long from, long to) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Index index = readIndex(channel);
+            int first = index.firstBlockEndingAtOrAfter(from);
+            int last = index.lastBlockStartingAtOrBefore(to);
+            if (first > last) return new CandleColumns(0);
+
+            CandleColumns blocks = readBlocks(channel, index, first, last);
+            return blocks.slice(blocks.lowerBound(from), blocks.lowerBound(to == Long.MAX_VALUE ? to : to + 1));
+        }
+    }
+
+    /**
+     * Decode blocks [fromBlock, toBlock] straight into primitive columns
+     */
+    public static CandleColumns readBlocks(FileChannel channel, Index index, int fromBlock, int toBlock) throws IOException {
+        int rows = 0;
+        for (int b = fromBlock; b <= toBlock; b++) rows += index.rows[b];
+        CandleColumns out = new CandleColumns(rows);
+        if (rows == 0) return out;
+
+        long start = index.offsets[fromBlock];
+        long end = index.offsets[toBlock] + index.lengths[toBlock];
+        byte[] bytes = readFully(channel, start, (int) (end - start)).array();
+        for (int b = fromBlock; b <= toBlock; b++) {
+            decodeBlock(bytes, (int) (index.offsets[b] - start), index.rows[b], out);
+        }
+        return out;
+    }
+
+    private static void decodeBlock(byte[] buf, int offset, int rows, CandleColumns out) {
+        BitReader r = new BitReader(buf, offset);
+        XorState[] states = newStates();
+
+        long ts = r.readBits(64);
+        long delta = 0;
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                delta += readDeltaOfDelta(r);
+                ts += delta;
+            }
+            double o = readXor(r, states[0]);
+            double h = readXor(r, states[1]);
+            double l = readXor(r, states[2]);
+            double c = readXor(r, states[3]);
+            double v = readXor(r, states[4]);
+            out.add(ts, o, h, l, c, v);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader r) {
+        if (r.readBit() == 0) return 0;
+        if (r.readBit() == 0) return r.readBits(7) - 63;
+        if (r.readBit() == 0) return r.readBits(9) - 255;
+        if (r.readBit() == 0) return r.readBits(12) - 2047;
+        return r.readBits(64);
+    }
+
+    private static double readXor(BitReader r, XorState st) {
+        if (r.readBit() == 1) {
+            long xor;
+            if (r.readBit() == 0) {
+                xor = r.readBits(64 - st.lead - st.trail) << st.trail;
+            } else {
+                st.lead = (int) r.readBits(5);
+                int significant = (int) r.readBits(6) + 1;
+                st.trail = 64 - st.lead - significant;
+                xor = r.readBits(significant) << st.trail;
+            }
+            st.prev ^= xor;
+        }
+        return Double.longBitsToDouble(st.prev);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated candle segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static XorState[] newStates() {
+        XorState[] states = new XorState[VALUE_COLUMNS];
+        for (int i = 0; i < VALUE_COLUMNS; i++) states[i] = new XorState();
+        return states;
+    }
+
+    private static final class XorState {
+        long prev;
+        int lead = -1;
+        int trail;
+    }
+
+    private static final class BitWriter {
+        private byte[] buf;
+        private long bitPos;
+
+        BitWriter(int initialBytes) {
+            buf = new byte[Math.max(initialBytes, 16)];
+        }
+
+        void writeBits(long value, int n) {
+            while (n > 0) {
+                int byteIdx = (int) (bitPos >>> 3);
+                if (byteIdx >= buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                int free = 8 - (int) (bitPos & 7);
+                int take = Math.min(free, n);
+                int chunk = (int) ((value >>> (n - take)) & ((1L << take) - 1));
+                buf[byteIdx] |= (byte) (chunk << (free - take));
+                bitPos += take;
+                n -= take;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, (int) ((bitPos + 7) >>> 3));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buf;
+        private long bitPos;
+
+        BitReader(byte[] buf, int byteOffset) {
+            this.buf = buf;
+            this.bitPos = (long) byteOffset << 3;
+        }
+
+        int readBit() {
+            int b = buf[(int) (bitPos >>> 3)] & 0xFF;
+            int bit = (b >>> (7 - (int) (bitPos & 7))) & 1;
+            bitPos++;
+            return bit;
+        }
+
+        long readBits(int n) {
+            long value = 0;
+            while (n > 0) {
+                int b = buf[(int) (bitPos >>> 3)] & 0xFF;
+                int avail = 8 - (int) (bitPos & 7);
+                int take = Math.min(avail, n);
+                int chunk = (b >>> (avail - take)) & ((1 << take) - 1);
+                value = (value << take) | chunk;
+                bitPos += take;
+                n -= take;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+/**
+ * Server-side downsampling for chart payloads.
+ * LTTB keeps the visual shape of a close-price line; OHLC buckets keep candle extremes intact.
+ */
+public final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets over the close series. Returns the selected candles unchanged
+     * (first and last are always kept).
+     */
+    public static CandleColumns lttb(CandleColumns source, int threshold) {
+        int n = source.size();
+        if (threshold >= n || threshold < 3) {
+            return source;
+        }
+
+        CandleColumns out = new CandleColumns(threshold);
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+
+        int a = 0;
+        copyRow(source, a, out);
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket is the third triangle vertex
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, n);
+            double avgX = 0, avgY = 0;
+            int nextCount = Math.max(nextEnd - nextStart, 1);
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += source.timestamp(i);
+                avgY += source.close(i);
+            }
+            if (nextEnd > nextStart) {
+                avgX /= nextCount;
+                avgY /= nextCount;
+            } else {
+                avgX = source.timestamp(n - 1);
+                avgY = source.close(n - 1);
+            }
+
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double ax = source.timestamp(a);
+            double ay = source.close(a);
+
+            double maxArea = -1;
+            int selected = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (source.close(i) - ay)
+                        - (ax - source.timestamp(i)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+
+            copyRow(source, selected, out);
+            a = selected;
+        }
+
+        copyRow(source, n - 1, out);
+        return out;
+    }
+
+    /**
+     * Merge consecutive candles into at most {@code maxPoints} buckets: first open, max high,
+     * min low, last close, summed volume, stamped with the first candle's open time.
+     */
+    public static CandleColumns ohlcBuckets(CandleColumns source, int maxPoints) {
+        int n = source.size();
+        if (maxPoints >= n || maxPoints < 1) {
+            return source;
+        }
+
+        CandleColumns out = new CandleColumns(maxPoints);
+        double bucketSize = (double) n / maxPoints;
+        for (int bucket = 0; bucket < maxPoints; bucket++) {
+            int start = (int) Math.floor(bucket * bucketSize);
+            int end = Math.min((int) Math.floor((bucket + 1) * bucketSize), n);
+            if (end <= start) continue;
+
+            double high = source.high(start);
+            double low = source.low(start);
+            double volume = 0;
+            for (int i = start; i < end; i++) {
+                high = Math.max(high, source.high(i));
+                low = Math.min(low, source.low(i));
+                volume += source.volume(i);
+            }
+            out.add(source.timestamp(start), source.open(start), high, low, source.close(end - 1), volume);
+        }
+        return out;
+    }
+
+    private static void copyRow(CandleColumns source, int i, CandleColumns out) {
+        out.add(source.timestamp(i), source.open(i), source.high(i), source.low(i), source.close(i), source.volume(i));
+    }
+}
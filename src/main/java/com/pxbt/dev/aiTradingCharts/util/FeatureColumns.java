@@ -0,0 +1,223 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Per-candle feature vectors for one (symbol, timeframe) next to the candle timestamp, close and volume they
+ * were computed from (the only inputs {@link FeatureExtractor} reads). Features are stored row-major,
+ * {@link #WIDTH} values per candle. Rows are in ascending timestamp order. Not thread-safe.
+ *
+ * The streaming indicator state over all rows but the last is kept in memory (never written), so appending a
+ * candle or revising the forming one costs O(1) instead of a series rebuild.
+ *
+ * File layout: magic, schema version, width, row count, then the timestamp, close, volume and feature columns.
+ */
+public class FeatureColumns {
+
+    public static final String EXTENSION = ".feat";
+    public static final int WIDTH = FeatureExtractor.FEATURE_SIZE;
+
+    private static final int MAGIC = 0x46454154; // "FEAT"
+
+    private long[] timestamps;
+    private double[] close;
+    private double[] volume;
+    private double[] features;
+    private int size;
+
+    private IncrementalIndicators state;       // Committed rows [0, stateRows)
+    private FeatureExtractor.Periods statePeriods;
+    private int stateRows;
+
+    public FeatureColumns(int capacity) {
+        int cap = Math.max(capacity, 1);
+        timestamps = new long[cap];
+        close = new double[cap];
+        volume = new double[cap];
+        features = new double[cap * WIDTH];
+    }
+
+    /**
+     * Append a candle; its feature row stays zero until {@link #computeFeatures} runs over it
+     */
+    public void add(long ts, double c, double v) {
+        if (size == timestamps.length) {
+            grow(size * 2);
+        }
+        timestamps[size] = ts;
+        close[size] = c;
+        volume[size] = v;
+        Arrays.fill(features, size * WIDTH, (size + 1) * WIDTH, 0);
+        size++;
+    }
+
+    /**
+     * Drop rows from {@code newSize} onwards
+     */
+    public void truncate(int newSize) {
+        size = Math.max(0, Math.min(size, newSize));
+        if (stateRows > size) {
+            state = null;
+        }
+    }
+
+    public boolean sameCandle(int row, long ts, double c, double v) {
+        return timestamps[row] == ts && close[row] == c && volume[row] == v;
+    }
+
+    /**
+     * Fill the feature rows from {@code from} to the end. Indicators are causal, so rows before {@code from}
+     * keep their values - unless they were computed over fewer than {@link FeatureExtractor.Periods#longest()}
+     * bars, where periods are capped by bar count, in which case every row is recomputed.
+     */
+    public void computeFeatures(String symbol, String timeframe, int from) {
+        if (size == 0) return;
+        FeatureExtractor.Periods periods = FeatureExtractor.Periods.forTimeframe(timeframe);
+        if (size < periods.longest()) {
+            // Capped periods depend on the series length, which only the full ta4j computation reproduces
+            state = null;
+            FeatureExtractor.Indicators inds = new FeatureExtractor.Indicators(
+                    Ta4jConverter.toSeries(symbol, timestamps, close, volume, size), timeframe);
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(FeatureExtractor.extractFeatures(i, inds), 0, features, i * WIDTH, WIDTH);
+            }
+            return;
+        }
+
+        int start = from < periods.longest() ? 0 : from;
+        syncState(periods, start);
+        for (int i = start; i < size - 1; i++) {
+            state.update(close[i], volume[i]);
+            stateRows++;
+            System.arraycopy(FeatureExtractor.extractFeatures(state), 0, features, i * WIDTH, WIDTH);
+        }
+        // The last candle may still be forming: preview it so the next revision does not have to rewind
+        int last = size - 1;
+        double[] row = FeatureExtractor.extractFeatures(state.preview(close[last], volume[last]));
+        System.arraycopy(row, 0, features, last * WIDTH, WIDTH);
+    }
+
+    /**
+     * Features of the last row as if its close were {@code price} (a live tick on the forming candle).
+     * Nothing is stored.
+     */
+    public double[] previewLast(String symbol, String timeframe, double price) {
+        int last = size - 1;
+        FeatureExtractor.Periods periods = FeatureExtractor.Periods.forTimeframe(timeframe);
+        if (size < periods.longest()) {
+            FeatureColumns copy = slice(0, size);
+            copy.close[last] = price;
+            copy.computeFeatures(symbol, timeframe, last);
+            return copy.features(last);
+        }
+        syncState(periods, last);
+        return FeatureExtractor.extractFeatures(state.preview(price, volume[last]));
+    }
+
+    /**
+     * Bring the streaming state to exactly {@code rows} committed rows, rewinding from scratch if it is past them
+     */
+    private void syncState(FeatureExtractor.Periods periods, int rows) {
+        if (state == null || !periods.equals(statePeriods) || stateRows > rows) {
+            state = new IncrementalIndicators(periods);
+            statePeriods = periods;
+            stateRows = 0;
+        }
+        for (; stateRows < rows; stateRows++) {
+            state.update(close[stateRows], volume[stateRows]);
+        }
+    }
+
+    /**
+     * Copy of the feature vector at a row
+     */
+    public double[] features(int row) {
+        return Arrays.copyOfRange(features, row * WIDTH, (row + 1) * WIDTH);
+    }
+
+    /**
+     * Copy of rows [from, to)
+     */
+    public FeatureColumns slice(int from, int to) {
+        int start = Math.max(0, from);
+        int end = Math.min(size, to);
+        int n = Math.max(0, end - start);
+        FeatureColumns out = new FeatureColumns(n);
+        if (n > 0) {
+            System.arraycopy(timestamps, start, out.timestamps, 0, n);
+            System.arraycopy(close, start, out.close, 0, n);
+            System.arraycopy(volume, start, out.volume, 0, n);
+            System.arraycopy(features, start * WIDTH, out.features, 0, n * WIDTH);
+        }
+        out.size = n;
+        return out;
+    }
+
+    /**
+     * First row with timestamp >= ts (size if none)
+     */
+    public int lowerBound(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < ts) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ===== FILE =====
+
+    public void write(Path path, int schemaVersion) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(schemaVersion);
+            out.writeInt(WIDTH);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) out.writeLong(timestamps[i]);
+            for (int i = 0; i < size; i++) out.writeDouble(close[i]);
+            for (int i = 0; i < size; i++) out.writeDouble(volume[i]);
+            for (int i = 0; i < size * WIDTH; i++) out.writeDouble(features[i]);
+        }
+    }
+
+    /**
+     * @return null if the file was written by another schema version or feature width
+     */
+    public static FeatureColumns read(Path path, int schemaVersion) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a feature file: " + path);
+            if (in.readInt() != schemaVersion || in.readInt() != WIDTH) return null;
+            int n = in.readInt();
+            FeatureColumns columns = new FeatureColumns(n);
+            for (int i = 0; i < n; i++) columns.timestamps[i] = in.readLong();
+            for (int i = 0; i < n; i++) columns.close[i] = in.readDouble();
+            for (int i = 0; i < n; i++) columns.volume[i] = in.readDouble();
+            for (int i = 0; i < n * WIDTH; i++) columns.features[i] = in.readDouble();
+            columns.size = n;
+            return columns;
+        }
+    }
+
+    private void grow(int capacity) {
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        features = Arrays.copyOf(features, capacity * WIDTH);
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public long timestamp(int i) { return timestamps[i]; }
+    public double close(int i) { return close[i]; }
+    public double volume(int i) { return volume[i]; }
+    public long firstTimestamp() { return timestamps[0]; }
+    public long lastTimestamp() { return timestamps[size - 1]; }
+}
@@ -14,6 +14,47 @@ public class FeatureExtractor {
 
     public static final int FEATURE_SIZE = 20;
 
+    // Bump whenever a feature or an indicator period changes, so stored feature files are rebuilt
+    public static final int SCHEMA_VERSION = 1;
+
+    public static final int RSI_PERIOD = 14;
+
+    /**
+     * Indicator periods for one timeframe.
+     * Field names (sma5, sma20 etc. in {@link Indicators}) represent semantic slots, not literal periods.
+     */
+    public record Periods(int p1, int p2, int p3, int p4,
+                          int emaShort, int emaLong,
+                          int macdFast, int macdSlow,
+                          int stdShort, int stdLong,
+                          int rocShort, int rocMid, int rocLong,
+                          int volPeriod) {
+
+        public static Periods forTimeframe(String timeframe) {
+            if ("1w".equalsIgnoreCase(timeframe)) {
+                // Weekly: ~4w=1mo, 10w=2.5mo, 20w=5mo, 40w=10mo
+                return new Periods(4, 10, 20, 40, 12, 40, 8, 17, 10, 20, 4, 8, 20, 10);
+            } else if ("1m".equalsIgnoreCase(timeframe)) {
+                // Monthly: 3mo=quarter, 6mo=half-year, 12mo=1yr, 24mo=2yr
+                return new Periods(3, 6, 12, 24, 6, 18, 6, 13, 6, 12, 3, 6, 12, 6);
+            }
+            // Daily defaults (original values)
+            return new Periods(5, 20, 50, 100, 12, 200, 12, 26, 20, 50, 5, 10, 50, 20);
+        }
+
+        /**
+         * Longest period in the set; shorter series get their periods capped by bar count
+         */
+        public int longest() {
+            int max = RSI_PERIOD;
+            for (int p : new int[]{p1, p2, p3, p4, emaShort, emaLong, macdFast, macdSlow,
+                    stdShort, stdLong, rocShort, rocMid, rocLong, volPeriod}) {
+                max = Math.max(max, p);
+            }
+            return max;
+        }
+    }
+
     /**
      * Container for pre-initialized indicators to avoid object explosion during training
      */
@@ -41,36 +82,11 @@ public class FeatureExtractor {
             this.close = new ClosePriceIndicator(series);
             this.volume = new VolumeIndicator(series);
 
-            // Period config per timeframe
-            // Field names (sma5, sma20 etc.) represent semantic slots, not literal periods
-            int p1, p2, p3, p4, emaShort, emaLong, macdFast, macdSlow,
-                stdShort, stdLong, rocShort, rocMid, rocLong, volPeriod;
-
-            if ("1w".equalsIgnoreCase(timeframe)) {
-                // Weekly: ~4w=1mo, 10w=2.5mo, 20w=5mo, 40w=10mo
-                p1=4;  p2=10; p3=20; p4=40;
-                emaShort=12; emaLong=40;
-                macdFast=8;  macdSlow=17;
-                stdShort=10; stdLong=20;
-                rocShort=4;  rocMid=8;   rocLong=20;
-                volPeriod=10;
-            } else if ("1m".equalsIgnoreCase(timeframe)) {
-                // Monthly: 3mo=quarter, 6mo=half-year, 12mo=1yr, 24mo=2yr
-                p1=3;  p2=6;  p3=12; p4=24;
-                emaShort=6;  emaLong=18;
-                macdFast=6;  macdSlow=13;
-                stdShort=6;  stdLong=12;
-                rocShort=3;  rocMid=6;   rocLong=12;
-                volPeriod=6;
-            } else {
-                // Daily defaults (original values)
-                p1=5;   p2=20;  p3=50;  p4=100;
-                emaShort=12; emaLong=200;
-                macdFast=12; macdSlow=26;
-                stdShort=20; stdLong=50;
-                rocShort=5;  rocMid=10;  rocLong=50;
-                volPeriod=20;
-            }
+            Periods p = Periods.forTimeframe(timeframe);
+            int p1 = p.p1(), p2 = p.p2(), p3 = p.p3(), p4 = p.p4(),
+                emaShort = p.emaShort(), emaLong = p.emaLong(), macdFast = p.macdFast(), macdSlow = p.macdSlow(),
+                stdShort = p.stdShort(), stdLong = p.stdLong(), rocShort = p.rocShort(), rocMid = p.rocMid(),
+                rocLong = p.rocLong(), volPeriod = p.volPeriod();
 
             // Cap all periods to available bar count to avoid ta4j exceptions
             int bc = barCount;
@@ -80,7 +96,7 @@ public class FeatureExtractor {
             this.sma100 = new SMAIndicator(close, Math.min(p4, bc));
             this.ema12  = new EMAIndicator(close, Math.min(emaShort, bc));
             this.ema200 = new EMAIndicator(close, Math.min(emaLong, bc));
-            this.rsi14  = new RSIIndicator(close, Math.min(14, bc));
+            this.rsi14  = new RSIIndicator(close, Math.min(RSI_PERIOD, bc));
             this.macd   = new MACDIndicator(close, Math.min(macdFast, bc), Math.min(macdSlow, bc));
             this.stdDev20 = new StandardDeviationIndicator(close, Math.min(stdShort, bc));
             this.stdDev50 = new StandardDeviationIndicator(close, Math.min(stdLong, bc));
@@ -109,54 +125,82 @@ public class FeatureExtractor {
      * High-performance extraction using pre-initialized indicators
      */
     public static double[] extractFeatures(int index, Indicators inds) {
+        return features(
+                inds.close.getValue(index).doubleValue(),
+                inds.volume.getValue(index).doubleValue(),
+                inds.sma5.getValue(index).doubleValue(),
+                inds.sma20.getValue(index).doubleValue(),
+                inds.sma50.getValue(index).doubleValue(),
+                inds.sma100.getValue(index).doubleValue(),
+                inds.ema12.getValue(index).doubleValue(),
+                inds.ema200.getValue(index).doubleValue(),
+                inds.rsi14.getValue(index).doubleValue(),
+                inds.macd.getValue(index).doubleValue(),
+                inds.stdDev20.getValue(index).doubleValue(),
+                inds.stdDev50.getValue(index).doubleValue(),
+                inds.roc5.getValue(index).doubleValue(),
+                inds.roc5.getValue(Math.max(0, index - 1)).doubleValue(),
+                inds.roc10.getValue(index).doubleValue(),
+                inds.roc50.getValue(index).doubleValue(),
+                inds.avgVol.getValue(index).doubleValue(),
+                inds.totalAvg.getValue(index).doubleValue(),
+                inds.bbUpper.getValue(index).doubleValue(),
+                inds.bbLower.getValue(index).doubleValue());
+    }
+
+    /**
+     * Features at the latest candle of a streaming indicator state (O(1), no series)
+     */
+    public static double[] extractFeatures(IncrementalIndicators s) {
+        return features(s.close(), s.volume(), s.sma5(), s.sma20(), s.sma50(), s.sma100(), s.ema12(), s.ema200(),
+                s.rsi14(), s.macd(), s.stdDev20(), s.stdDev50(), s.roc5(), s.previousRoc5(), s.roc10(), s.roc50(),
+                s.avgVolume(), s.totalAvg(), s.bbUpper(), s.bbLower());
+    }
+
+    private static double[] features(double current, double volume,
+                                     double sma5, double sma20, double sma50Val, double sma100Val,
+                                     double ema12, double ema200Val, double rsi, double macd,
+                                     double stdDevVal, double stdDev50, double roc5Now, double roc5Prev,
+                                     double roc10, double roc50, double avgVolVal, double totalAvgVal,
+                                     double upper, double lower) {
         double[] features = new double[FEATURE_SIZE];
         // 3. Extract and Normalize
-        double current = inds.close.getValue(index).doubleValue();
 
         // Standard Trend Features
-        features[0] = (current - inds.sma5.getValue(index).doubleValue()) / current;
-        features[1] = (current - inds.sma20.getValue(index).doubleValue()) / current;
-        features[2] = (current - inds.ema12.getValue(index).doubleValue()) / current;
+        features[0] = (current - sma5) / current;
+        features[1] = (current - sma20) / current;
+        features[2] = (current - ema12) / current;
         
         // Momentum Features
-        features[3] = (inds.rsi14.getValue(index).doubleValue() - 50.0) / 50.0;
-        features[4] = inds.macd.getValue(index).doubleValue() / current;
-        features[5] = inds.stdDev20.getValue(index).doubleValue() / current;
-        features[6] = inds.roc10.getValue(index).doubleValue() / 100.0;
+        features[3] = (rsi - 50.0) / 50.0;
+        features[4] = macd / current;
+        features[5] = stdDevVal / current;
+        features[6] = roc10 / 100.0;
         
         // Volume Features
-        double avgVolVal = inds.avgVol.getValue(index).doubleValue();
         features[7] = (Math.abs(avgVolVal) < 0.000001) ? 0 : 
-                       (inds.volume.getValue(index).doubleValue() / avgVolVal) - 1.0;
+                       (volume / avgVolVal) - 1.0;
         
         // Volatility & Relative Strength
-        double stdDevVal = inds.stdDev20.getValue(index).doubleValue();
         features[8] = (Math.abs(stdDevVal) < 0.000001) ? 0 :
-                       (current - inds.sma20.getValue(index).doubleValue()) / stdDevVal / 3.0;
+                       (current - sma20) / stdDevVal / 3.0;
         
         // Trend Strength
-        double sma50Val = inds.sma50.getValue(index).doubleValue();
-        features[9] = (inds.sma20.getValue(index).doubleValue() - sma50Val) / (Math.abs(sma50Val) < 0.000001 ? 1 : sma50Val);
+        features[9] = (sma20 - sma50Val) / (Math.abs(sma50Val) < 0.000001 ? 1 : sma50Val);
         
         // Support/Resistance proxy
-        double totalAvgVal = inds.totalAvg.getValue(index).doubleValue();
         features[10] = (current - totalAvgVal) / (Math.abs(totalAvgVal) < 0.000001 ? 1 : totalAvgVal);
         
         // Bollinger %B
-        double upper = inds.bbUpper.getValue(index).doubleValue();
-        double lower = inds.bbLower.getValue(index).doubleValue();
         features[11] = (upper - lower) == 0 ? 0 : (current - lower) / (upper - lower) - 0.5;
         
         // Acceleration
-        double roc5Now = inds.roc5.getValue(index).doubleValue();
-        double roc5Prev = inds.roc5.getValue(Math.max(0, index - 1)).doubleValue();
         features[12] = roc5Now - roc5Prev;
         
         // Volume-Price relationship
-        features[13] = (inds.roc10.getValue(index).doubleValue() * (Math.abs(avgVolVal) < 0.00001 ? 1 : inds.volume.getValue(index).doubleValue() / avgVolVal));
+        features[13] = (roc10 * (Math.abs(avgVolVal) < 0.00001 ? 1 : volume / avgVolVal));
 
         // --- MARKET CYCLE FEATURES ---
-        double ema200Val = inds.ema200.getValue(index).doubleValue();
         // 14. Distance to 200 EMA (Long-term trend/Market Cycle)
         features[14] = (current - ema200Val) / (Math.abs(ema200Val) < 0.000001 ? 1 : current);
         
@@ -164,17 +208,16 @@ public class FeatureExtractor {
         features[15] = (sma50Val - ema200Val) / (Math.abs(ema200Val) < 0.000001 ? 1 : ema200Val);
         
         // 16. Medium-term Trend (SMA100)
-        double sma100Val = inds.sma100.getValue(index).doubleValue();
         features[16] = (current - sma100Val) / (Math.abs(sma100Val) < 0.000001 ? 1 : current);
         
         // 17. Volatility Cycle (Standard Deviation ratio)
-        features[17] = inds.stdDev50.getValue(index).doubleValue() / current;
+        features[17] = stdDev50 / current;
         
         // 18. ROC Cycle (10 vs 50)
-        features[18] = inds.roc50.getValue(index).doubleValue() / 100.0;
+        features[18] = roc50 / 100.0;
         
         // 19. Combined Momentum Cycle
-        features[19] = (features[3] + (inds.macd.getValue(index).doubleValue() / current)) / 2.0;
+        features[19] = (features[3] + (macd / current)) / 2.0;
 
         return features;
     }
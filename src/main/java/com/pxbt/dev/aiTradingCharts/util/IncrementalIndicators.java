@@ -0,0 +1,241 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import java.util.Arrays;
+
+/**
+ * Streaming indicator state for one (symbol, timeframe): SMA, EMA, RSI, MACD, standard deviation, ROC,
+ * Bollinger bands and VWAP over the {@link FeatureExtractor.Periods} slots, updated in O(1) per closed candle.
+ * Values follow ta4j's definitions (uncapped periods), so they match a full series once it is at least
+ * {@link FeatureExtractor.Periods#longest()} bars long.
+ *
+ * The forming candle is never committed: {@link #preview} applies it to a copy. Not thread-safe.
+ */
+public final class IncrementalIndicators {
+
+    private final FeatureExtractor.Periods periods;
+    private final int capacity;
+
+    // Ring buffers of the last `capacity` candles
+    private double[] closes;
+    private double[] volumes;
+    private double[] typicalVolumes;
+    private int count;
+    private double firstClose;
+    private double firstTypical;
+
+    // Windowed sums
+    private double sumP1, sumP2, sumP3, sumP4, sumVolume, sumTypicalVolume, sumAll;
+
+    private final SlidingVariance stdShort, stdLong;
+
+    private double emaShort, emaLong, emaFast, emaSlow;
+    private double avgGain, avgLoss;
+    private double previousRoc5;
+
+    public IncrementalIndicators(FeatureExtractor.Periods periods) {
+        this.periods = periods;
+        this.capacity = periods.longest() + 1;
+        this.closes = new double[capacity];
+        this.volumes = new double[capacity];
+        this.typicalVolumes = new double[capacity];
+        this.stdShort = new SlidingVariance(periods.stdShort());
+        this.stdLong = new SlidingVariance(periods.stdLong());
+    }
+
+    public IncrementalIndicators(String timeframe) {
+        this(FeatureExtractor.Periods.forTimeframe(timeframe));
+    }
+
+    /**
+     * Commit a closed candle whose only price is its close
+     */
+    public void update(double close, double volume) {
+        update(close, close, close, volume);
+    }
+
+    /**
+     * Commit a closed candle
+     */
+    public void update(double high, double low, double close, double volume) {
+        double typical = (high + low + close) / 3;
+        if (count == 0) {
+            firstClose = close;
+            firstTypical = typical;
+            emaShort = emaLong = emaFast = emaSlow = close;
+        } else {
+            previousRoc5 = roc5();
+            double last = at(0, closes);
+            emaShort = ema(emaShort, close, periods.emaShort());
+            emaLong = ema(emaLong, close, periods.emaLong());
+            emaFast = ema(emaFast, close, periods.macdFast());
+            emaSlow = ema(emaSlow, close, periods.macdSlow());
+            double change = close - last;
+            avgGain = mma(avgGain, change > 0 ? change : 0);
+            avgLoss = mma(avgLoss, change < 0 ? -change : 0);
+        }
+
+        int slot = count % capacity;
+        closes[slot] = close;
+        volumes[slot] = volume;
+        typicalVolumes[slot] = typical * volume;
+        count++;
+
+        sumP1 = slide(sumP1, close, periods.p1(), closes);
+        sumP2 = slide(sumP2, close, periods.p2(), closes);
+        sumP3 = slide(sumP3, close, periods.p3(), closes);
+        sumP4 = slide(sumP4, close, periods.p4(), closes);
+        sumVolume = slide(sumVolume, volume, periods.volPeriod(), volumes);
+        sumTypicalVolume = slide(sumTypicalVolume, typical * volume, periods.volPeriod(), typicalVolumes);
+        sumAll += close;
+        stdShort.add(close);
+        stdLong.add(close);
+    }
+
+    /**
+     * Copy with the forming candle applied; this state is left untouched
+     */
+    public IncrementalIndicators preview(double high, double low, double close, double volume) {
+        IncrementalIndicators next = copy();
+        next.update(high, low, close, volume);
+        return next;
+    }
+
+    public IncrementalIndicators preview(double close, double volume) {
+        return preview(close, close, close, volume);
+    }
+
+    public IncrementalIndicators copy() {
+        IncrementalIndicators c = new IncrementalIndicators(periods);
+        c.closes = Arrays.copyOf(closes, capacity);
+        c.volumes = Arrays.copyOf(volumes, capacity);
+        c.typicalVolumes = Arrays.copyOf(typicalVolumes, capacity);
+        c.count = count;
+        c.firstClose = firstClose;
+        c.firstTypical = firstTypical;
+        c.sumP1 = sumP1;
+        c.sumP2 = sumP2;
+        c.sumP3 = sumP3;
+        c.sumP4 = sumP4;
+        c.sumVolume = sumVolume;
+        c.sumTypicalVolume = sumTypicalVolume;
+        c.sumAll = sumAll;
+        c.stdShort.copyFrom(stdShort);
+        c.stdLong.copyFrom(stdLong);
+        c.emaShort = emaShort;
+        c.emaLong = emaLong;
+        c.emaFast = emaFast;
+        c.emaSlow = emaSlow;
+        c.avgGain = avgGain;
+        c.avgLoss = avgLoss;
+        c.previousRoc5 = previousRoc5;
+        return c;
+    }
+
+    // ===== UPDATE HELPERS =====
+
+    private static double ema(double previous, double value, int period) {
+        return ((value - previous) * (2.0 / (period + 1))) + previous;
+    }
+
+    // Wilder's smoothing, as ta4j's MMAIndicator (gain and loss of the first bar are zero)
+    private double mma(double previous, double value) {
+        return ((value - previous) * (1.0 / FeatureExtractor.RSI_PERIOD)) + previous;
+    }
+
+    // Add the newest value (already in the ring) and drop the one leaving a window of `period`
+    private double slide(double sum, double value, int period, double[] ring) {
+        sum += value;
+        return count > period ? sum - at(period, ring) : sum;
+    }
+
+    // Value `back` candles before the newest one
+    private double at(int back, double[] ring) {
+        return ring[Math.floorMod(count - 1 - back, capacity)];
+    }
+
+    // ===== VALUES =====
+
+    private double sma(double sum, int period) {
+        return sum / Math.min(period, count);
+    }
+
+    private double roc(int period) {
+        double past = count > period ? at(period, closes) : firstClose;
+        return (close() - past) / past * 100;
+    }
+
+    public int count() { return count; }
+    public double close() { return at(0, closes); }
+    public double volume() { return at(0, volumes); }
+
+    public double sma5() { return sma(sumP1, periods.p1()); }
+    public double sma20() { return sma(sumP2, periods.p2()); }
+    public double sma50() { return sma(sumP3, periods.p3()); }
+    public double sma100() { return sma(sumP4, periods.p4()); }
+    public double totalAvg() { return sumAll / count; }
+    public double avgVolume() { return sma(sumVolume, periods.volPeriod()); }
+
+    public double ema12() { return emaShort; }
+    public double ema200() { return emaLong; }
+    public double macd() { return emaFast - emaSlow; }
+
+    public double rsi14() {
+        if (avgLoss == 0) return avgGain == 0 ? 0 : 100;
+        return 100 - (100 / (1 + avgGain / avgLoss));
+    }
+
+    public double stdDev20() { return stdShort.stdDev(); }
+    public double stdDev50() { return stdLong.stdDev(); }
+
+    public double roc5() { return roc(periods.rocShort()); }
+    public double roc10() { return roc(periods.rocMid()); }
+    public double roc50() { return roc(periods.rocLong()); }
+    public double previousRoc5() { return count > 1 ? previousRoc5 : roc5(); }
+
+    public double bbUpper() { return sma20() + stdDev20() * 2; }
+    public double bbLower() { return sma20() - stdDev20() * 2; }
+
+    /**
+     * Volume-weighted typical price over the volume window; the typical price itself on the first candle
+     */
+    public double vwap() {
+        return count == 1 ? firstTypical : sumTypicalVolume / sumVolume;
+    }
+
+    /**
+     * Population variance over the last `period` closes. Welford's update keeps the mean and the sum of squared
+     * deviations, so there is no sum-of-squares cancellation however far the price drifts.
+     */
+    private final class SlidingVariance {
+        private final int period;
+        private double mean;
+        private double m2;
+
+        SlidingVariance(int period) {
+            this.period = period;
+        }
+
+        // Called after the close is in the ring
+        void add(double value) {
+            if (count <= period) {
+                double delta = value - mean;
+                mean += delta / count;
+                m2 += delta * (value - mean);
+            } else {
+                double leaving = at(period, closes);
+                double oldMean = mean;
+                mean += (value - leaving) / period;
+                m2 = Math.max(0, m2 + (value - leaving) * (value - mean + leaving - oldMean));
+            }
+        }
+
+        double stdDev() {
+            return Math.sqrt(m2 / Math.min(period, count));
+        }
+
+        void copyFrom(SlidingVariance other) {
+            mean = other.mean;
+            m2 = other.m2;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Path-level difference between two JSON object trees:
+ *   {"set": {"/a/b": value, ...}, "remove": ["/c", ...]}
+ * Paths are JSON Pointers (RFC 6901). Objects are compared field by field; arrays and scalars that differ are
+ * replaced whole.
+ */
+public final class JsonDelta {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private JsonDelta() {}
+
+    public static ObjectNode diff(ObjectNode from, ObjectNode to) {
+        ObjectNode set = NODES.objectNode();
+        ArrayNode remove = NODES.arrayNode();
+        diff("", from, to, set, remove);
+        ObjectNode delta = NODES.objectNode();
+        delta.set("set", set);
+        delta.set("remove", remove);
+        return delta;
+    }
+
+    public static boolean isEmpty(ObjectNode delta) {
+        return delta.path("set").isEmpty() && delta.path("remove").isEmpty();
+    }
+
+    /**
+     * Applies a delta from {@link #diff} to a copy of {@code doc}
+     */
+    public static ObjectNode apply(ObjectNode doc, ObjectNode delta) {
+        ObjectNode result = doc.deepCopy();
+        for (JsonNode path : delta.path("remove")) {
+            String[] keys = keys(path.asText());
+            ObjectNode parent = parent(result, keys, false);
+            if (parent != null) parent.remove(keys[keys.length - 1]);
+        }
+        Iterator<Map.Entry<String, JsonNode>> sets = delta.path("set").fields();
+        while (sets.hasNext()) {
+            Map.Entry<String, JsonNode> entry = sets.next();
+            String[] keys = keys(entry.getKey());
+            parent(result, keys, true).set(keys[keys.length - 1], entry.getValue().deepCopy());
+        }
+        return result;
+    }
+
+    private static void diff(String path, ObjectNode from, ObjectNode to, ObjectNode set, ArrayNode remove) {
+        Iterator<Map.Entry<String, JsonNode>> fields = to.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String childPath = path + "/" + escape(field.getKey());
+            JsonNode before = from.get(field.getKey());
+            JsonNode after = field.getValue();
+            if (before != null && before.isObject() && after.isObject()) {
+                diff(childPath, (ObjectNode) before, (ObjectNode) after, set, remove);
+            } else if (before == null || !before.equals(after)) {
+                set.set(childPath, after);
+            }
+        }
+        Iterator<String> names = from.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!to.has(name)) remove.add(path + "/" + escape(name));
+        }
+    }
+
+    // Object holding the last key of the path; intermediate objects are created when asked to
+    private static ObjectNode parent(ObjectNode root, String[] keys, boolean create) {
+        ObjectNode node = root;
+        for (int i = 0; i < keys.length - 1; i++) {
+            JsonNode child = node.get(keys[i]);
+            if (child == null || !child.isObject()) {
+                if (!create) return null;
+                child = node.putObject(keys[i]);
+            }
+            node = (ObjectNode) child;
+        }
+        return node;
+    }
+
+    private static String[] keys(String pointer) {
+        String[] keys = pointer.substring(1).split("/", -1);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keys[i].replace("~1", "/").replace("~0", "~");
+        }
+        return keys;
+    }
+
+    private static String escape(String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,62 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Wire formats of a live price tick.
+ *
+ * Binary (sub-protocol "pxbt-bin-v1"), 28 bytes little-endian:
+ *   u8 frame type (1 = price), u8 symbol id, u16 reserved, f64 price, f64 volume, i64 timestamp ms
+ * Symbol ids index the "symbols" list of the welcome message. Aligned so a DataView reads each field directly.
+ *
+ * JSON (default): {"type":"price_update","symbol":"BTC","price":..,"volume":..,"timestamp":..}
+ */
+public final class PriceFrameCodec {
+
+    public static final String PROTOCOL = "pxbt-bin-v1";
+    public static final byte TYPE_PRICE = 1;
+    public static final int PRICE_FRAME_BYTES = 1 + 1 + 2 + 8 + 8 + 8;
+    public static final int MAX_SYMBOL_ID = 255;
+
+    // Reused per thread (the fan-out thread in practice), so building the JSON text does not grow a new builder
+    private static final ThreadLocal<StringBuilder> JSON_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private PriceFrameCodec() {
+    }
+
+    /**
+     * Writes a price frame at the buffer's position; the buffer must be little-endian
+     */
+    public static void encode(ByteBuffer dst, int symbolId, double price, double volume, long timestamp) {
+        if (symbolId < 0 || symbolId > MAX_SYMBOL_ID) {
+            throw new IllegalArgumentException("Symbol id out of range: " + symbolId);
+        }
+        dst.put(TYPE_PRICE)
+                .put((byte) symbolId)
+                .putShort((short) 0)
+                .putDouble(price)
+                .putDouble(volume)
+                .putLong(timestamp);
+    }
+
+    /**
+     * One read-only frame, ready to be shared by every binary client
+     */
+    public static ByteBuffer encode(int symbolId, double price, double volume, long timestamp) {
+        ByteBuffer frame = ByteBuffer.allocate(PRICE_FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        encode(frame, symbolId, price, volume, timestamp);
+        return frame.flip().asReadOnlyBuffer();
+    }
+
+    public static String toJson(String symbol, double price, double volume, long timestamp) {
+        StringBuilder json = JSON_BUFFER.get();
+        json.setLength(0);
+        json.append("{\"type\":\"price_update\",\"symbol\":\"").append(symbol)
+                .append("\",\"price\":").append(price)
+                .append(",\"volume\":").append(volume)
+                .append(",\"timestamp\":").append(timestamp)
+                .append('}');
+        return json.toString();
+    }
+}
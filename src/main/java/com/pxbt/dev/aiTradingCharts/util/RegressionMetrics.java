@@ -0,0 +1,68 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+/**
+ * Accumulates every regression score we report from one pass over (actual, predicted) pairs:
+ * R², RMSE, MAE, directional accuracy, and a linear calibration fit of actual on predicted.
+ * Means, variances and the covariance are centred as they go (Welford), so R² and the fit stay exact
+ * when the spread is tiny next to the values.
+ */
+public final class RegressionMetrics {
+
+    private int n;
+    private int directionMatches;
+    private double meanActual;
+    private double meanPredicted;
+    private double m2Actual;      // Sum of squared deviations from the running mean
+    private double m2Predicted;
+    private double coMoment;      // Sum of (actual - mean) * (predicted - mean)
+    private double sumSquaredError;
+    private double sumAbsError;
+
+    public void add(double actual, double predicted) {
+        double error = actual - predicted;
+        n++;
+        double dActual = actual - meanActual;
+        double dPredicted = predicted - meanPredicted;
+        meanActual += dActual / n;
+        meanPredicted += dPredicted / n;
+        m2Actual += dActual * (actual - meanActual);
+        m2Predicted += dPredicted * (predicted - meanPredicted);
+        coMoment += dActual * (predicted - meanPredicted);
+        sumSquaredError += error * error;
+        sumAbsError += Math.abs(error);
+        // Same rule as the backtest audit: a zero move on either side is not a match
+        if ((actual > 0 && predicted > 0) || (actual < 0 && predicted < 0)) directionMatches++;
+    }
+
+    public int count() {
+        return n;
+    }
+
+    public double r2() {
+        if (n == 0) return 0;
+        return m2Actual > 0 ? 1 - sumSquaredError / m2Actual : 0;
+    }
+
+    public double rmse() {
+        return n == 0 ? 0 : Math.sqrt(sumSquaredError / n);
+    }
+
+    public double mae() {
+        return n == 0 ? 0 : sumAbsError / n;
+    }
+
+    /** Fraction of rows where predicted and actual moves share a sign */
+    public double directionalAccuracy() {
+        return n == 0 ? 0 : (double) directionMatches / n;
+    }
+
+    /** Slope of actual on predicted: 1 is calibrated, below 1 means predictions overshoot */
+    public double calibrationSlope() {
+        if (n == 0) return 0;
+        return m2Predicted > 0 ? coMoment / m2Predicted : 0;
+    }
+
+    public double calibrationIntercept() {
+        return n == 0 ? 0 : meanActual - calibrationSlope() * meanPredicted;
+    }
+}
@@ -0,0 +1,124 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+/**
+ * Replays STRONG_BUY…STRONG_SELL signals over a prediction series held in primitive arrays.
+ * One pass per run, no per-step allocation, so parameter sweeps can run millions of steps per second per core.
+ */
+public final class StrategySimulator {
+
+    private StrategySimulator() {
+    }
+
+    /**
+     * Evaluated predictions in time order: predicted and realised move to the next candle, plus confidence
+     */
+    public static final class Series {
+        public final long[] timestamps;
+        public final double[] predictedChange;
+        public final double[] actualChange;
+        public final double[] confidence;
+        public final int size;
+
+        public Series(long[] timestamps, double[] predictedChange, double[] actualChange, double[] confidence) {
+            this.timestamps = timestamps;
+            this.predictedChange = predictedChange;
+            this.actualChange = actualChange;
+            this.confidence = confidence;
+            this.size = timestamps.length;
+        }
+    }
+
+    /**
+     * Signal cut-offs (percent change, 0–1 confidence) plus trading costs in basis points per unit of turnover.
+     * Position sizes are fractions of equity for normal and strong signals.
+     */
+    public record Params(double changePercent, double strongChangePercent,
+                         double confidence, double strongConfidence,
+                         double feeBps, double slippageBps,
+                         double positionSize, double strongPositionSize, boolean allowShort) {
+    }
+
+    public static final class Result {
+        public double totalReturn;   // Fraction, 0.25 = +25%
+        public double maxDrawdown;   // Fraction of peak equity
+        public double sharpe;        // Annualised
+        public int trades;           // Position changes
+        public double exposure;      // Fraction of periods holding a position
+        public double winRate;       // Fraction of in-market periods with a positive net return
+        public double[] equity;      // Per step, only when requested
+    }
+
+    /**
+     * Target position for one prediction: +/-strong size, +/-size or flat
+     */
+    public static double position(double predictedChange, double confidence, Params p) {
+        double changePercent = predictedChange * 100;
+        double pos = 0;
+        if (changePercent > p.strongChangePercent() && confidence > p.strongConfidence()) pos = p.strongPositionSize();
+        else if (changePercent > p.changePercent() && confidence > p.confidence()) pos = p.positionSize();
+        else if (changePercent < -p.strongChangePercent() && confidence > p.strongConfidence()) pos = -p.strongPositionSize();
+        else if (changePercent < -p.changePercent() && confidence > p.confidence()) pos = -p.positionSize();
+        return pos < 0 && !p.allowShort() ? 0 : pos;
+    }
+
+    public static Result run(Series s, Params p, int periodsPerYear, boolean keepEquity) {
+        Result r = new Result();
+        if (keepEquity) r.equity = new double[s.size];
+        if (s.size == 0) return r;
+
+        // Hoisted so the loop below is the only work per step; same decision as position()
+        double changeCut = p.changePercent() / 100, strongChangeCut = p.strongChangePercent() / 100;
+        double confCut = p.confidence(), strongConfCut = p.strongConfidence();
+        double size = p.positionSize(), strongSize = p.strongPositionSize();
+        boolean allowShort = p.allowShort();
+        double costRate = (p.feeBps() + p.slippageBps()) / 10_000.0;
+        double[] predicted = s.predictedChange, actual = s.actualChange, confidence = s.confidence;
+
+        double equity = 1.0, peak = 1.0, maxDrawdown = 0, floor = 1.0;
+        double sum = 0, sumSq = 0;
+        double held = 0;
+        int inMarket = 0, positive = 0, trades = 0;
+
+        for (int i = 0; i < s.size; i++) {
+            double change = predicted[i];
+            double magnitude = Math.abs(change);
+            double conf = confidence[i];
+            // Non-short-circuit & and conditional moves: signals are close to random, so branches mispredict
+            boolean strong = magnitude > strongChangeCut & conf > strongConfCut;
+            boolean normal = magnitude > changeCut & conf > confCut;
+            double target = strong ? strongSize : (normal ? size : 0);
+            target = change < 0 ? (allowShort ? -target : 0) : target;
+
+            double turnover = Math.abs(target - held);
+            trades += turnover > 0 ? 1 : 0;
+
+            double step = target * actual[i] - turnover * costRate;
+            equity *= 1 + step;
+            sum += step;
+            sumSq += step * step;
+            int active = target != 0 ? 1 : 0;
+            inMarket += active;
+            positive += active & (step > 0 ? 1 : 0);
+
+            if (equity > peak) {
+                peak = equity;
+                floor = peak * (1 - maxDrawdown);
+            } else if (equity < floor) {
+                maxDrawdown = (peak - equity) / peak;
+                floor = equity;
+            }
+            if (keepEquity) r.equity[i] = equity;
+            held = target;
+        }
+
+        double mean = sum / s.size;
+        double variance = sumSq / s.size - mean * mean;
+        r.totalReturn = equity - 1;
+        r.maxDrawdown = maxDrawdown;
+        r.sharpe = variance > 1e-18 ? mean / Math.sqrt(variance) * Math.sqrt(periodsPerYear) : 0;
+        r.trades = trades;
+        r.exposure = (double) inMarket / s.size;
+        r.winRate = inMarket == 0 ? 0 : (double) positive / inMarket;
+        return r;
+    }
+}
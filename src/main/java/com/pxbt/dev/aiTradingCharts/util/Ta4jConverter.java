@@ -1,56 +1,69 @@
 package com.pxbt.dev.aiTradingCharts.util;
 
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
-import com.pxbt.dev.aiTradingCharts.model.PriceUpdate;
+import org.ta4j.core.Bar;
 import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
 import org.ta4j.core.BaseBarSeriesBuilder;
 import org.ta4j.core.num.DoubleNum;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
 
 public class Ta4jConverter {
 
+    // Bar times only label the bars; UTC avoids resolving the system zone for every bar
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    private static final Duration BAR_PERIOD = Duration.ofDays(1);
+    private static final DoubleNum ZERO = DoubleNum.valueOf(0);
+
     /**
      * Converts a list of CryptoPrice to a ta4j BarSeries
      */
     public static BarSeries toSeries(String symbol, List<CryptoPrice> prices) {
-        BarSeries series = new BaseBarSeriesBuilder()
-                .withName(symbol)
-                .withNumTypeOf(DoubleNum.class) // Memory efficient
-                .build();
+        return toSeries(symbol, CandleColumns.fromPrices(prices));
+    }
 
-        for (CryptoPrice p : prices) {
-            ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(p.getTimestamp()), ZoneId.systemDefault());
-            
-            // Handle case where OHLC might be zero (though your model has them)
-            double open = p.getOpen() != 0 ? p.getOpen() : p.getPrice();
-            double high = p.getHigh() != 0 ? p.getHigh() : p.getPrice();
-            double low = p.getLow() != 0 ? p.getLow() : p.getPrice();
-            double close = p.getClose() != 0 ? p.getClose() : p.getPrice();
-            
-            series.addBar(time, open, high, low, close, p.getVolume());
+    /**
+     * Converts candle columns to a ta4j BarSeries without going through per-candle objects
+     */
+    public static BarSeries toSeries(String symbol, CandleColumns candles) {
+        BarSeries series = newSeries(symbol);
+        for (int i = 0; i < candles.size(); i++) {
+            series.addBar(bar(candles, i));
         }
-
         return series;
     }
 
     /**
-     * Converts a list of PriceUpdate to a ta4j BarSeries
+     * Series from close and volume columns (first {@code size} rows); open, high and low mirror the close
      */
-    public static BarSeries priceUpdateToSeries(String symbol, List<PriceUpdate> updates) {
-        BarSeries series = new BaseBarSeriesBuilder()
+    public static BarSeries toSeries(String symbol, long[] timestamps, double[] close, double[] volume, int size) {
+        BarSeries series = newSeries(symbol);
+        for (int i = 0; i < size; i++) {
+            series.addBar(bar(timestamps[i], close[i], close[i], close[i], close[i], volume[i]));
+        }
+        return series;
+    }
+
+    private static BarSeries newSeries(String symbol) {
+        return new BaseBarSeriesBuilder()
                 .withName(symbol)
-                .withNumTypeOf(DoubleNum.class)
+                .withNumTypeOf(DoubleNum.class) // Memory efficient
                 .build();
+    }
 
-        for (PriceUpdate p : updates) {
-            ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(p.getTimestamp()), ZoneId.systemDefault());
-            series.addBar(time, p.getOpen(), p.getHigh(), p.getLow(), p.getClose(), p.getVolume());
-        }
+    private static Bar bar(CandleColumns candles, int i) {
+        return bar(candles.timestamp(i), candles.open(i), candles.high(i), candles.low(i), candles.close(i), candles.volume(i));
+    }
 
-        return series;
+    private static Bar bar(long timestamp, double open, double high, double low, double close, double volume) {
+        ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(timestamp), UTC);
+        return new BaseBar(BAR_PERIOD, time, DoubleNum.valueOf(open), DoubleNum.valueOf(high), DoubleNum.valueOf(low),
+                DoubleNum.valueOf(close), DoubleNum.valueOf(volume), ZERO);
     }
 }
@@ -0,0 +1,84 @@
+package com.pxbt.dev.aiTradingCharts.handler;
+
+import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class CryptoWebSocketHandlerTest {
+
+    @Mock private SymbolConfig symbolConfig;
+    @Mock private WebSocketSession session;
+
+    @InjectMocks
+    private CryptoWebSocketHandler handler;
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(symbolConfig.getSymbols()).thenReturn(List.of("BTC", "SOL"));
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> sent.add(((WebSocketMessage<?>) inv.getArgument(0)).getPayload().toString()))
+                .when(session).sendMessage(any());
+        handler.init();
+        handler.afterConnectionEstablished(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    void unsubscribingOneTopicFirstKeepsTheRest() throws Exception {
+        handler.handleMessage(session, new TextMessage("unsubscribe:*;logs"));
+        awaitSent(s -> s.contains("\"subscriptions\""));
+        assertTrue(sent.stream().anyMatch(s ->
+                s.contains("\"topics\": [\"analysis:*\",\"events\",\"prices:*\"]")), sent.toString());
+
+        handler.publish(CryptoWebSocketHandler.LOGS, null, "log-1", null);
+        handler.publish(CryptoWebSocketHandler.ANALYSIS, "SOL", "analysis-1", null);
+        handler.publish(CryptoWebSocketHandler.PRICES, "BTC", "price-1", null);
+
+        // One fan-out thread and one outbox: once the last frame arrives, the earlier ones have been decided
+        awaitSent("price-1"::equals);
+        assertTrue(sent.contains("analysis-1"));
+        assertFalse(sent.contains("log-1"));
+    }
+
+    @Test
+    void subscribingSwitchesToTheRequestedTopicsOnly() throws Exception {
+        handler.handleMessage(session, new TextMessage("subscribe:BTC;prices"));
+        awaitSent(s -> s.contains("\"subscriptions\""));
+
+        handler.publish(CryptoWebSocketHandler.LOGS, null, "log-1", null);
+        handler.publish(CryptoWebSocketHandler.PRICES, "SOL", "sol-1", null);
+        handler.publish(CryptoWebSocketHandler.PRICES, "BTC", "btc-1", null);
+
+        awaitSent("btc-1"::equals);
+        assertFalse(sent.contains("log-1"));
+        assertFalse(sent.contains("sol-1"));
+    }
+
+    private void awaitSent(Predicate<String> match) throws Exception {
+        verify(session, timeout(2000).atLeastOnce()).sendMessage(argThat(m -> match.test(m.getPayload().toString())));
+    }
+}
@@ -0,0 +1,98 @@
+package com.pxbt.dev.aiTradingCharts.handler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SessionOutboxTest {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> sent = new ArrayList<>();
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> sent.add(((WebSocketMessage<?>) inv.getArgument(0)).getPayload().toString()))
+                .when(session).sendMessage(any());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) task.run();
+    }
+
+    @Test
+    void conflatesQueuedFramesWithSameKeyInPlace() {
+        SessionOutbox outbox = new SessionOutbox(session, 16, tasks::add, () -> {});
+        outbox.offer(new TextMessage("btc-1"), "price:BTC");
+        outbox.offer(new TextMessage("log"), null);
+        outbox.offer(new TextMessage("btc-2"), "price:BTC");
+        outbox.offer(new TextMessage("sol-1"), "price:SOL");
+        runTasks();
+
+        assertEquals(List.of("btc-2", "log", "sol-1"), sent);
+        assertEquals(0, outbox.getDroppedCount());
+    }
+
+    @Test
+    void dropsOldestWhenFull() {
+        SessionOutbox outbox = new SessionOutbox(session, 3, tasks::add, () -> {});
+        for (int i = 1; i <= 5; i++) {
+            outbox.offer(new TextMessage("m" + i), null);
+        }
+        runTasks();
+
+        assertEquals(List.of("m3", "m4", "m5"), sent);
+        assertEquals(2, outbox.getDroppedCount());
+    }
+
+    @Test
+    void keepsDrainingFramesOfferedAfterTheQueueEmptied() {
+        SessionOutbox outbox = new SessionOutbox(session, 16, tasks::add, () -> {});
+        outbox.offer(new TextMessage("a"), null);
+        runTasks();
+        outbox.offer(new TextMessage("b"), "price:BTC");
+        runTasks();
+
+        assertEquals(List.of("a", "b"), sent);
+    }
+
+    @Test
+    void sharedBinaryFrameReachesEverySessionWhole() throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        WebSocketSession other = mock(WebSocketSession.class);
+        when(other.isOpen()).thenReturn(true);
+        doAnswer(inv -> sizes.add(((BinaryMessage) inv.getArgument(0)).getPayload().remaining()))
+                .when(other).sendMessage(any());
+        doAnswer(inv -> {
+            ByteBuffer payload = ((BinaryMessage) inv.getArgument(0)).getPayload();
+            sizes.add(payload.remaining());
+            payload.position(payload.limit()); // sending consumes the buffer
+            return null;
+        }).when(session).sendMessage(any());
+
+        BinaryMessage frame = new BinaryMessage(ByteBuffer.wrap(new byte[28]));
+        new SessionOutbox(session, 16, tasks::add, () -> {}, true).offer(frame, "price:BTC");
+        new SessionOutbox(other, 16, tasks::add, () -> {}, true).offer(frame, "price:BTC");
+        runTasks();
+
+        assertEquals(List.of(28, 28), sizes);
+    }
+}
@@ -0,0 +1,101 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.model.PriceUpdate;
+import com.pxbt.dev.aiTradingCharts.util.AnalysisContext;
+import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
+import com.pxbt.dev.aiTradingCharts.util.IncrementalIndicators;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AnalysisContextServiceTest {
+
+    private static final long DAY_MS = 86_400_000L;
+
+    @Mock
+    private FeatureStoreService featureStore;
+
+    @InjectMocks
+    private AnalysisContextService analysisContextService;
+
+    private final List<CryptoPrice> history = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(featureStore.getLatestFeatures(anyString(), anyString(), anyList()))
+                .thenReturn(new double[FeatureExtractor.FEATURE_SIZE]);
+        for (int i = 0; i < 302; i++) {
+            double close = 30_000 + 3_000 * Math.sin(i / 9.0) + i * 40;
+            history.add(new CryptoPrice("BTC", close, 1000 + (i % 13) * 75, i * DAY_MS,
+                    close - 50, close + 80, close - 60, close));
+        }
+    }
+
+    private static List<PriceUpdate> updates(int n) {
+        List<PriceUpdate> updates = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double close = 50_000 + i * 10;
+            updates.add(new PriceUpdate("BTC", close, 5.0, i * 3_600_000L, close, close + 5, close - 5, close));
+        }
+        return updates;
+    }
+
+    @Test
+    void sameWindowIsServedFromCache() {
+        List<CryptoPrice> window = history.subList(0, 300);
+        AnalysisContext first = analysisContextService.forCandles("BTC", "1d", window);
+        AnalysisContext second = analysisContextService.forCandles("BTC", "1d", new ArrayList<>(window));
+
+        assertSame(first, second);
+        verify(featureStore, times(1)).getLatestFeatures(eq("BTC"), eq("1d"), anyList());
+    }
+
+    @Test
+    void revisedLastCandleIsNotServedStale() {
+        List<CryptoPrice> window = new ArrayList<>(history.subList(0, 300));
+        AnalysisContext first = analysisContextService.forCandles("BTC", "1d", window);
+
+        CryptoPrice last = window.get(299);
+        window.set(299, new CryptoPrice("BTC", last.getClose() + 100, last.getVolume(), last.getTimestamp(),
+                last.getOpen(), last.getHigh() + 100, last.getLow(), last.getClose() + 100));
+        AnalysisContext revised = analysisContextService.forCandles("BTC", "1d", window);
+
+        assertNotSame(first, revised);
+        assertEquals(last.getClose() + 100, revised.lastClose(), 1e-9);
+    }
+
+    @Test
+    void updateWindowsDoNotResetTheCandleStream() {
+        analysisContextService.forCandles("BTC", "1d", history.subList(0, 300));
+        // Wyckoff's PriceUpdate window for the same symbol and timeframe, interleaved with the prediction calls
+        analysisContextService.forUpdates("BTC", "1d", updates(100));
+        AnalysisContext slid = analysisContextService.forCandles("BTC", "1d", history.subList(1, 301));
+
+        // The candle stream resumed (it still holds candle 0) and matches streaming the whole history
+        IncrementalIndicators expected = new IncrementalIndicators(AnalysisContext.BENCHMARK_PERIODS);
+        for (int i = 0; i < 300; i++) {
+            CryptoPrice c = history.get(i);
+            expected.update(c.getHigh(), c.getLow(), c.getClose(), c.getVolume());
+        }
+        CryptoPrice lastCandle = history.get(300);
+        expected = expected.preview(lastCandle.getHigh(), lastCandle.getLow(), lastCandle.getClose(), lastCandle.getVolume());
+
+        IncrementalIndicators actual = slid.benchmarks();
+        assertEquals(301, actual.count());
+        assertEquals(expected.sma20(), actual.sma20(), 1e-9);
+        assertEquals(expected.ema200(), actual.ema200(), 1e-9);
+        assertEquals(expected.rsi14(), actual.rsi14(), 1e-9);
+        assertEquals(expected.vwap(), actual.vwap(), 1e-9);
+    }
+}
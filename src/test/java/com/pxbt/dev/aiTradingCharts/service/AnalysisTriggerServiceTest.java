@@ -0,0 +1,130 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
+import com.pxbt.dev.aiTradingCharts.model.AnalysisSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AnalysisTriggerServiceTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    @Mock private AnalysisSnapshotService analysisSnapshotService;
+    @Mock private FearGreedService fearGreedService;
+    @Mock private FundingRateService fundingRateService;
+    @Mock private SymbolConfig symbolConfig;
+    @Mock private ScheduledExecutorService executor;
+    @Mock private AnalysisSnapshot snapshot;
+
+    @InjectMocks
+    private AnalysisTriggerService triggerService;
+
+    private final List<String> analysed = new ArrayList<>();
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        triggerService.executor = executor;
+        when(analysisSnapshotService.getSnapshot(eq("BTC"), anyDouble())).thenReturn(snapshot);
+        when(analysisSnapshotService.dataVersion("BTC")).thenReturn("v1");
+        triggerService.addListener((symbol, s) -> analysed.add(symbol));
+
+        // First price: analysed straight away, which sets the reference price to 100
+        now = System.currentTimeMillis();
+        triggerService.onPrice("BTC", 100, now);
+        runScheduled(1);
+        assertEquals(List.of("BTC"), analysed);
+    }
+
+    @Test
+    void testTriggersInsideTheDebounceWindowFoldIntoOneRun() {
+        triggerService.onPrice("BTC", 100.1, tick());
+        triggerService.onPrice("BTC", 101, tick());   // ~1% move against a 0.5% threshold
+        triggerService.request("BTC", "manual refresh");
+        triggerService.onPrice("BTC", 101.5, tick());
+
+        ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        verify(executor, times(2)).schedule(any(Runnable.class), delay.capture(), eq(TimeUnit.MILLISECONDS));
+        assertEquals(0L, delay.getAllValues().get(0));
+        assertTrue(delay.getAllValues().get(1) > 25_000 && delay.getAllValues().get(1) <= 30_000);
+
+        runScheduled(2);
+        assertEquals(2, analysed.size());
+        // The deferred run prices the analysis at the latest tick and drops the cached snapshot
+        verify(analysisSnapshotService).getSnapshot("BTC", 101.5);
+        verify(analysisSnapshotService).invalidate("BTC");
+    }
+
+    @Test
+    void testCalmMarketTriggersAtTheMinimumMove() {
+        triggerService.onPrice("BTC", 100.1, tick());
+        triggerService.onPrice("BTC", 100.3, tick());
+        verify(executor, times(1)).schedule(any(Runnable.class), anyLong(), any());
+
+        triggerService.onPrice("BTC", 100.6, tick());
+        verify(executor, times(2)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    @Test
+    void testVolatileMarketRaisesTheThreshold() {
+        // Hourly swings of ~3% put two sigmas near 6%
+        triggerService.onPrice("BTC", 103, tick());
+        triggerService.onPrice("BTC", 100, tick());
+        triggerService.onPrice("BTC", 102, tick());
+        verify(executor, times(1)).schedule(any(Runnable.class), anyLong(), any());
+
+        triggerService.onPrice("BTC", 110, tick());
+        verify(executor, times(2)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    @Test
+    void testDataVersionChangeTriggersWithoutInvalidating() {
+        when(symbolConfig.getSymbols()).thenReturn(List.of("BTC"));
+        triggerService.checkVersions();
+        verify(executor, times(1)).schedule(any(Runnable.class), anyLong(), any());
+
+        when(analysisSnapshotService.dataVersion("BTC")).thenReturn("v2");
+        triggerService.checkVersions();
+        runScheduled(2);
+
+        assertEquals(2, analysed.size());
+        verify(analysisSnapshotService, never()).invalidate(any());
+    }
+
+    @Test
+    void testManualRefreshRecomputesWithoutAnyChange() {
+        triggerService.request("BTC", "manual refresh", true);
+        runScheduled(2);
+
+        // Same data version and price, yet the cached snapshot is dropped before re-analysing
+        verify(analysisSnapshotService).invalidate("BTC");
+        verify(analysisSnapshotService, times(2)).getSnapshot("BTC", 100);
+        assertEquals(2, analysed.size());
+    }
+
+    private long tick() {
+        now += HOUR_MS;
+        return now;
+    }
+
+    // Runs the n-th scheduled trigger on the test thread
+    private void runScheduled(int n) {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, atLeast(n)).schedule(task.capture(), anyLong(), any());
+        task.getAllValues().get(n - 1).run();
+    }
+}
@@ -0,0 +1,121 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.AccuracyRecord;
+import com.pxbt.dev.aiTradingCharts.model.BacktestSummary;
+import com.pxbt.dev.aiTradingCharts.model.BootstrapResult;
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import com.pxbt.dev.aiTradingCharts.model.PricePrediction;
+import com.pxbt.dev.aiTradingCharts.util.FeatureColumns;
+import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BacktestServiceTest {
+
+    private static final long DAY_MS = 86_400_000L;
+
+    @Mock private HistoricalDataFileService fileService;
+    @Mock private BinanceHistoricalService historicalDataService;
+    @Mock private PricePredictionService predictionService;
+    @Mock private AccuracyPersistenceService accuracyPersistenceService;
+    @Mock private TradingMetricsService metricsService;
+    @Mock private AIModelService aiModelService;
+    @Mock private TrainingDataService trainingDataService;
+    @Mock private AccuracyBootstrapService bootstrapService;
+    @Mock private FeatureStoreService featureStore;
+    @Mock private FeatureColumns featureColumns;
+
+    @InjectMocks
+    private BacktestService backtestService;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<CryptoPrice> candles = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        backtestService.hwmFile = tempDir.resolve("backtest_hwm.json").toString();
+
+        for (int i = 0; i < 400; i++) {
+            addCandle();
+        }
+        when(historicalDataService.getHistoricalData(eq("BTC"), eq("1d"), anyInt())).thenAnswer(inv -> new ArrayList<>(candles));
+        when(featureStore.getFeatures(eq("BTC"), eq("1d"), anyList())).thenReturn(featureColumns);
+        when(featureColumns.features(anyInt())).thenReturn(new double[FeatureExtractor.FEATURE_SIZE]);
+        when(predictionService.generateAIPrediction(eq("BTC"), anyDouble(), anyList(), eq("1d"), any()))
+                .thenAnswer(inv -> new PricePrediction("BTC", inv.<Double>getArgument(1) * 1.01, 0.6, "BULLISH"));
+        when(accuracyPersistenceService.getSummary("BTC", "1d"))
+                .thenReturn(BacktestSummary.builder().totalEvaluated(198).winRate(60.0).build());
+        when(bootstrapService.bootstrap("BTC", "1d"))
+                .thenReturn(BootstrapResult.builder().winRateLow(55.0).winRateHigh(65.0).confidenceLevel(0.95).build());
+    }
+
+    private void addCandle() {
+        double price = 40000.0 + candles.size() * 10;
+        candles.add(new CryptoPrice("BTC", price, 1.0, candles.size() * DAY_MS, price, price, price, price));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void retrainedModelOnlyScoresCandlesAfterTheMark() {
+        when(aiModelService.getModelType("BTC", "1d")).thenReturn("RandomForest");
+        int first = backtestService.runBacktest("BTC", "1d");
+
+        // Candles 200..397 are scored (the last two have no future candle to compare with yet)
+        assertEquals(198, first);
+        verify(accuracyPersistenceService).replaceEvaluatedRecords(eq("BTC"), eq("1d"), anyList());
+
+        // Routine retrain (same kind of model) plus two new candles
+        addCandle();
+        addCandle();
+        int second = backtestService.runBacktest("BTC", "1d");
+
+        assertEquals(2, second);
+        ArgumentCaptor<List<AccuracyRecord>> appended = ArgumentCaptor.forClass(List.class);
+        verify(accuracyPersistenceService).recordBatch(appended.capture());
+        assertEquals(List.of(398 * DAY_MS, 399 * DAY_MS),
+                appended.getValue().stream().map(AccuracyRecord::getPredictionTime).toList());
+        // Still only the first run rewrote the evaluated history
+        verify(accuracyPersistenceService, times(1)).replaceEvaluatedRecords(anyString(), anyString(), anyList());
+    }
+
+    @Test
+    void forcedRunRecomputesEverything() {
+        when(aiModelService.getModelType("BTC", "1d")).thenReturn("RandomForest");
+        backtestService.runBacktest("BTC", "1d");
+        addCandle();
+
+        assertEquals(199, backtestService.runBacktest("BTC", "1d", true));
+        verify(accuracyPersistenceService, times(2)).replaceEvaluatedRecords(eq("BTC"), eq("1d"), anyList());
+        verify(accuracyPersistenceService, never()).recordBatch(anyList());
+    }
+
+    @Test
+    void modelVersionChangeRecomputesEverything() {
+        when(aiModelService.getModelType("BTC", "1d")).thenReturn("RandomForest");
+        backtestService.runBacktest("BTC", "1d");
+
+        // A different kind of model now serves predictions: old records were scored by another model
+        when(aiModelService.getModelType("BTC", "1d")).thenReturn("LinearRegression");
+        addCandle();
+
+        assertEquals(199, backtestService.runBacktest("BTC", "1d"));
+        verify(accuracyPersistenceService, times(2)).replaceEvaluatedRecords(eq("BTC"), eq("1d"), anyList());
+        verify(accuracyPersistenceService, never()).recordBatch(anyList());
+    }
+}
@@ -0,0 +1,77 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleAggregationServiceTest {
+
+    private static long day(int year, int month, int dayOfMonth) {
+        return LocalDate.of(year, month, dayOfMonth).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static List<CryptoPrice> dailies(long start, int count) {
+        List<CryptoPrice> prices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double close = 100 + i;
+            prices.add(new CryptoPrice("BTC", close, 10, start + i * 86_400_000L, close - 1, close + 5, close - 3, close));
+        }
+        return prices;
+    }
+
+    @Test
+    void testWeeklyBucketsStartOnMonday() {
+        CandleAggregationService service = new CandleAggregationService();
+        // 2024-01-03 is a Wednesday -> first (partial) week opens Monday 2024-01-01
+        List<CryptoPrice> weeks = service.aggregate("BTC", "1w", dailies(day(2024, 1, 3), 12), 10);
+
+        assertEquals(2, weeks.size());
+        assertEquals(day(2024, 1, 1), weeks.get(0).getTimestamp());
+        assertEquals(day(2024, 1, 8), weeks.get(1).getTimestamp());
+
+        CryptoPrice first = weeks.get(0); // Wed..Sun = 5 dailies
+        assertEquals(99, first.getOpen(), 1e-9);
+        assertEquals(104, first.getClose(), 1e-9);
+        assertEquals(109, first.getHigh(), 1e-9);
+        assertEquals(97, first.getLow(), 1e-9);
+        assertEquals(50, first.getVolume(), 1e-9);
+    }
+
+    @Test
+    void testMonthlyFormingBucketUpdatesIncrementally() {
+        CandleAggregationService service = new CandleAggregationService();
+        List<CryptoPrice> all = dailies(day(2024, 1, 1), 40);
+        service.aggregate("BTC", "1m", all, 10);
+
+        // Replay only the tail, with the latest (forming) daily revised upwards
+        List<CryptoPrice> tail = new ArrayList<>(all.subList(30, 40));
+        CryptoPrice revised = tail.get(tail.size() - 1);
+        tail.set(tail.size() - 1, new CryptoPrice("BTC", 500, 20, revised.getTimestamp(), revised.getOpen(), 500, revised.getLow(), 500));
+
+        List<CryptoPrice> months = service.aggregate("BTC", "1m", tail, 10);
+        assertEquals(2, months.size());
+        assertEquals(day(2024, 2, 1), months.get(1).getTimestamp());
+        assertEquals(500, months.get(1).getClose(), 1e-9);
+        assertEquals(500, months.get(1).getHigh(), 1e-9);
+        assertEquals(8 * 10 + 20, months.get(1).getVolume(), 1e-9);
+        assertEquals(31 * 10, months.get(0).getVolume(), 1e-9);
+    }
+
+    @Test
+    void testOnlyWhitelistedTimeframesAreDerived() {
+        CandleAggregationService service = new CandleAggregationService();
+        for (String tf : new String[]{"3d", "1w", "1W", "1m", "1M", "3M"}) {
+            assertTrue(service.isDerivedTimeframe(tf), tf);
+        }
+        // Binance-style minutes must not be read as months
+        for (String tf : new String[]{"15m", "5m", "1d", "2w", "1y", "15min", "", null}) {
+            assertFalse(service.isDerivedTimeframe(tf), String.valueOf(tf));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedBodyCacheTest {
+
+    private static final byte[] JSON = "[{\"timestamp\":1,\"close\":2.5}]".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    private final CompressedBodyCache cache = new CompressedBodyCache();
+
+    @Test
+    void bodyIsCompressedOnceAndServedGzipped() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        CompressedBodyCache.Body body = null;
+        for (int i = 0; i < 3; i++) {
+            body = cache.get("BTC|1d|0-10", out -> {
+                writes.incrementAndGet();
+                out.write(JSON);
+            });
+        }
+
+        ResponseEntity<byte[]> response = cache.respond(body, "gzip, deflate, br", null);
+
+        assertEquals(1, writes.get());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertArrayEquals(JSON, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void clientsWithoutGzipGetThePlainBody() {
+        CompressedBodyCache.Body body = cache.get("k", out -> out.write(JSON));
+
+        ResponseEntity<byte[]> response = cache.respond(body, null, null);
+
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(JSON, response.getBody());
+    }
+
+    @Test
+    void matchingETagIsNotModified() {
+        CompressedBodyCache.Body body = cache.get("k", out -> out.write(JSON));
+
+        ResponseEntity<byte[]> response = cache.respond(body, "gzip", body.gzipEtag());
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void eachEncodingHasItsOwnETag() {
+        CompressedBodyCache.Body body = cache.get("k", out -> out.write(JSON));
+
+        ResponseEntity<byte[]> gzipped = cache.respond(body, "gzip", null);
+        ResponseEntity<byte[]> plain = cache.respond(body, null, null);
+
+        assertEquals(body.gzipEtag(), gzipped.getHeaders().getETag());
+        assertEquals(body.etag(), plain.getHeaders().getETag());
+        assertNotEquals(body.etag(), body.gzipEtag());
+        // A cached gzip body does not validate the identity representation
+        assertEquals(HttpStatus.OK, cache.respond(body, "identity", body.gzipEtag()).getStatusCode());
+    }
+
+    @Test
+    void gzipWithZeroQualityIsRefused() {
+        CompressedBodyCache.Body body = cache.get("k", out -> out.write(JSON));
+
+        ResponseEntity<byte[]> response = cache.respond(body, "gzip;q=0, identity", null);
+
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(JSON, response.getBody());
+
+        assertTrue(CompressedBodyCache.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(CompressedBodyCache.acceptsGzip("*"));
+        assertFalse(CompressedBodyCache.acceptsGzip("*;q=0"));
+        assertFalse(CompressedBodyCache.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(CompressedBodyCache.acceptsGzip("deflate, br"));
+    }
+}
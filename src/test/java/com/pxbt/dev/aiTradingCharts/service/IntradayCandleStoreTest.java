@@ -0,0 +1,102 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntradayCandleStoreTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long DAY_START = 1705276800000L; // 2024-01-15T00:00Z
+
+    @TempDir
+    Path tempDir;
+
+    private IntradayCandleStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IntradayCandleStore(tempDir + "/");
+    }
+
+    // Minute i after DAY_START: open 100 + i, high +1, low -1, close +0.5, volume 1
+    private static List<CryptoPrice> minutes(int fromMinute, int toMinute) {
+        List<CryptoPrice> candles = new ArrayList<>();
+        for (int i = fromMinute; i <= toMinute; i++) {
+            double open = 100 + i;
+            candles.add(new CryptoPrice("BTC", open + 0.5, 1.0, DAY_START + i * MINUTE,
+                    open, open + 1, open - 1, open + 0.5));
+        }
+        return candles;
+    }
+
+    @Test
+    void formingBucketsStayInMemoryUntilTheyClose() {
+        store.append("BTC", "1min", minutes(0, 20));
+
+        // Only the 00:00 quarter has closed; the hour and 4h buckets are still forming and never hit disk
+        IntradayCandleStore reopened = new IntradayCandleStore(tempDir + "/");
+        assertEquals(1, reopened.loadRecent("BTC", "15min", 10).size());
+        assertFalse(Files.exists(tempDir.resolve("BTC/1h")));
+        assertFalse(Files.exists(tempDir.resolve("BTC/4h")));
+
+        // The live store still serves the forming buckets
+        List<CryptoPrice> quarters = store.loadRecent("BTC", "15min", 10);
+        assertEquals(List.of(DAY_START, DAY_START + 15 * MINUTE), quarters.stream().map(CryptoPrice::getTimestamp).toList());
+        CryptoPrice formingHour = store.loadRecent("BTC", "1h", 10).get(0);
+        assertEquals(DAY_START, formingHour.getTimestamp());
+        assertEquals(21.0, formingHour.getVolume(), 1e-9);
+        assertEquals(120.5, formingHour.getClose(), 1e-9);
+    }
+
+    @Test
+    void closedBucketsAreRolledUpFromMinutes() {
+        store.append("BTC", "1min", minutes(0, 20));
+        store.append("BTC", "1min", minutes(20, 60)); // overlaps the last stored minute, as the scheduler does
+
+        IntradayCandleStore reopened = new IntradayCandleStore(tempDir + "/");
+        List<CryptoPrice> quarters = reopened.loadRecent("BTC", "15min", 10);
+        assertEquals(4, quarters.size());
+        assertEquals(DAY_START + 45 * MINUTE, quarters.get(3).getTimestamp());
+
+        List<CryptoPrice> hours = reopened.loadRecent("BTC", "1h", 10);
+        assertEquals(1, hours.size());
+        CryptoPrice hour = hours.get(0);
+        assertEquals(100.0, hour.getOpen(), 1e-9);
+        assertEquals(160.0, hour.getHigh(), 1e-9);
+        assertEquals(99.0, hour.getLow(), 1e-9);
+        assertEquals(159.5, hour.getClose(), 1e-9);
+        assertEquals(60.0, hour.getVolume(), 1e-9);
+        assertTrue(reopened.loadRecent("BTC", "4h", 10).isEmpty());
+
+        // 01:00 opened the next hour, served from memory on top of the stored one
+        assertEquals(List.of(DAY_START, DAY_START + 60 * MINUTE),
+                store.loadRecent("BTC", "1h", 10).stream().map(CryptoPrice::getTimestamp).toList());
+    }
+
+    @Test
+    void rangeReadsSpanDailyPartitions() {
+        // 23:55 on the 15th to 00:05 on the 16th: two 1min partitions
+        List<CryptoPrice> candles = minutes(1435, 1445);
+        store.append("BTC", "1min", candles);
+
+        long midnight = DAY_START + 1440 * MINUTE;
+        List<CryptoPrice> range = store.loadRange("BTC", "1min", midnight - 2 * MINUTE, midnight + 2 * MINUTE, 100);
+        assertEquals(5, range.size());
+        assertEquals(midnight - 2 * MINUTE, range.get(0).getTimestamp());
+
+        // Capped to the latest maxPoints
+        List<CryptoPrice> capped = store.loadRange("BTC", "1min", DAY_START, Long.MAX_VALUE, 3);
+        assertEquals(List.of(midnight + 3 * MINUTE, midnight + 4 * MINUTE, midnight + 5 * MINUTE),
+                capped.stream().map(CryptoPrice::getTimestamp).toList());
+        assertEquals(midnight + 5 * MINUTE, store.latestTimestamp("BTC", "1min"));
+    }
+}
@@ -3,6 +3,9 @@ package com.pxbt.dev.aiTradingCharts.service;
 import com.pxbt.dev.aiTradingCharts.config.SymbolConfig;
 import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
 import com.pxbt.dev.aiTradingCharts.model.PricePrediction;
+import com.pxbt.dev.aiTradingCharts.util.AnalysisContext;
+import com.pxbt.dev.aiTradingCharts.util.CandleColumns;
+import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -10,11 +13,13 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class PricePredictionServiceTest {
@@ -28,6 +33,18 @@ class PricePredictionServiceTest {
     @Mock
     private AIModelService aiModelService;
 
+    @Mock
+    private FeatureStoreService featureStore;
+
+    @Mock
+    private AnalysisContextService analysisContextService;
+
+    @Mock
+    private FearGreedService fearGreedService;
+
+    @Mock
+    private FundingRateService fundingRateService;
+
     @InjectMocks
     private PricePredictionService pricePredictionService;
 
@@ -51,6 +68,10 @@ class PricePredictionServiceTest {
         // Error in spelling of BinanceHistoricalService in original mock field, but correcting it here
         // Wait, the mock field is 'historicalDataService'
         when(historicalDataService.getHistoricalData(anyString(), anyString(), anyInt())).thenReturn(dummyData);
+        double[] features = new double[FeatureExtractor.FEATURE_SIZE];
+        AnalysisContext context = new AnalysisContext(symbol, "1d", CandleColumns.fromPrices(dummyData), null, features);
+        when(analysisContextService.forCandles(anyString(), anyString(), anyList())).thenReturn(context);
+        when(featureStore.getLatestFeatures(anyString(), anyString(), anyList(), anyDouble())).thenReturn(features);
         
         // Mock AI model response (model not trained)
         java.util.Map<String, Object> aiResult = new java.util.HashMap<>();
@@ -71,5 +92,45 @@ class PricePredictionServiceTest {
         assertEquals(symbol, p1d.getSymbol());
         assertTrue(p1d.getPredictedPrice() > 0);
         assertNotNull(p1d.getTrend());
+        // Untrained model: the technical trend path ran, not the error fallback
+        assertEquals("TECHNICAL_TREND", p1d.getModelName());
+    }
+
+    @Test
+    void testGenerateAIPredictionUsesReliableModel() {
+        String symbol = "BTC";
+        double currentPrice = 50000.0;
+
+        List<CryptoPrice> candles = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 250; i++) {
+            double price = 45000.0 + (i * 20);
+            candles.add(new CryptoPrice(symbol, price, 1.0, now - (250 - i) * 86400000L, price, price, price, price));
+        }
+
+        // RSI at 50, MACD positive and %B mid-band: all three TA checks agree with a bullish call
+        double[] features = new double[FeatureExtractor.FEATURE_SIZE];
+        features[4] = 0.01;
+        AnalysisContext context = new AnalysisContext(symbol, "1d", CandleColumns.fromPrices(candles), null, features);
+        when(analysisContextService.forCandles(eq(symbol), eq("1d"), anyList())).thenReturn(context);
+        // The live price differs from the last close, so the forming candle is re-priced by the feature store
+        when(featureStore.getLatestFeatures(eq(symbol), eq("1d"), anyList(), eq(currentPrice))).thenReturn(features);
+
+        Map<String, Object> aiResult = new HashMap<>();
+        aiResult.put("prediction", 0.04);
+        aiResult.put("confidence", 0.7);
+        aiResult.put("model", "RandomForest");
+        aiResult.put("isReliable", true);
+        aiResult.put("rScore", 0.5);
+        when(aiModelService.predictWithConfidence(eq(symbol), same(features), eq("1d"))).thenReturn(aiResult);
+
+        PricePrediction prediction = pricePredictionService.generateAIPrediction(symbol, currentPrice, candles, "1d");
+
+        verify(featureStore).getLatestFeatures(eq(symbol), eq("1d"), anyList(), eq(currentPrice));
+        assertEquals("RandomForest", prediction.getModelName());
+        assertEquals(52000.0, prediction.getPredictedPrice(), 1e-6);
+        assertEquals(0.8, prediction.getConfidence(), 1e-9);
+        assertEquals("BULLISH", prediction.getTrend());
+        assertEquals(0.5, prediction.getRScore(), 1e-9);
     }
 }
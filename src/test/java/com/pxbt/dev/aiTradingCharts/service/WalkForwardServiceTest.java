@@ -0,0 +1,111 @@
+package com.pxbt.dev.aiTradingCharts.service;
+
+import com.pxbt.dev.aiTradingCharts.util.FeatureExtractor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WalkForwardServiceTest {
+
+    @Mock private BinanceHistoricalService historicalDataService;
+    @Mock private AIModelService aiModelService;
+    @Mock private TrainingDataService trainingDataService;
+    @Mock private AccuracyPersistenceService accuracyPersistenceService;
+    @Mock private FeatureStoreService featureStore;
+
+    @InjectMocks
+    private WalkForwardService walkForwardService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(trainingDataService.getMinTrainingSamples("1d")).thenReturn(30);
+        when(trainingDataService.getMaxChangeFilter("1d")).thenReturn(0.3);
+        walkForwardService.memoryBudgetMb = 256;
+        walkForwardService.maxParallelism = 8;
+    }
+
+    @Test
+    void testFoldsNeverTrainOnTheirOwnTestRows() {
+        // Rows 10..209 are usable, the first fold tests from row 110
+        WalkForwardService.FeatureMatrix matrix = matrix(211, 10, 210);
+        matrix.targets()[50] = 0.5; // Outlier the training filter drops
+
+        List<WalkForwardService.FoldPlan> plans = walkForwardService.planFolds("1d", matrix, 30);
+
+        assertEquals(4, plans.size());
+        assertEquals(110, plans.get(0).testFrom());
+        int previousTrain = 0;
+        int expectedFrom = 110;
+        for (WalkForwardService.FoldPlan plan : plans) {
+            int[] rows = plan.trainRows();
+            assertEquals(10, rows[0]);
+            // A row's target is the next close, so the last training row's target closes by testFrom
+            assertTrue(rows[rows.length - 1] + 1 <= plan.testFrom());
+            for (int row : rows) assertNotEquals(50, row);
+            assertEquals(plan.testFrom() - 10 - 1, rows.length);
+
+            assertTrue(rows.length > previousTrain);
+            assertEquals(expectedFrom, plan.testFrom());
+            previousTrain = rows.length;
+            expectedFrom = plan.testTo();
+        }
+        assertEquals(210, plans.get(plans.size() - 1).testTo());
+    }
+
+    @Test
+    void testTooLittleHistoryPlansNoFolds() {
+        assertTrue(walkForwardService.planFolds("1d", matrix(60, 5, 60), 10).isEmpty());
+        assertTrue(walkForwardService.planFolds("1d", matrix(211, 10, 210), 0).isEmpty());
+    }
+
+    @Test
+    void testParallelismFitsCoresFoldsAndMemory() {
+        // 1000 rows x (FEATURE_SIZE + 1) columns x 256 bytes = ~5.1MB per fold
+        assertEquals(21, FeatureExtractor.FEATURE_SIZE + 1);
+        List<WalkForwardService.FoldPlan> plans = plans(10, 1000);
+
+        assertEquals(8, walkForwardService.parallelismFor(plans));
+        assertEquals(2, walkForwardService.parallelismFor(plans(2, 1000)));
+
+        walkForwardService.maxParallelism = 3;
+        assertEquals(3, walkForwardService.parallelismFor(plans));
+
+        walkForwardService.maxParallelism = 8;
+        walkForwardService.memoryBudgetMb = 16;
+        assertEquals(3, walkForwardService.parallelismFor(plans));
+
+        walkForwardService.memoryBudgetMb = 1;
+        assertEquals(1, walkForwardService.parallelismFor(plans));
+    }
+
+    private static WalkForwardService.FeatureMatrix matrix(int rows, int firstRow, int endRow) {
+        double[] targets = new double[rows];
+        long[] timestamps = new long[rows];
+        double[] closes = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            targets[i] = (i % 2 == 0 ? 0.01 : -0.01);
+            timestamps[i] = i * 86_400_000L;
+            closes[i] = 100 + i;
+        }
+        return new WalkForwardService.FeatureMatrix(
+                new double[rows][FeatureExtractor.FEATURE_SIZE], targets, timestamps, closes, firstRow, endRow);
+    }
+
+    private static List<WalkForwardService.FoldPlan> plans(int count, int lastTrainRows) {
+        List<WalkForwardService.FoldPlan> plans = new ArrayList<>();
+        for (int fold = 0; fold < count; fold++) {
+            int[] rows = new int[lastTrainRows - (count - 1 - fold)];
+            plans.add(new WalkForwardService.FoldPlan(fold, rows, rows.length, rows.length + 1));
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,76 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.pxbt.dev.aiTradingCharts.model.AccuracyRecord;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccuracyColumnsTest {
+
+    private static AccuracyRecord record(long ts, double predicted, double actual, boolean match, boolean evaluated) {
+        return AccuracyRecord.builder()
+                .symbol("BTCUSDT")
+                .timeframe("1d")
+                .predictionTime(ts)
+                .targetTime(ts + 86_400_000L)
+                .currentPrice(100)
+                .predictedPrice(predicted)
+                .actualPrice(actual)
+                .isDirectionMatch(match)
+                .modelName("RandomForest")
+                .isEvaluated(evaluated)
+                .build();
+    }
+
+    @Test
+    void testIncrementalSummaryMatchesFullScan() {
+        AccuracyColumns columns = new AccuracyColumns("BTCUSDT", "1d", 4, 10);
+        double errorSum = 0, rollingErrorSum = 0;
+        int wins = 0, rollingWins = 0;
+        for (int i = 0; i < 50; i++) {
+            boolean match = i % 3 != 0;
+            double actual = 100 + i;
+            double predicted = actual + (i % 7) - 3;
+            columns.add(record(i * 1000L, predicted, actual, match, true));
+            double error = Math.abs(predicted - actual) / actual;
+            errorSum += error;
+            if (match) wins++;
+            if (i >= 40) {
+                rollingErrorSum += error;
+                if (match) rollingWins++;
+            }
+        }
+        columns.add(record(60_000L, 120, 0, false, false));
+
+        assertEquals(50, columns.evaluatedCount());
+        assertEquals(1, columns.pendingCount());
+        assertEquals(wins * 100.0 / 50, columns.winRate(), 1e-9);
+        assertEquals(errorSum * 100.0 / 50, columns.avgError(), 1e-9);
+        assertEquals(10, columns.rollingCount());
+        assertEquals(rollingWins * 100.0 / 10, columns.rollingWinRate(), 1e-9);
+        assertEquals(rollingErrorSum * 100.0 / 10, columns.rollingAvgError(), 1e-9);
+        assertEquals(149, columns.latestActualPrice());
+    }
+
+    @Test
+    void testOutOfOrderInsertAndRemoveEvaluated() {
+        AccuracyColumns columns = new AccuracyColumns("BTCUSDT", "1d", 2);
+        columns.add(record(3000, 101, 100, true, true));
+        columns.add(record(5000, 0, 0, false, false));
+        columns.add(record(1000, 99, 100, false, true));
+
+        assertEquals(1000, columns.predictionTime(0));
+        assertEquals(3000, columns.predictionTime(1));
+        assertFalse(columns.isEvaluated(2));
+        assertEquals(50.0, columns.winRate(), 1e-9);
+        assertEquals(100, columns.latestActualPrice());
+        assertEquals(1, columns.lowerBound(2000));
+
+        columns.removeEvaluated();
+        assertEquals(1, columns.size());
+        assertEquals(5000, columns.predictionTime(0));
+        assertEquals(0, columns.evaluatedCount());
+        assertEquals(0, columns.winRate());
+        assertEquals("RandomForest", columns.toRecord(0).getModelName());
+    }
+}
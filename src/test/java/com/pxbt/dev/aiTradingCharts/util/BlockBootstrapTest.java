@@ -0,0 +1,61 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockBootstrapTest {
+
+    private static BlockBootstrap.Outcomes series(int n, long seed) {
+        Random random = new Random(seed);
+        double[] hits = new double[n];
+        double[] errors = new double[n];
+        for (int i = 0; i < n; i++) {
+            hits[i] = random.nextDouble() < 0.56 ? 1 : 0;
+            errors[i] = random.nextDouble() * 0.05;
+        }
+        return new BlockBootstrap.Outcomes(hits, errors);
+    }
+
+    @Test
+    void testDeterministicAcrossPoolSizes() {
+        BlockBootstrap.Outcomes outcomes = series(3000, 7);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool wide = new ForkJoinPool(4);
+        try {
+            BlockBootstrap.Result a = BlockBootstrap.run(outcomes, 5000, 0.95, 0, 42, single);
+            BlockBootstrap.Result b = BlockBootstrap.run(outcomes, 5000, 0.95, 0, 42, wide);
+            assertEquals(a.winRateLow, b.winRateLow);
+            assertEquals(a.winRateHigh, b.winRateHigh);
+            assertEquals(a.avgErrorLow, b.avgErrorLow);
+            assertEquals(a.avgErrorHigh, b.avgErrorHigh);
+            assertEquals(15, a.blockLength); // ceil(cbrt(3000))
+        } finally {
+            single.shutdown();
+            wide.shutdown();
+        }
+    }
+
+    @Test
+    void testIntervalBracketsPointEstimate() {
+        BlockBootstrap.Result r = BlockBootstrap.run(series(3000, 11), 5000, 0.95, 0, 1, ForkJoinPool.commonPool());
+        assertTrue(r.winRateLow < r.winRate && r.winRate < r.winRateHigh);
+        assertTrue(r.avgErrorLow < r.avgError && r.avgError < r.avgErrorHigh);
+        assertTrue(r.winRateHigh - r.winRateLow < 0.1);
+
+        // Constant outcomes have nothing to resample
+        BlockBootstrap.Outcomes flat = new BlockBootstrap.Outcomes(new double[]{1, 1, 1, 1}, new double[]{0.02, 0.02, 0.02, 0.02});
+        BlockBootstrap.Result f = BlockBootstrap.run(flat, 100, 0.9, 2, 1, ForkJoinPool.commonPool());
+        assertEquals(1.0, f.winRateLow, 1e-12);
+        assertEquals(1.0, f.winRateHigh, 1e-12);
+        assertEquals(0.02, f.avgErrorHigh, 1e-12);
+
+        BlockBootstrap.Result empty = BlockBootstrap.run(new BlockBootstrap.Outcomes(new double[0], new double[0]),
+                100, 0.95, 0, 1, ForkJoinPool.commonPool());
+        assertEquals(0, empty.samples);
+        assertEquals(0, empty.winRateHigh);
+    }
+}
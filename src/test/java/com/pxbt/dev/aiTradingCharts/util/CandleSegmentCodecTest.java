@@ -0,0 +1,88 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleSegmentCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static CandleColumns randomWalk(int count) {
+        Random random = new Random(42);
+        CandleColumns candles = new CandleColumns(count);
+        long ts = 1502928000000L; // 2017-08-17, first BTCUSDT daily
+        double price = 4261.48;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            double close = Math.round(open * (1 + random.nextGaussian() * 0.03) * 100) / 100.0;
+            double high = Math.max(open, close) + Math.round(random.nextDouble() * 50 * 100) / 100.0;
+            double low = Math.min(open, close) - Math.round(random.nextDouble() * 50 * 100) / 100.0;
+            double volume = Math.round(random.nextDouble() * 50000 * 1e5) / 1e5;
+            // Occasional irregular gap (exchange maintenance)
+            ts += 86_400_000L + (i % 500 == 499 ? 3_600_000L : 0);
+            candles.add(ts, open, high, low, close, volume);
+            price = close;
+        }
+        return candles;
+    }
+
+    @Test
+    void testRoundTripIsLossless() throws Exception {
+        CandleColumns original = randomWalk(3000);
+        Path file = tempDir.resolve("BTC_1d.cseg");
+        CandleSegmentCodec.write(file, original, 256);
+
+        CandleColumns decoded = CandleSegmentCodec.readAll(file);
+        assertEquals(original.size(), decoded.size());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.timestamp(i), decoded.timestamp(i));
+            assertEquals(original.open(i), decoded.open(i));
+            assertEquals(original.high(i), decoded.high(i));
+            assertEquals(original.low(i), decoded.low(i));
+            assertEquals(original.close(i), decoded.close(i));
+            assertEquals(original.volume(i), decoded.volume(i));
+        }
+
+        // Well under the ~130 bytes per candle of the JSON representation
+        assertTrue(Files.size(file) < original.size() * 40L, "segment size " + Files.size(file));
+    }
+
+    @Test
+    void testTailDecodesOnlyTrailingCandles() throws Exception {
+        CandleColumns original = randomWalk(1000);
+        Path file = tempDir.resolve("SOL_1d.cseg");
+        CandleSegmentCodec.write(file, original, 128);
+
+        CandleColumns tail = CandleSegmentCodec.readTail(file, 300);
+        assertEquals(300, tail.size());
+        assertEquals(original.timestamp(700), tail.firstTimestamp());
+        assertEquals(original.close(999), tail.close(299));
+        assertEquals(1000, CandleSegmentCodec.count(file));
+    }
+
+    @Test
+    void testRangeReadUsesBlockIndex() throws Exception {
+        CandleColumns original = randomWalk(2000);
+        Path file = tempDir.resolve("TAO_1d.cseg");
+        CandleSegmentCodec.write(file, original, 100);
+
+        long from = original.timestamp(450);
+        long to = original.timestamp(1234);
+        CandleColumns range = CandleSegmentCodec.readRange(file, from, to);
+        assertEquals(1234 - 450 + 1, range.size());
+        assertEquals(from, range.firstTimestamp());
+        assertEquals(to, range.lastTimestamp());
+
+        // Bounds between candles are inclusive of whatever falls inside
+        CandleColumns between = CandleSegmentCodec.readRange(file, from + 1, to - 1);
+        assertEquals(1234 - 450 - 1, between.size());
+        assertEquals(0, CandleSegmentCodec.readRange(file, 0, original.firstTimestamp() - 1).size());
+    }
+}
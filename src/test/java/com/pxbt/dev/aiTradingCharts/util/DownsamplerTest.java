@@ -0,0 +1,61 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownsamplerTest {
+
+    private static CandleColumns sine(int count) {
+        CandleColumns candles = new CandleColumns(count);
+        for (int i = 0; i < count; i++) {
+            double close = 100 + 10 * Math.sin(i / 20.0);
+            candles.add(i * 60_000L, close - 0.5, close + 1, close - 1, close, 1);
+        }
+        return candles;
+    }
+
+    @Test
+    void testLttbKeepsEndpointsAndExtremes() {
+        // A single spike LTTB must not smooth away
+        CandleColumns source = new CandleColumns(1000);
+        for (int i = 0; i < 1000; i++) {
+            double close = i == 600 ? 500 : 100 + Math.sin(i / 20.0);
+            source.add(i * 60_000L, close, close, close, close, 1);
+        }
+
+        CandleColumns line = Downsampler.lttb(source, 100);
+        assertEquals(100, line.size());
+        assertEquals(source.firstTimestamp(), line.firstTimestamp());
+        assertEquals(source.lastTimestamp(), line.lastTimestamp());
+
+        boolean spikeKept = false;
+        for (int i = 0; i < line.size(); i++) {
+            if (line.close(i) == 500) spikeKept = true;
+            if (i > 0) assertTrue(line.timestamp(i) > line.timestamp(i - 1));
+        }
+        assertTrue(spikeKept, "LTTB should keep the visually dominant spike");
+    }
+
+    @Test
+    void testOhlcBucketsPreserveExtremesAndVolume() {
+        CandleColumns source = sine(1000);
+        CandleColumns buckets = Downsampler.ohlcBuckets(source, 100);
+        assertEquals(100, buckets.size());
+
+        double sourceHigh = Double.NEGATIVE_INFINITY, bucketHigh = Double.NEGATIVE_INFINITY;
+        double sourceVolume = 0, bucketVolume = 0;
+        for (int i = 0; i < source.size(); i++) {
+            sourceHigh = Math.max(sourceHigh, source.high(i));
+            sourceVolume += source.volume(i);
+        }
+        for (int i = 0; i < buckets.size(); i++) {
+            bucketHigh = Math.max(bucketHigh, buckets.high(i));
+            bucketVolume += buckets.volume(i);
+        }
+        assertEquals(sourceHigh, bucketHigh, 1e-12);
+        assertEquals(sourceVolume, bucketVolume, 1e-9);
+        assertEquals(source.open(0), buckets.open(0));
+        assertEquals(source.close(999), buckets.close(99));
+    }
+}
@@ -0,0 +1,69 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureColumnsTest {
+
+    private static List<CryptoPrice> candles(int n) {
+        List<CryptoPrice> prices = new ArrayList<>();
+        long start = 1_600_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            double price = 100 + 10 * Math.sin(i / 7.0) + i * 0.1;
+            prices.add(new CryptoPrice("BTC", price, 1000 + (i % 13) * 50, start + i * 86_400_000L, price, price, price, price));
+        }
+        return prices;
+    }
+
+    private static FeatureColumns columns(List<CryptoPrice> prices) {
+        FeatureColumns columns = new FeatureColumns(prices.size());
+        for (CryptoPrice p : prices) columns.add(p.getTimestamp(), p.getClose(), p.getVolume());
+        return columns;
+    }
+
+    @Test
+    void testIncrementalRowsMatchFullComputation() {
+        List<CryptoPrice> prices = candles(400);
+
+        // Reference: the extractor over a full ta4j series, as training used to do it
+        FeatureExtractor.Indicators inds = new FeatureExtractor.Indicators(Ta4jConverter.toSeries("BTC", prices), "1d");
+
+        // Store-style: first 300 candles, then extend by 100
+        FeatureColumns columns = columns(prices.subList(0, 300));
+        columns.computeFeatures("BTC", "1d", 0);
+        for (CryptoPrice p : prices.subList(300, 400)) columns.add(p.getTimestamp(), p.getClose(), p.getVolume());
+        columns.computeFeatures("BTC", "1d", 300);
+
+        for (int i : new int[]{0, 50, 199, 299, 300, 350, 399}) {
+            assertArrayEquals(FeatureExtractor.extractFeatures(i, inds), columns.features(i), 1e-12, "row " + i);
+        }
+    }
+
+    @Test
+    void testFileRoundTripAndSchemaCheck() throws Exception {
+        FeatureColumns columns = columns(candles(250));
+        columns.computeFeatures("BTC", "1w", 0);
+
+        Path file = Files.createTempFile("features", FeatureColumns.EXTENSION);
+        try {
+            columns.write(file, 3);
+            FeatureColumns read = FeatureColumns.read(file, 3);
+            assertNotNull(read);
+            assertEquals(250, read.size());
+            assertEquals(columns.lastTimestamp(), read.lastTimestamp());
+            assertArrayEquals(columns.features(249), read.features(249));
+            assertTrue(read.sameCandle(10, columns.timestamp(10), columns.close(10), columns.volume(10)));
+
+            assertNull(FeatureColumns.read(file, 4));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
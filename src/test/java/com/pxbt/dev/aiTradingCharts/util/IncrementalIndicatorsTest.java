@@ -0,0 +1,65 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.indicators.volume.VWAPIndicator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalIndicatorsTest {
+
+    private static List<CryptoPrice> candles(int n) {
+        List<CryptoPrice> prices = new ArrayList<>();
+        long start = 1_600_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            double close = 30_000 + 3_000 * Math.sin(i / 9.0) + i * 40 + (i % 5) * 120;
+            double open = close - 50 + (i % 3) * 40;
+            double high = Math.max(open, close) + 80 + (i % 7) * 10;
+            double low = Math.min(open, close) - 60 - (i % 4) * 15;
+            prices.add(new CryptoPrice("BTC", close, 1000 + (i % 13) * 75, start + i * 86_400_000L, open, high, low, close));
+        }
+        return prices;
+    }
+
+    @Test
+    void testStreamingFeaturesMatchTa4j() {
+        List<CryptoPrice> prices = candles(400);
+        BarSeries series = Ta4jConverter.toSeries("BTC", prices);
+
+        for (String tf : new String[]{"1d", "1w", "1m"}) {
+            FeatureExtractor.Indicators inds = new FeatureExtractor.Indicators(series, tf);
+            VWAPIndicator vwap = new VWAPIndicator(series, FeatureExtractor.Periods.forTimeframe(tf).volPeriod());
+            IncrementalIndicators state = new IncrementalIndicators(tf);
+
+            for (int i = 0; i < prices.size(); i++) {
+                CryptoPrice p = prices.get(i);
+                state.update(p.getHigh(), p.getLow(), p.getClose(), p.getVolume());
+                assertArrayEquals(FeatureExtractor.extractFeatures(i, inds), FeatureExtractor.extractFeatures(state), 1e-9, tf + " row " + i);
+                assertEquals(vwap.getValue(i).doubleValue(), state.vwap(), 1e-6, tf + " vwap " + i);
+            }
+        }
+    }
+
+    @Test
+    void testPreviewLeavesStateUntouched() {
+        List<CryptoPrice> prices = candles(260);
+        IncrementalIndicators state = new IncrementalIndicators("1d");
+        for (CryptoPrice p : prices.subList(0, 259)) state.update(p.getClose(), p.getVolume());
+        double[] before = FeatureExtractor.extractFeatures(state);
+
+        CryptoPrice last = prices.get(259);
+        IncrementalIndicators preview = state.preview(last.getClose() * 1.05, last.getVolume());
+
+        assertArrayEquals(before, FeatureExtractor.extractFeatures(state));
+        assertEquals(259, state.count());
+        assertEquals(260, preview.count());
+
+        // Committing the same candle gives the same values as the preview
+        state.update(last.getClose() * 1.05, last.getVolume());
+        assertArrayEquals(FeatureExtractor.extractFeatures(state), FeatureExtractor.extractFeatures(preview), 0);
+    }
+}
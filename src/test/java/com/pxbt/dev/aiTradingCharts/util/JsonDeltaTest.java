@@ -0,0 +1,59 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonDeltaTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ObjectNode json(String text) throws Exception {
+        return (ObjectNode) mapper.readTree(text.replace('\'', '"'));
+    }
+
+    @Test
+    void onlyChangedPathsAreSent() throws Exception {
+        ObjectNode from = json("{'price':100,'preds':{'1day':{'p':101,'c':0.5},'1week':{'p':110}},'logs':['a'],'old':1}");
+        ObjectNode to = json("{'price':102,'preds':{'1day':{'p':101,'c':0.6},'1week':{'p':110}},'logs':['a','b'],'new':{'x':1}}");
+
+        ObjectNode delta = JsonDelta.diff(from, to);
+
+        assertEquals(json("{'/price':102,'/preds/1day/c':0.6,'/logs':['a','b'],'/new':{'x':1}}"), delta.get("set"));
+        assertEquals(mapper.readTree("[\"/old\"]"), delta.get("remove"));
+        assertEquals(to, JsonDelta.apply(from, delta));
+    }
+
+    @Test
+    void identicalTreesGiveAnEmptyDelta() throws Exception {
+        ObjectNode doc = json("{'a':{'b':[1,2]},'c':null}");
+        ObjectNode delta = JsonDelta.diff(doc, doc.deepCopy());
+
+        assertTrue(JsonDelta.isEmpty(delta));
+        assertEquals(doc, JsonDelta.apply(doc, delta));
+    }
+
+    @Test
+    void keysWithSlashesAndTildesRoundTrip() throws Exception {
+        ObjectNode from = json("{'a/b':{'~c':1}}");
+        ObjectNode to = json("{'a/b':{'~c':2}}");
+
+        ObjectNode delta = JsonDelta.diff(from, to);
+
+        assertTrue(delta.get("set").has("/a~1b/~0c"));
+        assertEquals(to, JsonDelta.apply(from, delta));
+    }
+
+    @Test
+    void applyDoesNotModifyTheBase() throws Exception {
+        ObjectNode from = json("{'a':{'b':1}}");
+        ObjectNode delta = JsonDelta.diff(from, json("{'a':{'b':2}}"));
+
+        JsonDelta.apply(from, delta);
+
+        assertEquals(json("{'a':{'b':1}}"), from);
+    }
+}
@@ -0,0 +1,43 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PriceFrameCodecTest {
+
+    @Test
+    void binaryFrameHasTheFixedLittleEndianLayout() {
+        ByteBuffer frame = PriceFrameCodec.encode(3, 64123.45, 12.5, 1_700_000_000_123L);
+
+        assertEquals(PriceFrameCodec.PRICE_FRAME_BYTES, frame.remaining());
+        ByteBuffer in = frame.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(PriceFrameCodec.TYPE_PRICE, in.get(0));
+        assertEquals(3, in.get(1) & 0xFF);
+        assertEquals(64123.45, in.getDouble(4));
+        assertEquals(12.5, in.getDouble(12));
+        assertEquals(1_700_000_000_123L, in.getLong(20));
+    }
+
+    @Test
+    void symbolIdMustFitOneByte() {
+        assertThrows(IllegalArgumentException.class, () -> PriceFrameCodec.encode(256, 1, 1, 1));
+    }
+
+    @Test
+    void jsonMatchesThePriceUpdateMessage() throws Exception {
+        JsonNode json = new ObjectMapper().readTree(PriceFrameCodec.toJson("BTC", 0.00001234, 1e9, 42L));
+
+        assertEquals("price_update", json.get("type").asText());
+        assertEquals("BTC", json.get("symbol").asText());
+        assertEquals(0.00001234, json.get("price").asDouble());
+        assertEquals(1e9, json.get("volume").asDouble());
+        assertEquals(42L, json.get("timestamp").asLong());
+    }
+}
@@ -0,0 +1,77 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegressionMetricsTest {
+
+    @Test
+    void testMatchesTwoPassScores() {
+        double[] actual = {0.02, -0.01, 0.03, -0.04, 0.00, 0.01};
+        double[] predicted = {0.01, -0.02, 0.02, 0.01, 0.01, 0.02};
+
+        RegressionMetrics m = new RegressionMetrics();
+        for (int i = 0; i < actual.length; i++) m.add(actual[i], predicted[i]);
+
+        double mean = 0;
+        for (double a : actual) mean += a;
+        mean /= actual.length;
+        double ssTotal = 0, ssResidual = 0, abs = 0;
+        for (int i = 0; i < actual.length; i++) {
+            ssTotal += Math.pow(actual[i] - mean, 2);
+            ssResidual += Math.pow(actual[i] - predicted[i], 2);
+            abs += Math.abs(actual[i] - predicted[i]);
+        }
+
+        assertEquals(1 - ssResidual / ssTotal, m.r2(), 1e-12);
+        assertEquals(Math.sqrt(ssResidual / actual.length), m.rmse(), 1e-12);
+        assertEquals(abs / actual.length, m.mae(), 1e-12);
+        assertEquals(4.0 / 6, m.directionalAccuracy(), 1e-12); // Rows 0-2 and 5; the zero move doesn't count
+    }
+
+    @Test
+    void testCalibrationOfScaledPredictions() {
+        // Predictions twice the real move: slope 0.5, no intercept
+        RegressionMetrics m = new RegressionMetrics();
+        for (double a : new double[]{-0.03, -0.01, 0.01, 0.02, 0.05}) m.add(a, 2 * a);
+        assertEquals(0.5, m.calibrationSlope(), 1e-9);
+        assertEquals(0.0, m.calibrationIntercept(), 1e-12);
+        assertEquals(1.0, m.directionalAccuracy(), 1e-12);
+
+        assertEquals(0, new RegressionMetrics().r2());
+    }
+
+    @Test
+    void testScoresStayExactWithLargeOffsets() {
+        // Prices rather than returns: the naive sum-of-squares formula cancels out at this scale
+        double[] moves = {0.02, -0.01, 0.03, -0.04, 0.00, 0.01};
+        double[] actual = new double[moves.length];
+        double[] predicted = new double[moves.length];
+        RegressionMetrics m = new RegressionMetrics();
+        for (int i = 0; i < moves.length; i++) {
+            actual[i] = 1e6 + moves[i];
+            predicted[i] = 1e6 + moves[i] * 0.5 + 0.001;
+            m.add(actual[i], predicted[i]);
+        }
+
+        double meanActual = 0, meanPredicted = 0;
+        for (int i = 0; i < moves.length; i++) {
+            meanActual += actual[i];
+            meanPredicted += predicted[i];
+        }
+        meanActual /= moves.length;
+        meanPredicted /= moves.length;
+        double ssTotal = 0, ssResidual = 0, ssPredicted = 0, cross = 0;
+        for (int i = 0; i < moves.length; i++) {
+            ssTotal += Math.pow(actual[i] - meanActual, 2);
+            ssResidual += Math.pow(actual[i] - predicted[i], 2);
+            ssPredicted += Math.pow(predicted[i] - meanPredicted, 2);
+            cross += (actual[i] - meanActual) * (predicted[i] - meanPredicted);
+        }
+
+        assertEquals(1 - ssResidual / ssTotal, m.r2(), 1e-6);
+        assertEquals(cross / ssPredicted, m.calibrationSlope(), 1e-6);
+        assertEquals(2.0, m.calibrationSlope(), 1e-4);
+    }
+}
@@ -0,0 +1,44 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrategySimulatorTest {
+
+    private static final StrategySimulator.Params LIVE =
+            new StrategySimulator.Params(0.5, 2.0, 0.50, 0.60, 0, 0, 0.5, 1.0, false);
+
+    @Test
+    void testSignalsMatchLiveThresholds() {
+        assertEquals(1.0, StrategySimulator.position(0.03, 0.65, LIVE));  // STRONG_BUY
+        assertEquals(0.5, StrategySimulator.position(0.03, 0.55, LIVE));  // BUY (confidence too low for strong)
+        assertEquals(0.5, StrategySimulator.position(0.01, 0.55, LIVE));  // BUY
+        assertEquals(0.0, StrategySimulator.position(0.004, 0.90, LIVE)); // HOLD
+        assertEquals(0.0, StrategySimulator.position(-0.03, 0.65, LIVE)); // STRONG_SELL, long-only
+        StrategySimulator.Params shorting = new StrategySimulator.Params(0.5, 2.0, 0.50, 0.60, 0, 0, 0.5, 1.0, true);
+        assertEquals(-1.0, StrategySimulator.position(-0.03, 0.65, shorting));
+    }
+
+    @Test
+    void testEquityCostsAndDrawdown() {
+        // Long the whole way: +10%, -10%, +10% with a single entry
+        StrategySimulator.Series series = new StrategySimulator.Series(
+                new long[]{1, 2, 3},
+                new double[]{0.03, 0.03, 0.03},
+                new double[]{0.10, -0.10, 0.10},
+                new double[]{0.7, 0.7, 0.7});
+
+        StrategySimulator.Result free = StrategySimulator.run(series, LIVE, 365, true);
+        assertEquals(1.1 * 0.9 * 1.1 - 1, free.totalReturn, 1e-12);
+        assertEquals(0.10, free.maxDrawdown, 1e-12);
+        assertEquals(1, free.trades);
+        assertEquals(1.0, free.exposure, 1e-12);
+        assertEquals(3, free.equity.length);
+
+        StrategySimulator.Params costly = new StrategySimulator.Params(0.5, 2.0, 0.50, 0.60, 10, 5, 0.5, 1.0, false);
+        StrategySimulator.Result paid = StrategySimulator.run(series, costly, 365, false);
+        assertEquals((1.1 - 0.0015) * 0.9 * 1.1 - 1, paid.totalReturn, 1e-12);
+        assertNull(paid.equity);
+    }
+}
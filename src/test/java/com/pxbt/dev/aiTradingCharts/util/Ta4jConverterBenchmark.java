@@ -0,0 +1,66 @@
+package com.pxbt.dev.aiTradingCharts.util;
+
+import com.pxbt.dev.aiTradingCharts.model.CryptoPrice;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.num.DoubleNum;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Per-bar cost of a full conversion: ta4j's boxed addBar(time, Number...) with a system-zone lookup per bar vs the
+ * converter's primitive BaseBars. Both are O(n) per call; live predictions no longer convert per call at all (they
+ * read the feature store and the streaming indicator state), so this only covers the remaining short-series path.
+ * Not picked up by the default test run: mvn test -Dtest=Ta4jConverterBenchmark
+ */
+class Ta4jConverterBenchmark {
+
+    private static final int HISTORY = 2500;
+    private static final int CALLS = 500;
+
+    private static BarSeries boxedSeries(List<CryptoPrice> prices) {
+        BarSeries series = new BaseBarSeriesBuilder().withName("BTC").withNumTypeOf(DoubleNum.class).build();
+        for (CryptoPrice p : prices) {
+            ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(p.getTimestamp()), ZoneId.systemDefault());
+            series.addBar(time, p.getOpen(), p.getHigh(), p.getLow(), p.getClose(), p.getVolume());
+        }
+        return series;
+    }
+
+    @Test
+    void runConversionBenchmark() {
+        List<CryptoPrice> prices = new ArrayList<>();
+        long start = 1_500_000_000_000L;
+        for (int i = 0; i < HISTORY; i++) {
+            double price = 30_000 + 3_000 * Math.sin(i / 9.0) + i;
+            prices.add(new CryptoPrice("BTC", price, 1000 + i % 17, start + i * 86_400_000L, price, price + 50, price - 50, price));
+        }
+
+        System.out.println("\n🚀 Ta4jConverter: " + CALLS + " conversions of a " + HISTORY + "-candle window");
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            double sink = 0;
+            for (int c = 0; c < CALLS; c++) {
+                sink += boxedSeries(prices).getLastBar().getClosePrice().doubleValue();
+            }
+            long boxed = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            for (int c = 0; c < CALLS; c++) {
+                sink -= Ta4jConverter.toSeries("BTC", prices).getLastBar().getClosePrice().doubleValue();
+            }
+            long converter = System.nanoTime() - t0;
+
+            assertEquals(0, sink, 1e-6);
+            System.out.printf("| round %d | boxed %.1f us/call | converter %.1f us/call | %.1fx |%n",
+                    round, boxed / 1e3 / CALLS, converter / 1e3 / CALLS, (double) boxed / converter);
+        }
+    }
+}